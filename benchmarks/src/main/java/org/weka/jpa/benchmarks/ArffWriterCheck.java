@@ -0,0 +1,134 @@
+package org.weka.jpa.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.weka.jpa.Weka2JPAArffWriter;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Confere que o {@link Weka2JPAArffWriter} grava o mesmo texto que
+ * {@link Instances#toString()}, que o {@link weka.core.converters.ArffSaver}
+ * usa para cada instancia.
+ * 
+ * Os casos cobrem instancias densas, esparsas e com peso, valores negativos,
+ * menores que 1e-6, a partir de Long.MAX_VALUE / 1e6 (formatados por
+ * {@link Double#toString(double)}), NaN e infinitos, valores incógnitos e
+ * textos que precisam de aspas, seguidos de valores aleatórios de várias
+ * ordens de grandeza.
+ * 
+ * Executado após <code>mvn package</code>:
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar org.weka.jpa.benchmarks.ArffWriterCheck
+ * </pre>
+ * 
+ * Termina com código 1 e as primeiras linhas divergentes quando as saídas
+ * diferem.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public final class ArffWriterCheck {
+
+	/**
+	 * Quantidade de instancias com valores aleatórios.
+	 */
+	private static final int RANDOM_ROWS = 100000;
+
+	/**
+	 * Quantidade de linhas divergentes exibidas.
+	 */
+	private static final int MAX_REPORTED = 10;
+
+	private static final double[] NUMBERS = { 0, -0.0, 1, -1, 0.5, -0.5, 0.1, 1 / 3.0, -2 / 3.0, 123.456789,
+			-123.4567891, 999999.9999995, 1234567.0000004,
+			// menores que 1e-6, arredondados para zero ou para a última casa
+			1e-7, -1e-7, 4.9e-7, 5e-7, -5e-7, 1.5e-6, -1.5e-6, Double.MIN_VALUE, -Double.MIN_VALUE,
+			// limite da formatação sem criar objetos
+			Long.MAX_VALUE / 1e6 * 0.999999, -Long.MAX_VALUE / 1e6 * 0.999999, Long.MAX_VALUE / 1e6,
+			-Long.MAX_VALUE / 1e6, 1e13, 1e20, -1e20, Double.MAX_VALUE,
+			Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+	private static final String[] TEXTS = { "simples", "com espaço", "aspa'simples", "aspa\"dupla", "barra\\",
+			"tab\tulação", "quebra\nde linha", "por%cento", "{chaves}", "vír,gula", "", "?", "ação" };
+
+	private ArffWriterCheck() {
+	}
+
+	public static void main(String[] p_args) throws IOException {
+		Instances l_data = createInstances();
+
+		StringWriter l_out = new StringWriter();
+		Weka2JPAArffWriter l_writer = new Weka2JPAArffWriter(l_out);
+		l_writer.writeHeader(l_data);
+		for (Instance l_instance : l_data) {
+			l_writer.write(l_instance);
+		}
+		l_writer.flush();
+
+		// o writer termina cada instancia com uma quebra de linha
+		String[] l_expected = (l_data.toString() + "\n").split("\n", -1);
+		String[] l_actual = l_out.toString().split("\n", -1);
+
+		int l_differences = 0;
+		for (int i = 0; i < Math.max(l_expected.length, l_actual.length); i++) {
+			String l_exp = i < l_expected.length ? l_expected[i] : "<fim>";
+			String l_act = i < l_actual.length ? l_actual[i] : "<fim>";
+			if (!l_exp.equals(l_act) && l_differences++ < MAX_REPORTED)
+				System.out.println("linha " + (i + 1) + "\n  Instances: " + l_exp + "\n  writer:    " + l_act);
+		}
+
+		System.out.println(l_data.numInstances() + " instancias, " + l_differences + " linhas divergentes");
+		if (l_differences > 0)
+			System.exit(1);
+	}
+
+	private static Instances createInstances() {
+		ArrayList<Attribute> l_atts = new ArrayList<>();
+		l_atts.add(new Attribute("numero"));
+		l_atts.add(new Attribute("nominal", Arrays.asList("a", "b c", "d'e", "?", "", "{f}")));
+		l_atts.add(new Attribute("texto", (List<String>) null));
+		l_atts.add(new Attribute("outro"));
+		Instances l_data = new Instances("relação de teste", l_atts, 0);
+		Attribute l_text = l_data.attribute("texto");
+
+		for (int i = 0; i < NUMBERS.length * 3; i++) {
+			double[] l_vals = new double[l_atts.size()];
+			l_vals[0] = NUMBERS[i % NUMBERS.length];
+			l_vals[1] = i % 7 == 6 ? Utils.missingValue() : i % 6;
+			l_vals[2] = l_text.addStringValue(TEXTS[i % TEXTS.length]);
+			l_vals[3] = i % 5 == 0 ? 0 : NUMBERS[(i * 7) % NUMBERS.length];
+			l_data.add(createInstance(i, i % 4 == 3 ? 2.5 : 1, l_vals));
+		}
+
+		Random l_random = new Random(1);
+		for (int i = 0; i < RANDOM_ROWS; i++) {
+			double l_value = (l_random.nextDouble() - 0.5) * Math.pow(10, l_random.nextInt(30) - 12);
+			double[] l_vals = { l_value, 0, l_text.addStringValue(TEXTS[i % TEXTS.length]), -l_value };
+			l_data.add(createInstance(i, 1, l_vals));
+		}
+
+		return l_data;
+	}
+
+	/**
+	 * Alterna instancias densas e esparsas.
+	 */
+	private static Instance createInstance(int p_row, double p_weight, double[] p_vals) {
+		if (p_row % 2 == 0)
+			return new DenseInstance(p_weight, p_vals);
+		return new SparseInstance(p_weight, p_vals);
+	}
+}
@@ -0,0 +1,141 @@
+package org.weka.jpa.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weka.jpa.Weka2JPAAttributeProcessor;
+import org.weka.jpa.Weka2JPAHelper;
+import org.weka.jpa.Weka2JPAMappingPlan;
+import org.weka.jpa.benchmarks.BenchmarkDatabase.CountingOutputStream;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * Mede isoladamente a conversão de um atributo nominal, obtido de um campo
+ * ManyToOne, e de um atributo String, variando a quantidade de valores
+ * nominais e o tamanho dos textos:
+ * 
+ * <ul>
+ * <li>{@link #nominalAttributes()}: criação do dicionário de valores;</li>
+ * <li>{@link #nominalLookup()}: conversão das referências em índices;</li>
+ * <li>{@link #stringAttribute()}: conversão dos textos, um valor diferente por
+ * entidade;</li>
+ * <li>{@link #exportStrings()}: exportação completa dos textos, que descarta
+ * os valores String a cada página.</li>
+ * </ul>
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeKindBenchmark {
+
+	/**
+	 * Quantidade de valores do atributo nominal.
+	 */
+	@Param({ "10", "1000", "10000" })
+	public int categories;
+
+	/**
+	 * Tamanho dos textos do atributo String.
+	 */
+	@Param({ "16", "256" })
+	public int textLength;
+
+	@Param({ "10000" })
+	public int rows;
+
+	private EntityManagerFactory emf;
+	private EntityManager em;
+	private List<BenchItem> entities;
+
+	private Weka2JPAHelper<BenchItem> nominalHelper;
+	private Weka2JPAMappingPlan<BenchItem> nominalPlan;
+	private Weka2JPAAttributeProcessor<BenchItem> nominalProcessor;
+	private ArrayList<Attribute> nominalAttributes;
+
+	private Weka2JPAHelper<BenchItem> stringHelper;
+	private Weka2JPAAttributeProcessor<BenchItem> stringProcessor;
+	private ArrayList<Attribute> stringAttributes;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		emf = BenchmarkDatabase.create();
+		em = emf.createEntityManager();
+
+		List<BenchCategory> l_categories = BenchmarkDatabase.persistCategories(em, categories);
+		BenchmarkDatabase.persist(em, rows, i -> new BenchItem(i, l_categories.get((int) (i % categories)),
+				BenchmarkDatabase.newText(i, textLength), i / 4d));
+
+		entities = em.createQuery("SELECT E FROM BenchItem E JOIN FETCH E.category ORDER BY E.id", BenchItem.class)
+				.getResultList();
+
+		nominalHelper = BenchmarkDatabase.createHelper(em);
+		nominalHelper.ignoreFieldsName(Arrays.asList("id", "text", "value"));
+		nominalPlan = nominalHelper.getMappingPlan(BenchItem.class);
+		nominalProcessor = new Weka2JPAAttributeProcessor<>(nominalPlan, nominalHelper);
+		nominalAttributes = nominalProcessor.createAttributes();
+
+		stringHelper = BenchmarkDatabase.createHelper(em);
+		stringHelper.ignoreFieldsName(Arrays.asList("id", "category", "value"));
+		stringProcessor = new Weka2JPAAttributeProcessor<>(stringHelper.getMappingPlan(BenchItem.class),
+				stringHelper);
+		stringAttributes = stringProcessor.createAttributes();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		emf.close();
+	}
+
+	@Benchmark
+	public ArrayList<Attribute> nominalAttributes() {
+		return new Weka2JPAAttributeProcessor<>(nominalPlan, nominalHelper).createAttributes();
+	}
+
+	@Benchmark
+	public Instances nominalLookup() {
+		return nominalProcessor.createInstances(nominalAttributes, entities);
+	}
+
+	@Benchmark
+	public Instances stringAttribute() {
+		Instances l_instances = stringProcessor.createInstances(stringAttributes, entities);
+		stringProcessor.resetStringValues(l_instances);
+		return l_instances;
+	}
+
+	@Benchmark
+	public long exportStrings() throws IOException {
+		CountingOutputStream l_out = new CountingOutputStream();
+		stringHelper.save(l_out, BenchItem.class);
+		return l_out.getCount();
+	}
+}
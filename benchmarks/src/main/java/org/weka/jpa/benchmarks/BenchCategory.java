@@ -0,0 +1,44 @@
+package org.weka.jpa.benchmarks;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Entidade referenciada pelos campos ManyToOne das entidades dos benchmarks,
+ * exportada como atributo nominal pelo seu nome.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@Entity
+public class BenchCategory {
+
+	@Id
+	private Long id;
+
+	@Column
+	private String name;
+
+	public BenchCategory() {
+	}
+
+	public BenchCategory(long p_id, String p_name) {
+		id = p_id;
+		name = p_name;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,58 @@
+package org.weka.jpa.benchmarks;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Entidade estreita usada para medir isoladamente a conversão dos atributos
+ * nominais (campo ManyToOne) e dos atributos String, veja
+ * {@link AttributeKindBenchmark}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@Entity
+public class BenchItem {
+
+	@Id
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	private BenchCategory category;
+
+	@Column(length = 1024)
+	private String text;
+
+	@Column
+	private double value;
+
+	public BenchItem() {
+	}
+
+	public BenchItem(long p_id, BenchCategory p_category, String p_text, double p_value) {
+		id = p_id;
+		category = p_category;
+		text = p_text;
+		value = p_value;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public BenchCategory getCategory() {
+		return category;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public double getValue() {
+		return value;
+	}
+}
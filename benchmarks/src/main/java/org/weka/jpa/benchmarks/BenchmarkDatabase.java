@@ -0,0 +1,212 @@
+package org.weka.jpa.benchmarks;
+
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.weka.jpa.Weka2JPAHelper;
+
+/**
+ * Cria e popula os bancos H2 em memória usados pelos benchmarks, um banco
+ * novo para cada combinação de parâmetros, pela unidade de persistência
+ * <code>WekaBenchmark</code>.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public final class BenchmarkDatabase {
+
+	/**
+	 * Quantidade de campos de {@link WideEntity}.
+	 */
+	public static final int WIDE_FIELDS = 500;
+
+	/**
+	 * Quantidade de campos de {@link WideEntity} que não são os campos
+	 * númericos <code>vNNN</code>: a chave, a categoria e o texto.
+	 */
+	public static final int WIDE_FIXED_FIELDS = 3;
+
+	/**
+	 * Quantidade de entidades persistidas por transação.
+	 */
+	private static final int INSERT_BATCH_SIZE = 1000;
+
+	private static final Logger log = LoggerFactory.getLogger(BenchmarkDatabase.class);
+
+	private static final AtomicInteger databases = new AtomicInteger();
+
+	private static final Field[] wideValueFields = findWideValueFields();
+
+	/**
+	 * Destino das gravações medidas, descarta os bytes gravados e apenas os
+	 * conta.
+	 */
+	public static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int p_byte) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] p_bytes, int p_offset, int p_length) {
+			count += p_length;
+		}
+
+		public long getCount() {
+			return count;
+		}
+	}
+
+	private BenchmarkDatabase() {
+	}
+
+	/**
+	 * Cria a fábrica de um banco em memória novo, com as tabelas vazias.
+	 * 
+	 * @return
+	 */
+	public static EntityManagerFactory create() {
+		Map<String, String> l_properties = new HashMap<>();
+		l_properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:weka" + databases.incrementAndGet()
+				+ ";DB_CLOSE_DELAY=-1");
+		return Persistence.createEntityManagerFactory("WekaBenchmark", l_properties);
+	}
+
+	/**
+	 * Cria o helper usado pelos benchmarks, com as categorias exportadas pelo
+	 * nome.
+	 * 
+	 * @param p_em
+	 * @return
+	 */
+	public static <E> Weka2JPAHelper<E> createHelper(EntityManager p_em) {
+		Weka2JPAHelper<E> l_helper = new Weka2JPAHelper<>(log, p_em);
+		l_helper.setManyToOneDisplayField("category", "name");
+		return l_helper;
+	}
+
+	/**
+	 * Persiste as categorias <code>c1</code> a <code>cN</code>.
+	 * 
+	 * @param p_em
+	 * @param p_count
+	 * @return as categorias, já desanexadas do contexto de persistência
+	 */
+	public static List<BenchCategory> persistCategories(EntityManager p_em, int p_count) {
+		List<BenchCategory> l_categories = new ArrayList<>(p_count);
+		persist(p_em, p_count, i -> {
+			BenchCategory l_category = new BenchCategory(i, "c" + i);
+			l_categories.add(l_category);
+			return l_category;
+		});
+		return l_categories;
+	}
+
+	/**
+	 * Persiste as entidades <code>1</code> a <code>N</code> criadas pela
+	 * função informada, em transações de {@link #INSERT_BATCH_SIZE}
+	 * entidades, deixando o contexto de persistência vazio.
+	 * 
+	 * @param p_em
+	 * @param p_count
+	 * @param p_factory
+	 *            cria a entidade da chave informada
+	 */
+	public static void persist(EntityManager p_em, int p_count, LongFunction<?> p_factory) {
+		for (int l_from = 1; l_from <= p_count; l_from += INSERT_BATCH_SIZE) {
+			p_em.getTransaction().begin();
+			for (long i = l_from; i <= Math.min(p_count, l_from + INSERT_BATCH_SIZE - 1); i++) {
+				p_em.persist(p_factory.apply(i));
+			}
+			p_em.getTransaction().commit();
+			p_em.clear();
+		}
+	}
+
+	/**
+	 * Cria uma entidade larga com os campos númericos preenchidos a partir da
+	 * chave.
+	 * 
+	 * @param p_id
+	 * @param p_category
+	 * @return
+	 */
+	public static WideEntity newWideEntity(long p_id, BenchCategory p_category) {
+		WideEntity l_entity = new WideEntity(p_id, p_category, "t" + p_id);
+		try {
+			for (int i = 0; i < wideValueFields.length; i++) {
+				wideValueFields[i].setDouble(l_entity, (p_id * 31 + i) % 1000 / 8d);
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+		return l_entity;
+	}
+
+	/**
+	 * Cria o texto de tamanho fixo da chave informada, diferente para cada
+	 * chave.
+	 * 
+	 * @param p_id
+	 * @param p_length
+	 * @return
+	 */
+	public static String newText(long p_id, int p_length) {
+		String l_seed = Long.toString(p_id, 36) + "-";
+		StringBuilder l_text = new StringBuilder(p_length);
+		while (l_text.length() < p_length) {
+			l_text.append(l_seed);
+		}
+		l_text.setLength(p_length);
+		return l_text.toString();
+	}
+
+	/**
+	 * Campos de {@link WideEntity} a ignorar para que sejam exportados apenas
+	 * os primeiros campos, até a largura informada.
+	 * 
+	 * @param p_width
+	 *            quantidade de campos exportados, entre
+	 *            {@link #WIDE_FIXED_FIELDS} e {@link #WIDE_FIELDS}
+	 * @return
+	 */
+	public static List<String> ignoredWideFields(int p_width) {
+		if (p_width < WIDE_FIXED_FIELDS || p_width > WIDE_FIELDS)
+			throw new IllegalArgumentException("width: " + p_width);
+
+		List<String> l_ignored = new ArrayList<>();
+		for (int i = p_width - WIDE_FIXED_FIELDS; i < wideValueFields.length; i++) {
+			l_ignored.add(wideValueFields[i].getName());
+		}
+		return l_ignored;
+	}
+
+	private static Field[] findWideValueFields() {
+		Field[] l_fields = new Field[WIDE_FIELDS - WIDE_FIXED_FIELDS];
+		try {
+			for (int i = 0; i < l_fields.length; i++) {
+				l_fields[i] = WideEntity.class.getDeclaredField(String.format("v%03d", i + 1));
+				l_fields[i].setAccessible(true);
+			}
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException(e);
+		}
+		return l_fields;
+	}
+}
@@ -0,0 +1,134 @@
+package org.weka.jpa.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weka.jpa.Weka2JPAAttributeProcessor;
+import org.weka.jpa.Weka2JPAHelper;
+import org.weka.jpa.Weka2JPAMappingPlan;
+import org.weka.jpa.benchmarks.BenchmarkDatabase.CountingOutputStream;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.converters.ArffSaver;
+
+/**
+ * Mede as etapas da exportação de entidades largas, variando a quantidade de
+ * campos exportados e de entidades:
+ * 
+ * <ul>
+ * <li>{@link #createAttributes()}: criação do cabeçalho, inclusive a consulta
+ * do dicionário do campo ManyToOne;</li>
+ * <li>{@link #createInstances()}: conversão das entidades já carregadas;</li>
+ * <li>{@link #saveArff()}: gravação das instancias já convertidas pelo
+ * {@link ArffSaver};</li>
+ * <li>{@link #exportFromDatabase()}: exportação completa, da consulta ao
+ * banco à gravação incremental.</li>
+ * </ul>
+ * 
+ * Os resultados são operações por segundo, cada operação processa todas as
+ * entidades. Execute com <code>-prof gc</code> para obter a taxa de alocação.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+	private static final int CATEGORIES = 50;
+
+	/**
+	 * Quantidade de campos exportados.
+	 */
+	@Param({ "10", "50", "100", "500" })
+	public int width;
+
+	@Param({ "1000", "10000" })
+	public int rows;
+
+	private EntityManagerFactory emf;
+	private EntityManager em;
+	private Weka2JPAHelper<WideEntity> helper;
+	private Weka2JPAMappingPlan<WideEntity> plan;
+	private List<WideEntity> entities;
+	private Weka2JPAAttributeProcessor<WideEntity> processor;
+	private ArrayList<Attribute> attributes;
+	private Instances instances;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		emf = BenchmarkDatabase.create();
+		em = emf.createEntityManager();
+
+		List<BenchCategory> l_categories = BenchmarkDatabase.persistCategories(em, CATEGORIES);
+		BenchmarkDatabase.persist(em, rows,
+				i -> BenchmarkDatabase.newWideEntity(i, l_categories.get((int) (i % CATEGORIES))));
+
+		helper = BenchmarkDatabase.createHelper(em);
+		helper.ignoreFieldsName(BenchmarkDatabase.ignoredWideFields(width));
+		plan = helper.getMappingPlan(WideEntity.class);
+
+		entities = em.createQuery("SELECT E FROM WideEntity E JOIN FETCH E.category ORDER BY E.id",
+				WideEntity.class).getResultList();
+		processor = new Weka2JPAAttributeProcessor<>(plan, helper);
+		attributes = processor.createAttributes();
+		instances = processor.createInstances(attributes, entities);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		emf.close();
+	}
+
+	@Benchmark
+	public ArrayList<Attribute> createAttributes() {
+		return new Weka2JPAAttributeProcessor<>(plan, helper).createAttributes();
+	}
+
+	@Benchmark
+	public Instances createInstances() {
+		return processor.createInstances(attributes, entities);
+	}
+
+	@Benchmark
+	public long saveArff() throws IOException {
+		CountingOutputStream l_out = new CountingOutputStream();
+		ArffSaver l_saver = new ArffSaver();
+		l_saver.setInstances(instances);
+		l_saver.setDestination(l_out);
+		l_saver.writeBatch();
+		return l_out.getCount();
+	}
+
+	@Benchmark
+	public long exportFromDatabase() throws IOException {
+		CountingOutputStream l_out = new CountingOutputStream();
+		helper.save(l_out, WideEntity.class);
+		return l_out.getCount();
+	}
+}
@@ -0,0 +1,128 @@
+package org.weka.jpa.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.weka.jpa.Weka2JPAEntityMetadata;
+import org.weka.jpa.Weka2JPAFieldMetadata;
+
+/**
+ * Compara a leitura dos campos númericos das entidades por reflexão,
+ * {@link Field#get(Object)} após {@link Field#setAccessible(boolean)}, como
+ * no processamento de cada linha, com a leitura por um {@link MethodHandle}
+ * criado para cada campo.
+ * 
+ * Assim como no processamento das linhas, um único ponto de chamada lê
+ * centenas de campos diferentes, o que impede o JIT de tratar cada handle
+ * como constante.
+ * 
+ * Cada operação lê os campos <code>v001</code> a <code>v497</code> de todas
+ * as entidades, sem banco de dados. Execute com <code>-prof gc</code> para
+ * comparar a alocação dos valores lidos como objeto e como double.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+	private static final int ROWS = 1000;
+
+	private WideEntity[] entities;
+	private Field[] fields;
+	private MethodHandle[] getters;
+	private MethodHandle[] doubleGetters;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IllegalAccessException {
+		entities = new WideEntity[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			entities[i] = BenchmarkDatabase.newWideEntity(i, null);
+		}
+
+		List<Weka2JPAFieldMetadata> l_fields = Weka2JPAEntityMetadata.of(WideEntity.class).getFields();
+		List<Weka2JPAFieldMetadata> l_values = l_fields.subList(l_fields.size() - fieldsCount(), l_fields.size());
+		fields = new Field[l_values.size()];
+		getters = new MethodHandle[l_values.size()];
+		doubleGetters = new MethodHandle[l_values.size()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = l_values.get(i).getField();
+			fields[i].setAccessible(true);
+			MethodHandle l_getter = MethodHandles.lookup().unreflectGetter(fields[i]);
+			getters[i] = l_getter.asType(MethodType.methodType(Object.class, Object.class));
+			doubleGetters[i] = l_getter.asType(MethodType.methodType(double.class, Object.class));
+		}
+	}
+
+	private static int fieldsCount() {
+		return BenchmarkDatabase.WIDE_FIELDS - BenchmarkDatabase.WIDE_FIXED_FIELDS;
+	}
+
+	/**
+	 * {@link Field#get(Object)} e {@link Number#doubleValue()}.
+	 */
+	@Benchmark
+	public double reflection() throws IllegalAccessException {
+		double l_sum = 0;
+		for (WideEntity l_entity : entities) {
+			for (Field l_field : fields) {
+				l_sum += ((Number) l_field.get(l_entity)).doubleValue();
+			}
+		}
+		return l_sum;
+	}
+
+	@Benchmark
+	public double reflectionAsDouble() throws IllegalAccessException {
+		double l_sum = 0;
+		for (WideEntity l_entity : entities) {
+			for (Field l_field : fields) {
+				l_sum += l_field.getDouble(l_entity);
+			}
+		}
+		return l_sum;
+	}
+
+	@Benchmark
+	public double methodHandle() throws Throwable {
+		double l_sum = 0;
+		for (WideEntity l_entity : entities) {
+			for (MethodHandle l_getter : getters) {
+				l_sum += ((Number) (Object) l_getter.invokeExact((Object) l_entity)).doubleValue();
+			}
+		}
+		return l_sum;
+	}
+
+	@Benchmark
+	public double methodHandleAsDouble() throws Throwable {
+		double l_sum = 0;
+		for (WideEntity l_entity : entities) {
+			for (MethodHandle l_getter : doubleGetters) {
+				l_sum += (double) l_getter.invokeExact((Object) l_entity);
+			}
+		}
+		return l_sum;
+	}
+}
@@ -0,0 +1,1540 @@
+package org.weka.jpa.benchmarks;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Entidade sintética larga, com 500 campos: a chave, uma referência
+ * ManyToOne, um texto e os campos númericos <code>v001</code> a
+ * <code>v497</code>.
+ * 
+ * Os benchmarks variam a largura exportada ignorando os últimos campos
+ * númericos, veja {@link BenchmarkDatabase#ignoredWideFields(int)}, e
+ * preenchem os campos númericos por reflexão, veja
+ * {@link BenchmarkDatabase#newWideEntity(long, BenchCategory)}. As constantes
+ * ficam em {@link BenchmarkDatabase}, assim a entidade declara apenas os
+ * campos mapeados.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@Entity
+public class WideEntity {
+
+	@Id
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	private BenchCategory category;
+
+	@Column
+	private String text;
+
+	@Column
+	private double v001;
+
+	@Column
+	private double v002;
+
+	@Column
+	private double v003;
+
+	@Column
+	private double v004;
+
+	@Column
+	private double v005;
+
+	@Column
+	private double v006;
+
+	@Column
+	private double v007;
+
+	@Column
+	private double v008;
+
+	@Column
+	private double v009;
+
+	@Column
+	private double v010;
+
+	@Column
+	private double v011;
+
+	@Column
+	private double v012;
+
+	@Column
+	private double v013;
+
+	@Column
+	private double v014;
+
+	@Column
+	private double v015;
+
+	@Column
+	private double v016;
+
+	@Column
+	private double v017;
+
+	@Column
+	private double v018;
+
+	@Column
+	private double v019;
+
+	@Column
+	private double v020;
+
+	@Column
+	private double v021;
+
+	@Column
+	private double v022;
+
+	@Column
+	private double v023;
+
+	@Column
+	private double v024;
+
+	@Column
+	private double v025;
+
+	@Column
+	private double v026;
+
+	@Column
+	private double v027;
+
+	@Column
+	private double v028;
+
+	@Column
+	private double v029;
+
+	@Column
+	private double v030;
+
+	@Column
+	private double v031;
+
+	@Column
+	private double v032;
+
+	@Column
+	private double v033;
+
+	@Column
+	private double v034;
+
+	@Column
+	private double v035;
+
+	@Column
+	private double v036;
+
+	@Column
+	private double v037;
+
+	@Column
+	private double v038;
+
+	@Column
+	private double v039;
+
+	@Column
+	private double v040;
+
+	@Column
+	private double v041;
+
+	@Column
+	private double v042;
+
+	@Column
+	private double v043;
+
+	@Column
+	private double v044;
+
+	@Column
+	private double v045;
+
+	@Column
+	private double v046;
+
+	@Column
+	private double v047;
+
+	@Column
+	private double v048;
+
+	@Column
+	private double v049;
+
+	@Column
+	private double v050;
+
+	@Column
+	private double v051;
+
+	@Column
+	private double v052;
+
+	@Column
+	private double v053;
+
+	@Column
+	private double v054;
+
+	@Column
+	private double v055;
+
+	@Column
+	private double v056;
+
+	@Column
+	private double v057;
+
+	@Column
+	private double v058;
+
+	@Column
+	private double v059;
+
+	@Column
+	private double v060;
+
+	@Column
+	private double v061;
+
+	@Column
+	private double v062;
+
+	@Column
+	private double v063;
+
+	@Column
+	private double v064;
+
+	@Column
+	private double v065;
+
+	@Column
+	private double v066;
+
+	@Column
+	private double v067;
+
+	@Column
+	private double v068;
+
+	@Column
+	private double v069;
+
+	@Column
+	private double v070;
+
+	@Column
+	private double v071;
+
+	@Column
+	private double v072;
+
+	@Column
+	private double v073;
+
+	@Column
+	private double v074;
+
+	@Column
+	private double v075;
+
+	@Column
+	private double v076;
+
+	@Column
+	private double v077;
+
+	@Column
+	private double v078;
+
+	@Column
+	private double v079;
+
+	@Column
+	private double v080;
+
+	@Column
+	private double v081;
+
+	@Column
+	private double v082;
+
+	@Column
+	private double v083;
+
+	@Column
+	private double v084;
+
+	@Column
+	private double v085;
+
+	@Column
+	private double v086;
+
+	@Column
+	private double v087;
+
+	@Column
+	private double v088;
+
+	@Column
+	private double v089;
+
+	@Column
+	private double v090;
+
+	@Column
+	private double v091;
+
+	@Column
+	private double v092;
+
+	@Column
+	private double v093;
+
+	@Column
+	private double v094;
+
+	@Column
+	private double v095;
+
+	@Column
+	private double v096;
+
+	@Column
+	private double v097;
+
+	@Column
+	private double v098;
+
+	@Column
+	private double v099;
+
+	@Column
+	private double v100;
+
+	@Column
+	private double v101;
+
+	@Column
+	private double v102;
+
+	@Column
+	private double v103;
+
+	@Column
+	private double v104;
+
+	@Column
+	private double v105;
+
+	@Column
+	private double v106;
+
+	@Column
+	private double v107;
+
+	@Column
+	private double v108;
+
+	@Column
+	private double v109;
+
+	@Column
+	private double v110;
+
+	@Column
+	private double v111;
+
+	@Column
+	private double v112;
+
+	@Column
+	private double v113;
+
+	@Column
+	private double v114;
+
+	@Column
+	private double v115;
+
+	@Column
+	private double v116;
+
+	@Column
+	private double v117;
+
+	@Column
+	private double v118;
+
+	@Column
+	private double v119;
+
+	@Column
+	private double v120;
+
+	@Column
+	private double v121;
+
+	@Column
+	private double v122;
+
+	@Column
+	private double v123;
+
+	@Column
+	private double v124;
+
+	@Column
+	private double v125;
+
+	@Column
+	private double v126;
+
+	@Column
+	private double v127;
+
+	@Column
+	private double v128;
+
+	@Column
+	private double v129;
+
+	@Column
+	private double v130;
+
+	@Column
+	private double v131;
+
+	@Column
+	private double v132;
+
+	@Column
+	private double v133;
+
+	@Column
+	private double v134;
+
+	@Column
+	private double v135;
+
+	@Column
+	private double v136;
+
+	@Column
+	private double v137;
+
+	@Column
+	private double v138;
+
+	@Column
+	private double v139;
+
+	@Column
+	private double v140;
+
+	@Column
+	private double v141;
+
+	@Column
+	private double v142;
+
+	@Column
+	private double v143;
+
+	@Column
+	private double v144;
+
+	@Column
+	private double v145;
+
+	@Column
+	private double v146;
+
+	@Column
+	private double v147;
+
+	@Column
+	private double v148;
+
+	@Column
+	private double v149;
+
+	@Column
+	private double v150;
+
+	@Column
+	private double v151;
+
+	@Column
+	private double v152;
+
+	@Column
+	private double v153;
+
+	@Column
+	private double v154;
+
+	@Column
+	private double v155;
+
+	@Column
+	private double v156;
+
+	@Column
+	private double v157;
+
+	@Column
+	private double v158;
+
+	@Column
+	private double v159;
+
+	@Column
+	private double v160;
+
+	@Column
+	private double v161;
+
+	@Column
+	private double v162;
+
+	@Column
+	private double v163;
+
+	@Column
+	private double v164;
+
+	@Column
+	private double v165;
+
+	@Column
+	private double v166;
+
+	@Column
+	private double v167;
+
+	@Column
+	private double v168;
+
+	@Column
+	private double v169;
+
+	@Column
+	private double v170;
+
+	@Column
+	private double v171;
+
+	@Column
+	private double v172;
+
+	@Column
+	private double v173;
+
+	@Column
+	private double v174;
+
+	@Column
+	private double v175;
+
+	@Column
+	private double v176;
+
+	@Column
+	private double v177;
+
+	@Column
+	private double v178;
+
+	@Column
+	private double v179;
+
+	@Column
+	private double v180;
+
+	@Column
+	private double v181;
+
+	@Column
+	private double v182;
+
+	@Column
+	private double v183;
+
+	@Column
+	private double v184;
+
+	@Column
+	private double v185;
+
+	@Column
+	private double v186;
+
+	@Column
+	private double v187;
+
+	@Column
+	private double v188;
+
+	@Column
+	private double v189;
+
+	@Column
+	private double v190;
+
+	@Column
+	private double v191;
+
+	@Column
+	private double v192;
+
+	@Column
+	private double v193;
+
+	@Column
+	private double v194;
+
+	@Column
+	private double v195;
+
+	@Column
+	private double v196;
+
+	@Column
+	private double v197;
+
+	@Column
+	private double v198;
+
+	@Column
+	private double v199;
+
+	@Column
+	private double v200;
+
+	@Column
+	private double v201;
+
+	@Column
+	private double v202;
+
+	@Column
+	private double v203;
+
+	@Column
+	private double v204;
+
+	@Column
+	private double v205;
+
+	@Column
+	private double v206;
+
+	@Column
+	private double v207;
+
+	@Column
+	private double v208;
+
+	@Column
+	private double v209;
+
+	@Column
+	private double v210;
+
+	@Column
+	private double v211;
+
+	@Column
+	private double v212;
+
+	@Column
+	private double v213;
+
+	@Column
+	private double v214;
+
+	@Column
+	private double v215;
+
+	@Column
+	private double v216;
+
+	@Column
+	private double v217;
+
+	@Column
+	private double v218;
+
+	@Column
+	private double v219;
+
+	@Column
+	private double v220;
+
+	@Column
+	private double v221;
+
+	@Column
+	private double v222;
+
+	@Column
+	private double v223;
+
+	@Column
+	private double v224;
+
+	@Column
+	private double v225;
+
+	@Column
+	private double v226;
+
+	@Column
+	private double v227;
+
+	@Column
+	private double v228;
+
+	@Column
+	private double v229;
+
+	@Column
+	private double v230;
+
+	@Column
+	private double v231;
+
+	@Column
+	private double v232;
+
+	@Column
+	private double v233;
+
+	@Column
+	private double v234;
+
+	@Column
+	private double v235;
+
+	@Column
+	private double v236;
+
+	@Column
+	private double v237;
+
+	@Column
+	private double v238;
+
+	@Column
+	private double v239;
+
+	@Column
+	private double v240;
+
+	@Column
+	private double v241;
+
+	@Column
+	private double v242;
+
+	@Column
+	private double v243;
+
+	@Column
+	private double v244;
+
+	@Column
+	private double v245;
+
+	@Column
+	private double v246;
+
+	@Column
+	private double v247;
+
+	@Column
+	private double v248;
+
+	@Column
+	private double v249;
+
+	@Column
+	private double v250;
+
+	@Column
+	private double v251;
+
+	@Column
+	private double v252;
+
+	@Column
+	private double v253;
+
+	@Column
+	private double v254;
+
+	@Column
+	private double v255;
+
+	@Column
+	private double v256;
+
+	@Column
+	private double v257;
+
+	@Column
+	private double v258;
+
+	@Column
+	private double v259;
+
+	@Column
+	private double v260;
+
+	@Column
+	private double v261;
+
+	@Column
+	private double v262;
+
+	@Column
+	private double v263;
+
+	@Column
+	private double v264;
+
+	@Column
+	private double v265;
+
+	@Column
+	private double v266;
+
+	@Column
+	private double v267;
+
+	@Column
+	private double v268;
+
+	@Column
+	private double v269;
+
+	@Column
+	private double v270;
+
+	@Column
+	private double v271;
+
+	@Column
+	private double v272;
+
+	@Column
+	private double v273;
+
+	@Column
+	private double v274;
+
+	@Column
+	private double v275;
+
+	@Column
+	private double v276;
+
+	@Column
+	private double v277;
+
+	@Column
+	private double v278;
+
+	@Column
+	private double v279;
+
+	@Column
+	private double v280;
+
+	@Column
+	private double v281;
+
+	@Column
+	private double v282;
+
+	@Column
+	private double v283;
+
+	@Column
+	private double v284;
+
+	@Column
+	private double v285;
+
+	@Column
+	private double v286;
+
+	@Column
+	private double v287;
+
+	@Column
+	private double v288;
+
+	@Column
+	private double v289;
+
+	@Column
+	private double v290;
+
+	@Column
+	private double v291;
+
+	@Column
+	private double v292;
+
+	@Column
+	private double v293;
+
+	@Column
+	private double v294;
+
+	@Column
+	private double v295;
+
+	@Column
+	private double v296;
+
+	@Column
+	private double v297;
+
+	@Column
+	private double v298;
+
+	@Column
+	private double v299;
+
+	@Column
+	private double v300;
+
+	@Column
+	private double v301;
+
+	@Column
+	private double v302;
+
+	@Column
+	private double v303;
+
+	@Column
+	private double v304;
+
+	@Column
+	private double v305;
+
+	@Column
+	private double v306;
+
+	@Column
+	private double v307;
+
+	@Column
+	private double v308;
+
+	@Column
+	private double v309;
+
+	@Column
+	private double v310;
+
+	@Column
+	private double v311;
+
+	@Column
+	private double v312;
+
+	@Column
+	private double v313;
+
+	@Column
+	private double v314;
+
+	@Column
+	private double v315;
+
+	@Column
+	private double v316;
+
+	@Column
+	private double v317;
+
+	@Column
+	private double v318;
+
+	@Column
+	private double v319;
+
+	@Column
+	private double v320;
+
+	@Column
+	private double v321;
+
+	@Column
+	private double v322;
+
+	@Column
+	private double v323;
+
+	@Column
+	private double v324;
+
+	@Column
+	private double v325;
+
+	@Column
+	private double v326;
+
+	@Column
+	private double v327;
+
+	@Column
+	private double v328;
+
+	@Column
+	private double v329;
+
+	@Column
+	private double v330;
+
+	@Column
+	private double v331;
+
+	@Column
+	private double v332;
+
+	@Column
+	private double v333;
+
+	@Column
+	private double v334;
+
+	@Column
+	private double v335;
+
+	@Column
+	private double v336;
+
+	@Column
+	private double v337;
+
+	@Column
+	private double v338;
+
+	@Column
+	private double v339;
+
+	@Column
+	private double v340;
+
+	@Column
+	private double v341;
+
+	@Column
+	private double v342;
+
+	@Column
+	private double v343;
+
+	@Column
+	private double v344;
+
+	@Column
+	private double v345;
+
+	@Column
+	private double v346;
+
+	@Column
+	private double v347;
+
+	@Column
+	private double v348;
+
+	@Column
+	private double v349;
+
+	@Column
+	private double v350;
+
+	@Column
+	private double v351;
+
+	@Column
+	private double v352;
+
+	@Column
+	private double v353;
+
+	@Column
+	private double v354;
+
+	@Column
+	private double v355;
+
+	@Column
+	private double v356;
+
+	@Column
+	private double v357;
+
+	@Column
+	private double v358;
+
+	@Column
+	private double v359;
+
+	@Column
+	private double v360;
+
+	@Column
+	private double v361;
+
+	@Column
+	private double v362;
+
+	@Column
+	private double v363;
+
+	@Column
+	private double v364;
+
+	@Column
+	private double v365;
+
+	@Column
+	private double v366;
+
+	@Column
+	private double v367;
+
+	@Column
+	private double v368;
+
+	@Column
+	private double v369;
+
+	@Column
+	private double v370;
+
+	@Column
+	private double v371;
+
+	@Column
+	private double v372;
+
+	@Column
+	private double v373;
+
+	@Column
+	private double v374;
+
+	@Column
+	private double v375;
+
+	@Column
+	private double v376;
+
+	@Column
+	private double v377;
+
+	@Column
+	private double v378;
+
+	@Column
+	private double v379;
+
+	@Column
+	private double v380;
+
+	@Column
+	private double v381;
+
+	@Column
+	private double v382;
+
+	@Column
+	private double v383;
+
+	@Column
+	private double v384;
+
+	@Column
+	private double v385;
+
+	@Column
+	private double v386;
+
+	@Column
+	private double v387;
+
+	@Column
+	private double v388;
+
+	@Column
+	private double v389;
+
+	@Column
+	private double v390;
+
+	@Column
+	private double v391;
+
+	@Column
+	private double v392;
+
+	@Column
+	private double v393;
+
+	@Column
+	private double v394;
+
+	@Column
+	private double v395;
+
+	@Column
+	private double v396;
+
+	@Column
+	private double v397;
+
+	@Column
+	private double v398;
+
+	@Column
+	private double v399;
+
+	@Column
+	private double v400;
+
+	@Column
+	private double v401;
+
+	@Column
+	private double v402;
+
+	@Column
+	private double v403;
+
+	@Column
+	private double v404;
+
+	@Column
+	private double v405;
+
+	@Column
+	private double v406;
+
+	@Column
+	private double v407;
+
+	@Column
+	private double v408;
+
+	@Column
+	private double v409;
+
+	@Column
+	private double v410;
+
+	@Column
+	private double v411;
+
+	@Column
+	private double v412;
+
+	@Column
+	private double v413;
+
+	@Column
+	private double v414;
+
+	@Column
+	private double v415;
+
+	@Column
+	private double v416;
+
+	@Column
+	private double v417;
+
+	@Column
+	private double v418;
+
+	@Column
+	private double v419;
+
+	@Column
+	private double v420;
+
+	@Column
+	private double v421;
+
+	@Column
+	private double v422;
+
+	@Column
+	private double v423;
+
+	@Column
+	private double v424;
+
+	@Column
+	private double v425;
+
+	@Column
+	private double v426;
+
+	@Column
+	private double v427;
+
+	@Column
+	private double v428;
+
+	@Column
+	private double v429;
+
+	@Column
+	private double v430;
+
+	@Column
+	private double v431;
+
+	@Column
+	private double v432;
+
+	@Column
+	private double v433;
+
+	@Column
+	private double v434;
+
+	@Column
+	private double v435;
+
+	@Column
+	private double v436;
+
+	@Column
+	private double v437;
+
+	@Column
+	private double v438;
+
+	@Column
+	private double v439;
+
+	@Column
+	private double v440;
+
+	@Column
+	private double v441;
+
+	@Column
+	private double v442;
+
+	@Column
+	private double v443;
+
+	@Column
+	private double v444;
+
+	@Column
+	private double v445;
+
+	@Column
+	private double v446;
+
+	@Column
+	private double v447;
+
+	@Column
+	private double v448;
+
+	@Column
+	private double v449;
+
+	@Column
+	private double v450;
+
+	@Column
+	private double v451;
+
+	@Column
+	private double v452;
+
+	@Column
+	private double v453;
+
+	@Column
+	private double v454;
+
+	@Column
+	private double v455;
+
+	@Column
+	private double v456;
+
+	@Column
+	private double v457;
+
+	@Column
+	private double v458;
+
+	@Column
+	private double v459;
+
+	@Column
+	private double v460;
+
+	@Column
+	private double v461;
+
+	@Column
+	private double v462;
+
+	@Column
+	private double v463;
+
+	@Column
+	private double v464;
+
+	@Column
+	private double v465;
+
+	@Column
+	private double v466;
+
+	@Column
+	private double v467;
+
+	@Column
+	private double v468;
+
+	@Column
+	private double v469;
+
+	@Column
+	private double v470;
+
+	@Column
+	private double v471;
+
+	@Column
+	private double v472;
+
+	@Column
+	private double v473;
+
+	@Column
+	private double v474;
+
+	@Column
+	private double v475;
+
+	@Column
+	private double v476;
+
+	@Column
+	private double v477;
+
+	@Column
+	private double v478;
+
+	@Column
+	private double v479;
+
+	@Column
+	private double v480;
+
+	@Column
+	private double v481;
+
+	@Column
+	private double v482;
+
+	@Column
+	private double v483;
+
+	@Column
+	private double v484;
+
+	@Column
+	private double v485;
+
+	@Column
+	private double v486;
+
+	@Column
+	private double v487;
+
+	@Column
+	private double v488;
+
+	@Column
+	private double v489;
+
+	@Column
+	private double v490;
+
+	@Column
+	private double v491;
+
+	@Column
+	private double v492;
+
+	@Column
+	private double v493;
+
+	@Column
+	private double v494;
+
+	@Column
+	private double v495;
+
+	@Column
+	private double v496;
+
+	@Column
+	private double v497;
+
+	public WideEntity() {
+	}
+
+	public WideEntity(long p_id, BenchCategory p_category, String p_text) {
+		id = p_id;
+		category = p_category;
+		text = p_text;
+	}
+
+	public Long getId() {
+		return id;
+	}
+}
@@ -0,0 +1,29 @@
+package org.weka.jpa;
+
+/**
+ * Falha na conversão de um valor em uma exportação com
+ * {@link Weka2JPAErrorPolicy#FAIL_FAST}, a causa é a exceção lançada pelo
+ * acesso ao campo ou pelo seu callback.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class ConversionWEKAJPARuntimeException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final String attributeName;
+
+	public ConversionWEKAJPARuntimeException(String p_relationName, String p_attributeName, Throwable p_cause) {
+		super("Falha na conversão do atributo " + p_attributeName + " de " + p_relationName, p_cause);
+		attributeName = p_attributeName;
+	}
+
+	public String getAttributeName() {
+		return attributeName;
+	}
+}
@@ -1,5 +1,10 @@
 package org.weka.jpa;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Any;
 import javax.enterprise.inject.Default;
 import javax.enterprise.inject.Disposes;
@@ -14,11 +19,19 @@ import org.cdi.utils.ConfigurationInjectionManager;
 import org.cdi.utils.InjectedConfiguration;
 
 /**
+ * Produz os {@link EntityManager} usados pela biblioteca.
+ * 
+ * Mantém uma única {@link javax.persistence.EntityManagerFactory} por unidade
+ * de persistência, criada no primeiro uso e compartilhada por toda a
+ * aplicação, pois sua criação inicializa todo o provedor JPA (metamodelo,
+ * conexões, etc.). As fábricas são fechadas quando o contexto da aplicação é
+ * encerrado.
  * 
  * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
  *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
- *
+ * 
  */
+@ApplicationScoped
 public class EntityManagerFactory {
 
 	public static final String WEKA_PERSISTENCE = "WekaPersistence";
@@ -34,6 +47,11 @@ public class EntityManagerFactory {
 	@Inject
 	private ConfigurationInjectionManager cim;
 
+	/**
+	 * Fábricas já criadas para cada unidade de persistência.
+	 */
+	private Map<String, javax.persistence.EntityManagerFactory> factories = new ConcurrentHashMap<>();
+
 	/**
 	 * Cria uma {@link EntityManager} com base na configuração injetada, esta
 	 * configuração deve ter a chave WEKA.PERSISTENCE.UNIT configurada para a
@@ -45,7 +63,7 @@ public class EntityManagerFactory {
 	@InjectedConfiguration
 	public EntityManager createEntityManager(InjectionPoint p_ip) {
 		String l_value = cim.injectConfiguration(p_ip);
-		return Persistence.createEntityManagerFactory(l_value).createEntityManager();
+		return getFactory(l_value).createEntityManager();
 	}
 
 	/**
@@ -61,7 +79,31 @@ public class EntityManagerFactory {
 	@Named(WEKA_PERSISTENCE)
 	public EntityManager createEntityManager() {
 		// String l_value = cim.injectConfiguration(p_ip);
-		return Persistence.createEntityManagerFactory(unitName).createEntityManager();
+		return getFactory(unitName).createEntityManager();
+	}
+
+	/**
+	 * Obtem a fábrica da unidade de persistência informada, criando-a apenas
+	 * no primeiro uso.
+	 * 
+	 * @param p_unitName
+	 * @return
+	 */
+	public javax.persistence.EntityManagerFactory getFactory(String p_unitName) {
+		return factories.computeIfAbsent(p_unitName, Persistence::createEntityManagerFactory);
+	}
+
+	/**
+	 * Fecha todas as fábricas criadas, chamado quando o contexto da aplicação
+	 * é encerrado.
+	 */
+	@PreDestroy
+	public void closeFactories() {
+		for (javax.persistence.EntityManagerFactory l_factory : factories.values()) {
+			if (l_factory.isOpen())
+				l_factory.close();
+		}
+		factories.clear();
 	}
 
 	/**
@@ -0,0 +1,296 @@
+package org.weka.jpa;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import weka.core.Attribute;
+import weka.core.BinarySparseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+import weka.core.converters.ArffSaver;
+
+/**
+ * Grava arquivos ARFF diretamente em um {@link Writer}, {@link OutputStream}
+ * ou {@link WritableByteChannel}, sem passar pelo {@link ArffSaver}.
+ * 
+ * Os valores de cada instancia são formatados diretamente em um buffer de
+ * caracteres reaproveitado, sem criar uma String por instancia ou por valor:
+ * números são formatados como {@link Utils#doubleToString(double, int)} com 6
+ * casas decimais, os valores nominais são colocados entre aspas uma única vez
+ * no cabeçalho e os valores String apenas quando necessário, veja
+ * {@link Utils#quote(String)}. O resultado é idêntico ao gravado pelo
+ * {@link ArffSaver} em lote.
+ * 
+ * Streams e canais são gravados em UTF-8.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAArffWriter implements Weka2JPAInstanceSink, Flushable, Closeable {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Casas decimais dos valores numéricos, as mesmas usadas pelo Weka.
+	 */
+	private static final int DECIMAL_PLACES = 6;
+	private static final long DECIMAL_FACTOR = 1000000L;
+
+	private Writer out;
+	private char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+
+	private Instances header;
+	private int[] types;
+
+	/**
+	 * Valores dos atributos nominais já entre aspas quando necessário, por
+	 * índice do atributo.
+	 */
+	private String[][] quotedValues;
+
+	public Weka2JPAArffWriter(Writer p_out) {
+		out = p_out;
+	}
+
+	public Weka2JPAArffWriter(OutputStream p_out) {
+		this(new OutputStreamWriter(p_out, StandardCharsets.UTF_8));
+	}
+
+	public Weka2JPAArffWriter(WritableByteChannel p_channel) {
+		this(Channels.newWriter(p_channel, StandardCharsets.UTF_8.newEncoder(), -1));
+	}
+
+	/**
+	 * Grava o cabeçalho, relação e atributos, até a linha @data.
+	 * 
+	 * Deve ser chamado uma única vez, antes das instancias.
+	 * 
+	 * @param p_header
+	 * @throws IOException
+	 */
+	public void writeHeader(Instances p_header) throws IOException {
+		resume(p_header);
+		append(new Instances(p_header, 0).toString());
+	}
+
+	/**
+	 * Prepara a gravação das instancias sem gravar o cabeçalho, usado para
+	 * acrescentar instancias a um arquivo cujo cabeçalho, idêntico ao
+	 * informado, já foi gravado.
+	 * 
+	 * Deve ser chamado uma única vez, antes das instancias, no lugar de
+	 * {@link #writeHeader(Instances)}.
+	 * 
+	 * @param p_header
+	 */
+	public void resume(Instances p_header) {
+		header = p_header;
+		types = new int[p_header.numAttributes()];
+		quotedValues = new String[types.length][];
+
+		for (int i = 0; i < types.length; i++) {
+			Attribute l_att = p_header.attribute(i);
+			types[i] = l_att.type();
+			if (l_att.isNominal()) {
+				quotedValues[i] = new String[l_att.numValues()];
+				for (int v = 0; v < l_att.numValues(); v++) {
+					quotedValues[i][v] = Utils.quote(l_att.value(v));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Grava uma instancia na seção de dados, na sintaxe densa ou esparsa
+	 * conforme a classe da instancia.
+	 * 
+	 * Os valores dos atributos String são obtidos do conjunto de instancias ao
+	 * qual a instancia pertence.
+	 */
+	@Override
+	public void write(Instance p_instance) throws IOException {
+		Instances l_dataset = p_instance.dataset() == null ? header : p_instance.dataset();
+
+		if (p_instance instanceof BinarySparseInstance) {
+			append(p_instance.toString());
+		} else if (p_instance instanceof SparseInstance) {
+			append('{');
+			for (int j = 0; j < p_instance.numValues(); j++) {
+				if (j > 0)
+					append(',');
+				int l_index = p_instance.index(j);
+				appendLong(l_index);
+				append(' ');
+				appendValue(p_instance, l_dataset, l_index, p_instance.valueSparse(j));
+			}
+			append('}');
+		} else {
+			for (int i = 0; i < types.length; i++) {
+				if (i > 0)
+					append(',');
+				appendValue(p_instance, l_dataset, i, p_instance.value(i));
+			}
+		}
+
+		if (!(p_instance instanceof BinarySparseInstance) && p_instance.weight() != 1.0) {
+			append(",{");
+			appendDouble(p_instance.weight());
+			append('}');
+		}
+		append('\n');
+	}
+
+	private void appendValue(Instance p_instance, Instances p_dataset, int p_index, double p_value)
+			throws IOException {
+		if (Utils.isMissingValue(p_value)) {
+			append('?');
+			return;
+		}
+
+		switch (types[p_index]) {
+		case Attribute.NUMERIC:
+			appendDouble(p_value);
+			break;
+		case Attribute.NOMINAL:
+			append(quotedValues[p_index][(int) p_value]);
+			break;
+		case Attribute.STRING:
+			appendQuoted(p_dataset.attribute(p_index).value((int) p_value));
+			break;
+		default:
+			append(p_instance.toString(p_index));
+		}
+	}
+
+	/**
+	 * Formata o número como {@link Utils#doubleToString(double, int)} com
+	 * {@link #DECIMAL_PLACES} casas, sem criar objetos.
+	 */
+	private void appendDouble(double p_value) throws IOException {
+		double l_temp = p_value * DECIMAL_FACTOR;
+		if (!(Math.abs(l_temp) < Long.MAX_VALUE)) {
+			append(Double.toString(p_value));
+			return;
+		}
+
+		long l_precision = l_temp > 0 ? (long) (l_temp + 0.5) : -(long) (Math.abs(l_temp) + 0.5);
+		if (l_precision < 0)
+			append('-');
+		long l_abs = Math.abs(l_precision);
+		appendLong(l_abs / DECIMAL_FACTOR);
+
+		long l_fraction = l_abs % DECIMAL_FACTOR;
+		if (l_fraction == 0)
+			return;
+
+		int l_digits = DECIMAL_PLACES;
+		while (l_fraction % 10 == 0) {
+			l_fraction /= 10;
+			l_digits--;
+		}
+		append('.');
+		ensure(l_digits);
+		for (int i = position + l_digits - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + l_fraction % 10);
+			l_fraction /= 10;
+		}
+		position += l_digits;
+	}
+
+	private void appendLong(long p_value) throws IOException {
+		if (p_value == 0) {
+			append('0');
+			return;
+		}
+		int l_digits = 0;
+		for (long l_value = p_value; l_value != 0; l_value /= 10) {
+			l_digits++;
+		}
+		ensure(l_digits);
+		for (int i = position + l_digits - 1; i >= position; i--) {
+			buffer[i] = (char) ('0' + p_value % 10);
+			p_value /= 10;
+		}
+		position += l_digits;
+	}
+
+	/**
+	 * Grava o texto entre aspas apenas se contiver algum caractere especial,
+	 * conforme {@link Utils#quote(String)}.
+	 */
+	private void appendQuoted(String p_value) throws IOException {
+		if (p_value.isEmpty() || "?".equals(p_value)) {
+			append(Utils.quote(p_value));
+			return;
+		}
+		for (int i = 0; i < p_value.length(); i++) {
+			switch (p_value.charAt(i)) {
+			case '\n':
+			case '\r':
+			case '\'':
+			case '"':
+			case '\\':
+			case '\t':
+			case '%':
+			case '\u001E':
+			case '{':
+			case '}':
+			case ',':
+			case ' ':
+				append(Utils.quote(p_value));
+				return;
+			}
+		}
+		append(p_value);
+	}
+
+	private void append(char p_char) throws IOException {
+		ensure(1);
+		buffer[position++] = p_char;
+	}
+
+	private void append(String p_value) throws IOException {
+		int l_length = p_value.length();
+		if (l_length > buffer.length) {
+			flushBuffer();
+			out.write(p_value);
+			return;
+		}
+		ensure(l_length);
+		p_value.getChars(0, l_length, buffer, position);
+		position += l_length;
+	}
+
+	private void ensure(int p_length) throws IOException {
+		if (position + p_length > buffer.length)
+			flushBuffer();
+	}
+
+	private void flushBuffer() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushBuffer();
+		out.close();
+	}
+}
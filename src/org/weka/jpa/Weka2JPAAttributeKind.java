@@ -0,0 +1,35 @@
+package org.weka.jpa;
+
+/**
+ * Tipos de atributo ARFF gerados a partir dos campos da entidade base e dos
+ * campos extras.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPAAttributeKind {
+
+	/**
+	 * Atributo do tipo string, valores são acumulados no próprio atributo.
+	 */
+	STRING,
+
+	/**
+	 * Atributo númerico, campos de tipos primitivos númericos ou
+	 * {@link Number}.
+	 */
+	NUMERIC,
+
+	/**
+	 * Atributo nominal cujos valores são as entidades referenciadas por um
+	 * campo ManyToOne.
+	 */
+	NOMINAL_REFERENCE,
+
+	/**
+	 * Atributo nominal de um campo extra, com os valores declarados ao
+	 * registrá-lo.
+	 */
+	NOMINAL;
+}
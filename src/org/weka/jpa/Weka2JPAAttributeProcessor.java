@@ -2,127 +2,243 @@ package org.weka.jpa;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-
-import javax.persistence.Column;
-import javax.persistence.ManyToMany;
-import javax.persistence.ManyToOne;
-import javax.persistence.OneToMany;
-import javax.persistence.OneToOne;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.persistence.PersistenceUnitUtil;
 import javax.persistence.Query;
-import javax.persistence.Temporal;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.weka.jpa.utils.CallbackField;
+import org.weka.jpa.utils.CallbackFieldToDouble;
+import org.weka.jpa.utils.CallbackFieldToIndex;
 import org.weka.jpa.utils.CallbackFieldToNumber;
 import org.weka.jpa.utils.CallbackFieldToString;
 
 import weka.core.Attribute;
+import weka.core.BinarySparseInstance;
 import weka.core.DenseInstance;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
 
 public class Weka2JPAAttributeProcessor<E> {
 
+	/**
+	 * Converte o valor de uma linha para a posição (slot) de um atributo.
+	 * 
+	 * Um conversor é criado para cada atributo quando o cabeçalho é
+	 * construído, e o processamento de cada linha apenas percorre o vetor de
+	 * conversores, sem consultas a mapas ou busca pela posição do atributo.
+	 * 
+	 * A linha é a entidade base ou, no modo projeção, o vetor de colunas
+	 * retornado pela consulta, veja {@link #setProjection(boolean)}.
+	 */
+	@FunctionalInterface
+	private interface SlotConverter {
+
+		/**
+		 * @param p_row
+		 * @param p_att
+		 *            atributo do slot, usado para acumular valores String.
+		 * @return o valor do atributo, ou {@link Utils#missingValue()} para
+		 *         incógnito.
+		 */
+		double convert(Object p_row, Attribute p_att);
+	}
+
+	private static final double MISSING = Utils.missingValue();
+
+	/**
+	 * Proporção máxima de valores diferentes de zero de um lote para que
+	 * {@link Weka2JPAInstanceType#AUTOMATIC} escolha a representação esparsa.
+	 */
+	private static final double SPARSE_MAX_DENSITY = 0.5;
+
+	/**
+	 * Valor do indice zero dos atributos String nas representações esparsas,
+	 * onde valores zero não são gravados.
+	 */
+	private static final String SPARSE_STRING_PLACEHOLDER = "";
+
+	/**
+	 * Quantidade mínima de linhas de cada parte da conversão paralela, lotes
+	 * menores que duas partes são convertidos sequencialmente.
+	 */
+	private static final int MIN_ROWS_PER_TASK = 64;
+
+	/**
+	 * Quantidade de falhas de conversão de cada atributo registradas
+	 * individualmente no log, as seguintes são registradas apenas quando o
+	 * total atinge uma potência de dez.
+	 */
+	private static final int ERROR_LOG_SAMPLES = 3;
+
+	/**
+	 * Quantidade máxima de chaves em cada consulta <code>IN</code> das
+	 * entidades novas dos dicionários armazenados.
+	 */
+	private static final int MAX_IN_SIZE = 1000;
+
 	private Logger log = LoggerFactory.getLogger(this.getClass());
 	private Weka2JPAHelper<E> helper;
+	private Weka2JPAExportSession session;
+	private Weka2JPAMappingPlan<E> plan;
 	private String relationBaseName;
 	private Class<E> entityClass;
-	private Field[] fields;
-	private HashMap<Attribute, String> mapAttributeToExtraField;
-	private HashMap<Attribute, List<String>> mapAttributeToRefValues;
-	private HashMap<Attribute, Field> mapAttributeToField;
+	private boolean useNullLikeIncognito;
+	private Weka2JPAInstanceType instanceType;
+	private int conversionThreads;
+	private Weka2JPAErrorPolicy errorPolicy;
+	private SlotConverter[] converters;
 
-	public Weka2JPAAttributeProcessor(Class<E> p_entityClass, Weka2JPAHelper<E> p_helper) {
+	/**
+	 * Nome do atributo de cada slot.
+	 */
+	private String[] slotNames;
 
-		helper = p_helper;
+	/**
+	 * Quantidade de falhas de conversão de cada slot, veja
+	 * {@link #getConversionErrors()}.
+	 */
+	private AtomicLongArray conversionErrors;
 
-		// log.info("Populando Instancias com relação aos atributos: " +
-		// p_atts);
-		relationBaseName = p_entityClass.getSimpleName();
-		log.info("Instancias Relacionadas a " + relationBaseName);
+	/**
+	 * Indica se as linhas são vetores de colunas obtidos pela consulta de
+	 * projeção em vez de entidades.
+	 */
+	private boolean projection;
 
-		entityClass = p_entityClass;
+	/**
+	 * Indica se o aviso de conversão sequencial de entidades já foi
+	 * registrado, veja {@link #isParallel(Collection)}.
+	 */
+	private boolean parallelWarned;
+
+	/**
+	 * Nome do campo chave da entidade base, primeira coluna da projeção quando
+	 * existir.
+	 */
+	private String projectionIdName;
 
-		fields = p_entityClass.getDeclaredFields();
-		log.info("Campos Declarados: " + fields);
+	/**
+	 * Cabeçalho de um arquivo já gravado cujos valores nominais devem ser
+	 * mantidos, veja {@link #setExistingHeader(Instances)}.
+	 */
+	private Instances existingHeader;
 
-		mapAttributeToExtraField = new HashMap<>(getExtraFieldsNames().size());
-		mapAttributeToRefValues = new HashMap<>(fields.length);
-		mapAttributeToField = new HashMap<>(fields.length);
+	/**
+	 * Medições da exportação, null quando não são feitas, veja
+	 * {@link Weka2JPAExportSession#getMetrics()}.
+	 */
+	private Weka2JPAExportMetrics metrics;
 
+	public Weka2JPAAttributeProcessor(Weka2JPAMappingPlan<E> p_plan, Weka2JPAHelper<E> p_helper) {
+		this(p_plan, p_helper, Weka2JPAExportSession.wrap(p_helper.em));
 	}
 
 	/**
-	 * Verificar se o objeto obtido no campo deve ser tornar este campo como um
-	 * incognito
+	 * Cria o processador consultando a camada de persistência pela sessão
+	 * informada, veja {@link Weka2JPAHelper#openExportSession()}.
 	 * 
-	 * @param p_fieldName
-	 * @param l_string
-	 * @return
+	 * @param p_plan
+	 * @param p_helper
+	 * @param p_session
 	 */
-	private boolean checkMissingFieldValue(String p_fieldName, Object l_string) {
-		Object l_value = helper.mapMissingValueToFields.get(p_fieldName);
-		if (l_value == null)
-			return false;
-		return l_value.equals(l_string);
-	}
+	public Weka2JPAAttributeProcessor(Weka2JPAMappingPlan<E> p_plan, Weka2JPAHelper<E> p_helper,
+			Weka2JPAExportSession p_session) {
 
-	private Attribute createAttributeFromColumn(Field p_field) {
-		// TODO Auto-generated method stub
-		String l_name = createNameAttribute(p_field);
-		Attribute l_att = null;
-		if (p_field.getType() == String.class) {
-			l_att = new Attribute(l_name, (ArrayList<String>) null);
-		} else if (p_field.getType().isAssignableFrom(Number.class)) {
-			l_att = new Attribute(l_name);
-		}
-		return l_att;
-	}
+		helper = p_helper;
+		session = p_session;
+		plan = p_plan;
 
-	private Attribute createAttributeFromManyToMany(Field p_field) {
+		relationBaseName = p_plan.getRelationBaseName();
+		entityClass = p_plan.getEntityClass();
 
-		String l_name = createNameAttribute(p_field);
+		if (log.isDebugEnabled())
+			log.debug("Campos Mapeados de " + relationBaseName + ": " + p_plan.getFields());
 
-		Attribute l_att = null;
-		if (p_field.getType() == String.class) {
-			l_att = new Attribute(l_name, (ArrayList<String>) null);
-		} else if (p_field.getType().isAssignableFrom(Number.class)) {
-			l_att = new Attribute(l_name);
-		}
-		return l_att;
+		useNullLikeIncognito = p_helper.useNullLikeIncognito;
+		instanceType = p_helper.instanceType;
+		conversionThreads = p_helper.conversionThreads;
+		errorPolicy = p_helper.errorPolicy;
+
+		metrics = p_session.getMetrics();
+		if (metrics != null)
+			metrics.setEntityName(relationBaseName);
 	}
 
 	/**
-	 * Cria um atributo com base em um campo da Entidade de persistencia que
-	 * seja do tipo ManyToOne.
+	 * Cria o dicionário de valores de um campo da Entidade de persistencia que
+	 * seja do tipo ManyToOne, usado para construir seu atributo nominal.
 	 * 
 	 * Este método consulta no banco de dados para encontrar as entidades
-	 * relacionadas.
+	 * relacionadas, conforme {@link Weka2JPAHelper#nominalDomain}. Cada valor
+	 * é associado também à chave primária da entidade referenciada, permitindo
+	 * localizar o índice de cada linha sem converter a entidade referenciada
+	 * em String.
 	 * 
-	 * TODO: permitir que seja criado um banco de entidades relacionadas para
-	 * ser usada no lugar da consulta no banco.
+	 * A ordem dos valores pode ser mantida entre exportações, veja
+	 * {@link Weka2JPAHelper#setDictionaryStore(Weka2JPANominalDictionaryStore)}
+	 * .
 	 * 
-	 * @param p_field
+	 * @param p_mapping
 	 * @return
 	 */
-	private Attribute createAttributeFromManyToOne(Field p_field) {
+	Weka2JPANominalDictionary createDictionaryFromManyToOne(Weka2JPAFieldMapping p_mapping) {
+
+		String l_refEntityName = getEntityName(p_mapping.getMetadata().getType());
+		String l_join = " FROM " + getEntityName(entityClass) + " E JOIN E." + p_mapping.getFieldName() + " R";
+
+		// sem chave simples a projeção não identifica as entidades referenciadas
+		if (helper.nominalDomain == Weka2JPANominalDomain.PROJECTION && p_mapping.getDisplayField() != null
+				&& getIdName(p_mapping.getMetadata().getType()) != null) {
+			return createDictionaryFromProjection(p_mapping, l_join);
+		}
 
-		@SuppressWarnings("rawtypes")
-		ArrayList l_refValues = new ArrayList();
+		String l_qlString;
+		if (helper.nominalDomain == Weka2JPANominalDomain.FULL_TABLE)
+			l_qlString = "SELECT E FROM " + l_refEntityName + " E ";
+		else
+			l_qlString = "SELECT DISTINCT R" + l_join;
 
-		String l_qlString = "SELECT E FROM " + p_field.getType().getSimpleName() + " E ";
-		Query l_query = helper.em.createQuery(l_qlString);
+		Query l_query = session.createQuery(l_qlString);
 		@SuppressWarnings("unchecked")
-		List<E> l_list = l_query.getResultList();
-		String l_fieldName = p_field.getName();
+		List<Object> l_list = l_query.getResultList();
 
-		CallbackField<?> l_callback = getCallbackClassField(p_field);
+		return createDictionaryFromEntities(p_mapping, l_list);
+	}
+
+	/**
+	 * Cria o dicionário a partir das entidades referenciadas já carregadas,
+	 * convertidas em texto pelo callback do campo ou por
+	 * {@link Object#toString()}.
+	 * 
+	 * @param p_mapping
+	 * @param p_list
+	 * @return
+	 */
+	private Weka2JPANominalDictionary createDictionaryFromEntities(Weka2JPAFieldMapping p_mapping,
+			List<Object> p_list) {
+		String l_fieldName = p_mapping.getFieldName();
+		CallbackField<?> l_callback = p_mapping.getCallback();
+		PersistenceUnitUtil l_util = getPersistenceUnitUtil();
 
-		for (Object l_entityRef : l_list) {
+		Weka2JPANominalDictionary l_dictionary = new Weka2JPANominalDictionary(p_list.size());
+		for (Object l_entityRef : p_list) {
 
 			// TODO: how to identify the best way to convert the child
 			// entity in a string or number to be referenced, in
@@ -135,407 +251,1103 @@ public class Weka2JPAAttributeProcessor<E> {
 			// this field should also be indexed and stored in the
 			// database, Commission is therefore proposing should be
 			// noted as a Column type, Temporal, Id, etc.
+			String l_str;
 			if (l_callback != null) {
-
-				String l_str = (String) l_callback.call(null, l_fieldName, l_entityRef);
-				l_refValues.add(l_str);
+				l_str = (String) l_callback.call(null, l_fieldName, l_entityRef);
 			} else {
-				String l_str = l_entityRef.toString();
-				l_refValues.add(l_str);
+				l_str = l_entityRef.toString();
 			}
+			l_dictionary.add(l_util.getIdentifier(l_entityRef), l_str);
 		}
-		Attribute l_att = createAttributeFromManyToOne(p_field, l_refValues);
 
-		return l_att;
+		return l_dictionary;
 	}
 
-	private Attribute createAttributeFromManyToOne(Field p_field, List<String> p_refListValue) {
-		String l_name = createNameAttribute(p_field);
-
-		Attribute l_att = new Attribute(l_name, p_refListValue);
-		mapAttributeToRefValues.put(l_att, p_refListValue);
-		return l_att;
+	/**
+	 * Cria o dicionário de um campo ManyToOne mantido pelo armazenamento de
+	 * dicionários, veja
+	 * {@link Weka2JPAHelper#setDictionaryStore(Weka2JPANominalDictionaryStore)}
+	 * .
+	 * 
+	 * Quando o armazenamento já possui as chaves das entidades referenciadas
+	 * são consultadas apenas as chaves, sem carregar as entidades, e somente
+	 * as entidades cujas chaves ainda não foram armazenadas são carregadas e
+	 * convertidas. Caso contrário o dicionário é criado por
+	 * {@link #createDictionaryFromManyToOne(Weka2JPAFieldMapping)} e
+	 * armazenado junto das chaves.
+	 * 
+	 * @param p_mapping
+	 * @return
+	 */
+	private Weka2JPANominalDictionary createDictionaryFromStore(Weka2JPAFieldMapping p_mapping) {
+		Weka2JPANominalDictionaryStore l_store = helper.dictionaryStore;
+		Class<?> l_refClass = p_mapping.getMetadata().getType();
+		String l_attributeName = p_mapping.getAttributeName();
+		String l_idName = getIdName(l_refClass);
+		Class<?> l_keyType = l_idName == null ? null : session.getEntityManager().getMetamodel().entity(l_refClass)
+				.getIdType().getJavaType();
+
+		if (l_keyType == null || !Weka2JPANominalDictionaryStore.isKeyType(l_keyType)
+				|| !l_store.hasKeys(relationBaseName, l_attributeName))
+			return l_store.stabilize(relationBaseName, l_attributeName, createDictionaryFromManyToOne(p_mapping),
+					l_keyType);
+
+		Weka2JPANominalDictionary l_stored = l_store.stabilize(relationBaseName, l_attributeName,
+				new Weka2JPANominalDictionary(0), l_keyType);
+
+		String l_refEntityName = getEntityName(l_refClass);
+		String l_qlString;
+		if (helper.nominalDomain == Weka2JPANominalDomain.FULL_TABLE)
+			l_qlString = "SELECT R." + l_idName + " FROM " + l_refEntityName + " R";
+		else
+			l_qlString = "SELECT DISTINCT R." + l_idName + " FROM " + getEntityName(entityClass) + " E JOIN E."
+					+ p_mapping.getFieldName() + " R";
+
+		List<Object> l_newKeys = new ArrayList<>();
+		for (Object l_key : session.createQuery(l_qlString, Object.class).getResultList()) {
+			if (l_stored.indexOfKey(l_key) < 0)
+				l_newKeys.add(l_key);
+		}
+		if (l_newKeys.isEmpty())
+			return l_stored;
+
+		boolean l_projection = helper.nominalDomain == Weka2JPANominalDomain.PROJECTION
+				&& p_mapping.getDisplayField() != null;
+		String l_select = l_projection ? "SELECT R." + l_idName + ", R." + p_mapping.getDisplayField() : "SELECT R";
+		String l_newQlString = l_select + " FROM " + l_refEntityName + " R WHERE R." + l_idName + " IN :ids";
+
+		List<Object> l_list = new ArrayList<>(l_newKeys.size());
+		for (int l_from = 0; l_from < l_newKeys.size(); l_from += MAX_IN_SIZE) {
+			Query l_query = session.createQuery(l_newQlString);
+			l_query.setParameter("ids", l_newKeys.subList(l_from, Math.min(l_from + MAX_IN_SIZE, l_newKeys.size())));
+			@SuppressWarnings("unchecked")
+			List<Object> l_part = l_query.getResultList();
+			l_list.addAll(l_part);
+		}
+		log.info(l_newKeys.size() + " entidades novas no dicionário de " + l_attributeName);
+
+		Weka2JPANominalDictionary l_new;
+		if (l_projection) {
+			l_new = new Weka2JPANominalDictionary(l_list.size());
+			for (Object l_row : l_list) {
+				Object[] l_columns = (Object[]) l_row;
+				if (l_columns[1] != null)
+					l_new.add(l_columns[0], l_columns[1].toString());
+			}
+		} else {
+			l_new = createDictionaryFromEntities(p_mapping, l_list);
+		}
+		return l_store.stabilize(relationBaseName, l_attributeName, l_new, l_keyType);
 	}
 
-	private Attribute createAttributeFromOneToMany(Field p_field) {
-		// TODO Auto-generated method stub
-		return null;
-	}
+	/**
+	 * Cria o dicionário de um campo ManyToOne consultando apenas a chave e o
+	 * campo de exibição das entidades referenciadas pela entidade base, sem
+	 * carregar as entidades referenciadas.
+	 * 
+	 * @see Weka2JPANominalDomain#PROJECTION
+	 * @param p_mapping
+	 * @param p_join
+	 *            clausula FROM ligando a entidade base (E) à referenciada (R)
+	 * @return
+	 */
+	private Weka2JPANominalDictionary createDictionaryFromProjection(Weka2JPAFieldMapping p_mapping, String p_join) {
 
-	private Attribute createAttributeFromOneToOne(Field p_field) {
-		// TODO Auto-generated method stub
-		return null;
+		String l_idName = getIdName(p_mapping.getMetadata().getType());
+
+		String l_qlString = "SELECT DISTINCT R." + l_idName + ", R." + p_mapping.getDisplayField() + p_join
+				+ " ORDER BY R." + l_idName;
+		TypedQuery<Object[]> l_query = session.createQuery(l_qlString, Object[].class);
+		List<Object[]> l_list = l_query.getResultList();
+
+		Weka2JPANominalDictionary l_dictionary = new Weka2JPANominalDictionary(l_list.size());
+		for (Object[] l_row : l_list) {
+			if (l_row[1] != null)
+				l_dictionary.add(l_row[0], l_row[1].toString());
+		}
+
+		return l_dictionary;
 	}
 
-	private Attribute createAttributeFromTemporal(Field p_field) {
-		// TODO Auto-generated method stub
-		return null;
+	/**
+	 * Obtem o utilitário usado para ler a chave primária das entidades
+	 * referenciadas sem carrega-las.
+	 * 
+	 * @return
+	 */
+	private PersistenceUnitUtil getPersistenceUnitUtil() {
+		return session.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil();
 	}
 
 	/**
 	 * Cria os atributos usados no cabeçalho e seus metadados para aferição dos
 	 * tipos.
 	 * 
-	 * @param p_fields
-	 * @param p_mapAttributeToRefVAlues
-	 * @param p_mapAttributeToField
+	 * A posição de cada atributo na lista é a mesma do seu conversor, veja
+	 * {@link SlotConverter}.
+	 * 
 	 * @return
 	 */
 	public ArrayList<Attribute> createAttributes() {
 
-		ArrayList<Attribute> l_atts = new ArrayList<Attribute>(fields.length);
+		int l_size = plan.getFields().size() + plan.getExtraFields().size();
+		ArrayList<Attribute> l_atts = new ArrayList<Attribute>(l_size);
+		converters = new SlotConverter[l_size];
+		int l_column = projectionIdName == null ? 0 : 1;
 
-		for (Field l_field : fields) {
+		for (Weka2JPAFieldMapping l_mapping : plan.getFields()) {
 			Attribute l_att = null;
-			Class<?> l_typeField = l_field.getType();
-			String l_nameField = l_field.getName();
-			if (helper.ignoreFieldsTypeOf.contains(l_typeField) || helper.ignoreFieldsName.contains(l_nameField)
-					|| l_nameField.equals("serialVersionUID")) {
-				continue;
-			}
-
-			if (l_field.getDeclaredAnnotation(Column.class) != null) {
-				l_att = createAttributeFromColumn(l_field);
-			} else if (l_field.getDeclaredAnnotation(ManyToOne.class) != null) {
-				l_att = createAttributeFromManyToOne(l_field);
-			} else if (l_field.getDeclaredAnnotation(OneToMany.class) != null) {
-				l_att = createAttributeFromOneToMany(l_field);
-				continue; // TODO o metodo createAttributeFromOneToMany não está
-							// implementado ainda
-			} else if (l_field.getDeclaredAnnotation(OneToOne.class) != null) {
-				l_att = createAttributeFromOneToOne(l_field);
-				continue;// TODO o metodo createAttributeFromOneToOne não está
-							// implementado ainda
-			} else if (l_field.getDeclaredAnnotation(ManyToMany.class) != null) {
-				l_att = createAttributeFromManyToMany(l_field);
-				continue;// TODO o metodo createAttributeFromManyToMany não está
-							// implementado ainda
-			} else if (l_field.getDeclaredAnnotation(Temporal.class) != null) {
-				l_att = createAttributeFromTemporal(l_field);
-				continue;// TODO o metodo createAttributeFromTemporal não está
-							// implementado ainda
-			} else {
-				// qualquer outra anotação será ignorada
-				continue;
+			Weka2JPANominalDictionary l_dictionary = null;
+			switch (l_mapping.getKind()) {
+			case STRING:
+				l_att = new Attribute(l_mapping.getAttributeName(), (ArrayList<String>) null);
+				break;
+			case NUMERIC:
+				l_att = new Attribute(l_mapping.getAttributeName());
+				break;
+			case NOMINAL_REFERENCE:
+				if (existingHeader != null)
+					l_dictionary = restrictToExistingHeader(l_mapping, createDictionaryFromManyToOne(l_mapping));
+				else if (helper.dictionaryStore != null)
+					l_dictionary = createDictionaryFromStore(l_mapping);
+				else
+					l_dictionary = createDictionaryFromManyToOne(l_mapping);
+				l_att = new Attribute(l_mapping.getAttributeName(), l_dictionary.getValues());
+				break;
 			}
+			converters[l_atts.size()] = timeCallback(l_mapping,
+					createFieldConverter(l_mapping, l_dictionary, projection ? l_column++ : -1));
 			l_atts.add(l_att);
-			mapAttributeToField.put(l_att, l_field);
 		}
 
-		log.info("Atributos Criados: " + l_atts);
 		createAttributesExtraFields(l_atts);
 
-		log.info("Lista Final dos Atributos: " + l_atts);
+		slotNames = new String[l_atts.size()];
+		for (int i = 0; i < slotNames.length; i++) {
+			slotNames[i] = l_atts.get(i).name();
+		}
+		conversionErrors = new AtomicLongArray(slotNames.length);
+
+		log.info(relationBaseName + ": " + l_atts.size() + " atributos");
+		if (log.isDebugEnabled())
+			log.debug("Atributos de " + relationBaseName + ": " + l_atts);
+
+		if (instanceType != Weka2JPAInstanceType.DENSE)
+			reserveSparseStringValues(l_atts);
 
 		return l_atts;
 	}
 
 	/**
-	 * Cria os atributos relativos aos compos extras adicionados.
+	 * Mantém no dicionário apenas os valores do atributo de mesmo nome do
+	 * cabeçalho existente, na ordem deste cabeçalho.
 	 * 
-	 * @param p_atts
+	 * @see #setExistingHeader(Instances)
+	 * @param p_mapping
+	 * @param p_dictionary
+	 * @return
+	 */
+	private Weka2JPANominalDictionary restrictToExistingHeader(Weka2JPAFieldMapping p_mapping,
+			Weka2JPANominalDictionary p_dictionary) {
+
+		Attribute l_existing = existingHeader.attribute(p_mapping.getAttributeName());
+		if (l_existing == null || !l_existing.isNominal())
+			return p_dictionary;
+
+		List<String> l_values = new ArrayList<>(l_existing.numValues());
+		for (int i = 0; i < l_existing.numValues(); i++) {
+			l_values.add(l_existing.value(i));
+		}
+
+		Weka2JPANominalDictionary l_dictionary = p_dictionary.restrictTo(l_values);
+
+		int l_dropped = 0;
+		for (String l_value : p_dictionary.getValues()) {
+			if (l_dictionary.indexOf(l_value) < 0)
+				l_dropped++;
+		}
+		if (l_dropped > 0)
+			log.warn(l_dropped + " valores de " + p_mapping.getAttributeName()
+					+ " não existem no cabeçalho gravado e serão incógnitos");
+
+		return l_dictionary;
+	}
+
+	/**
+	 * Cria os atributos relativos aos compos extras adicionados.
 	 * 
 	 * @param p_atts
 	 */
 	private void createAttributesExtraFields(ArrayList<Attribute> p_atts) {
 
-		log.info("Criando Atributos Extras");
-
-		for (String l_extraField : getExtraFieldsNames()) {
+		for (Weka2JPAFieldMapping l_mapping : plan.getExtraFields()) {
 			Attribute l_att = null;
 
-			Object l_defaultValue = getDefaultValue(l_extraField);
-			if (l_defaultValue == null) {
-				l_att = new Attribute(l_extraField);
-			} else if (l_defaultValue instanceof String) {
-				l_att = new Attribute(l_extraField, (ArrayList<String>) null);
-			} else if (l_defaultValue.getClass().isAssignableFrom(Number.class)) {
-				l_att = new Attribute(l_extraField);
+			if (l_mapping.getKind() == Weka2JPAAttributeKind.NUMERIC) {
+				l_att = new Attribute(l_mapping.getAttributeName());
+			} else if (l_mapping.getKind() == Weka2JPAAttributeKind.NOMINAL) {
+				l_att = new Attribute(l_mapping.getAttributeName(), l_mapping.getNominalValues());
 			} else {
-				@SuppressWarnings({ "rawtypes" })
-				CallbackField l_callback = getCallBackExtraField(l_extraField);
-
-				if (l_callback instanceof CallbackFieldToNumber) {
-					l_att = new Attribute(l_extraField);
-				} else {
-					l_att = new Attribute(l_extraField, (List<String>) null);
-				}
+				l_att = new Attribute(l_mapping.getAttributeName(), (List<String>) null);
 			}
+			converters[p_atts.size()] = timeCallback(l_mapping, createExtraFieldConverter(l_mapping));
 			p_atts.add(l_att);
-			mapAttributeToExtraField.put(l_att, l_extraField);
 		}
-		log.info("Novos Atributos, Lista geral: " + p_atts);
 	}
 
-	public Instances createInstances(ArrayList<Attribute> p_atts, Collection<E> l_list) {
-		Instances l_instances = new Instances(getRelationBaseName(), p_atts, 0);
-		for (final E l_object : l_list) {
-			double[] l_vals = new double[l_instances.numAttributes()];
-
-			ArrayList<Attribute> l_incoginitoAttributes = new ArrayList<>();
-			processValueFromEachField(l_object, l_instances, l_vals, p_atts, l_incoginitoAttributes);
-
-			processValueFromEachExtraField(l_object, l_instances, l_vals, p_atts, l_incoginitoAttributes);
-
-			// TODO parametrizar o tipo de ARFF:
-			// DenseInstance,
-			// SparseInstance,
-			// BinarySparseInstance
-			DenseInstance l_instance = new DenseInstance(1.0, l_vals);
-			for (Attribute l_att : l_incoginitoAttributes) {
-				l_instance.setMissing(l_att.index());
-			}
-			l_instances.add(l_instance);
-
+	/**
+	 * Cria o conversor de um campo extra.
+	 * 
+	 * Esta conversão é altamente dependente dos callbacks para gerar novos
+	 * valores.
+	 * 
+	 * @param p_mapping
+	 * @return
+	 */
+	private SlotConverter createExtraFieldConverter(Weka2JPAFieldMapping p_mapping) {
+
+		String l_fieldName = p_mapping.getFieldName();
+		CallbackField<?> l_callBack = p_mapping.getCallback();
+		Object l_defaultValue = p_mapping.getDefaultValue();
+		boolean l_defaultIncognito = p_mapping.isMissingValue(l_defaultValue)
+				|| (useNullLikeIncognito && l_defaultValue == null);
+
+		if (l_callBack instanceof CallbackFieldToDouble) {
+			CallbackFieldToDouble l_toDouble = (CallbackFieldToDouble) l_callBack;
+			return (p_entity, p_att) -> {
+				double l_value = l_toDouble.callDouble(p_entity, l_fieldName, l_defaultValue);
+				return l_defaultIncognito ? MISSING : l_value;
+			};
+
+		} else if (l_callBack instanceof CallbackFieldToIndex) {
+			CallbackFieldToIndex l_toIndex = (CallbackFieldToIndex) l_callBack;
+			int l_size = p_mapping.getNominalValues().size();
+			return (p_entity, p_att) -> {
+				int l_index = l_toIndex.callIndex(p_entity, l_fieldName, l_defaultValue);
+
+				if (l_index >= l_size)
+					throw new IndexOutOfBoundsException("Índice " + l_index + " inexistente em " + l_fieldName);
+				return l_defaultIncognito || l_index < 0 ? MISSING : l_index;
+			};
+
+		} else if (l_callBack instanceof CallbackFieldToNumber) {
+			@SuppressWarnings("rawtypes")
+			CallbackFieldToNumber l_toNumber = (CallbackFieldToNumber) l_callBack;
+			return (p_entity, p_att) -> {
+				Number l_value = (Number) l_toNumber.call(p_entity, l_fieldName, l_defaultValue);
+
+				if (l_value == null)
+					return useNullLikeIncognito || l_defaultIncognito ? MISSING : 0;
+				return l_defaultIncognito ? MISSING : l_value.doubleValue();
+			};
+
+		} else if (l_callBack instanceof CallbackFieldToString) {
+			CallbackFieldToString l_toString = (CallbackFieldToString) l_callBack;
+			return (p_entity, p_att) -> {
+				String l_string = l_toString.call(p_entity, l_fieldName, l_defaultValue);
+
+				if (l_string == null)
+					return useNullLikeIncognito || l_defaultIncognito ? MISSING : 0;
+				double l_val = p_att.addStringValue(l_string);
+				return l_defaultIncognito ? MISSING : l_val;
+			};
+
+		} else if (l_defaultValue instanceof Number) {
+			double l_val = l_defaultIncognito ? MISSING : ((Number) l_defaultValue).doubleValue();
+			return (p_entity, p_att) -> l_val;
+
+		} else if (l_defaultValue != null) {
+			String l_string = l_defaultValue.toString();
+			return (p_entity, p_att) -> {
+				double l_val = p_att.addStringValue(l_string);
+				return l_defaultIncognito ? MISSING : l_val;
+			};
 		}
-		return l_instances;
+
+		double l_val = l_defaultIncognito ? MISSING : 0;
+		return (p_entity, p_att) -> l_val;
 	}
 
 	/**
-	 * Cria o nome do Attributo para uso no arquivo ARFF
-	 * 
-	 * Cria o nome do Atributo com base na anotação Column, caso ela não exista
-	 * ou o nome não seja informado utiliza o nome do campo informado.
+	 * Envolve o conversor de um campo com callback medindo o tempo de cada
+	 * conversão, quando as medições são feitas.
 	 * 
-	 * @param p_field
+	 * @see Weka2JPAExportMetrics#getCallbackNanos()
+	 * @param p_mapping
+	 * @param p_converter
 	 * @return
 	 */
-	private String createNameAttribute(Field p_field) {
-		Column l_annot = p_field.getDeclaredAnnotation(Column.class);
-		String l_name = null;
-		if (l_annot != null)
-			l_name = l_annot.name();
-		if (l_name == null || l_name.isEmpty())
-			l_name = p_field.getName();
+	private SlotConverter timeCallback(Weka2JPAFieldMapping p_mapping, SlotConverter p_converter) {
+		if (metrics == null || p_mapping.getCallback() == null)
+			return p_converter;
 
-		return l_name;
+		LongAdder l_nanos = metrics.callbackCounter(p_mapping.getAttributeName());
+		return (p_row, p_att) -> {
+			long l_start = System.nanoTime();
+			try {
+				return p_converter.convert(p_row, p_att);
+			} finally {
+				l_nanos.add(System.nanoTime() - l_start);
+			}
+		};
 	}
 
 	/**
-	 * Obtem o CallBack para um determinado campo de uma entidade com base no
-	 * nome do campo
+	 * Cria o conversor de um campo da entidade base conforme o tipo do seu
+	 * atributo.
 	 * 
-	 * @param l_fieldName
+	 * @param p_mapping
+	 * @param p_dictionary
+	 *            dicionário dos valores nominais, apenas para campos ManyToOne
+	 * @param p_column
+	 *            coluna do valor no modo projeção, ou -1 para ler o valor da
+	 *            entidade
 	 * @return
 	 */
-	private CallbackField<?> getCallBackClass(String l_fieldName) {
+	private SlotConverter createFieldConverter(Weka2JPAFieldMapping p_mapping, Weka2JPANominalDictionary p_dictionary,
+			int p_column) {
 
-		CallbackField<?> l_callback = helper.baseClassFieldClassCallBack.get(l_fieldName);
-		return l_callback;
-	}
+		double l_nullValue = useNullLikeIncognito ? MISSING : 0;
+
+		Function<Object, Object> l_accessor;
+		if (p_column >= 0) {
+			l_accessor = p_row -> ((Object[]) p_row)[p_column];
+
+			if (p_mapping.getKind() == Weka2JPAAttributeKind.NOMINAL_REFERENCE) {
+				// a coluna contém a chave da entidade referenciada
+				return (p_row, p_slotAtt) -> {
+					Object l_key = l_accessor.apply(p_row);
+
+					if (l_key == null)
+						return l_nullValue;
+
+					int l_index = p_dictionary.indexOfKey(l_key);
+					if (l_index < 0 || p_mapping.isMissingValue(l_key))
+						return MISSING;
+					return l_index;
+				};
+			}
+		} else {
+			Field l_field = p_mapping.getMetadata().getField();
+			if (p_mapping.getMetadata().isPrimitiveNumeric()) {
+				return (p_entity, p_slotAtt) -> {
+					double l_val = getDouble(l_field, p_entity);
+					return p_mapping.isMissingValue(l_val) ? MISSING : l_val;
+				};
+			}
+			l_accessor = p_entity -> get(l_field, p_entity);
+		}
 
-	private CallbackField<?> getCallbackClassField(Class<?> p_class) {
-		return helper.baseClassFieldClassCallBack.get(p_class);
+		switch (p_mapping.getKind()) {
+		case STRING:
+			return (p_entity, p_slotAtt) -> {
+				String l_string = (String) l_accessor.apply(p_entity);
+
+				if (l_string == null)
+					return l_nullValue;
+				double l_val = p_slotAtt.addStringValue(l_string);
+				return p_mapping.isMissingValue(l_string) ? MISSING : l_val;
+			};
+
+		case NUMERIC:
+			return (p_entity, p_slotAtt) -> {
+				Object l_value = l_accessor.apply(p_entity);
+
+				if (l_value == null)
+					return l_nullValue;
+				return p_mapping.isMissingValue(l_value) ? MISSING : ((Number) l_value).doubleValue();
+			};
+
+		default:
+			CallbackField<?> l_callback = p_mapping.getCallback();
+			String l_fieldName = p_mapping.getFieldName();
+			PersistenceUnitUtil l_util = p_dictionary.hasKeys() ? getPersistenceUnitUtil() : null;
+
+			return (p_entity, p_slotAtt) -> {
+				Object l_value = l_accessor.apply(p_entity);
+
+				if (l_value == null)
+					return l_nullValue;
+
+				if (l_util != null && !(l_value instanceof String)) {
+					int l_index = p_dictionary.indexOfKey(l_util.getIdentifier(l_value));
+					if (l_index >= 0)
+						return p_mapping.isMissingValue(l_value) ? MISSING : l_index;
+				}
+
+				String l_strValue;
+				if (l_value instanceof String) {
+					l_strValue = (String) l_value;
+				} else if (l_callback != null) {
+					l_strValue = (String) l_callback.call(p_entity, l_fieldName, l_value);
+				} else {
+					l_strValue = l_value.toString();
+				}
+
+				if (l_strValue == null)
+					return l_nullValue;
+
+				int l_index = p_dictionary.indexOf(l_strValue);
+				if (l_index < 0 || p_mapping.isMissingValue(l_value))
+					return MISSING;
+				return l_index;
+			};
+		}
 	}
 
 	/**
-	 * Obtem o CallBack para um determinado campo da entidade.
+	 * Obtem o valor do campo já acessível, veja
+	 * {@link Weka2JPAFieldMetadata#getField()}.
+	 * 
+	 * A leitura é feita diretamente por {@link Field}: todos os campos
+	 * compartilham a mesma implementação de acesso e a chamada é otimizada
+	 * pelo JIT, o que não ocorre com um {@link java.lang.invoke.MethodHandle}
+	 * por campo chamado do mesmo ponto para centenas de campos, compare pelo
+	 * FieldAccessBenchmark do módulo benchmarks.
 	 * 
 	 * @param p_field
+	 * @param p_entity
 	 * @return
 	 */
-	private CallbackField<?> getCallbackClassField(Field p_field) {
-		String l_fieldName = p_field.getName();
-		CallbackField<?> l_callback = getCallBackClass(l_fieldName);
-		if (l_callback == null)
-			l_callback = getCallbackClassField(p_field.getType());
-		return l_callback;
-	}
-
-	private CallbackField<?> getCallBackExtraField(String p_fieldName) {
-
-		return helper.baseClassFieldCallBack.get(p_fieldName);
+	private static Object get(Field p_field, Object p_entity) {
+		try {
+			return p_field.get(p_entity);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Campo inacessível: " + p_field, e);
+		}
 	}
 
 	/**
-	 * Retorna a Classe padrão de um determinado campo extra informado.
+	 * Obtem o valor de um campo primitivo númerico como double, sem boxing.
 	 * 
 	 * @param p_field
+	 * @param p_entity
 	 * @return
 	 */
-	private Class<?> getDefaultClassExtraField(String p_field) {
-		return helper.baseClassDefaultClassExtraField.get(p_field);
+	private static double getDouble(Field p_field, Object p_entity) {
+		try {
+			return p_field.getDouble(p_entity);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Campo inacessível: " + p_field, e);
+		}
+	}
+
+	public Instances createInstances(ArrayList<Attribute> p_atts, Collection<E> l_list) {
+		Instances l_instances = new Instances(getRelationBaseName(), p_atts, l_list.size());
+		for (Instance l_instance : createInstancesFromRows(l_instances, l_list)) {
+			l_instances.add(l_instance);
+		}
+		return l_instances;
 	}
 
 	/**
-	 * Retorna o valor padrão para um determinado campo.
+	 * Converte um lote de linhas em instancias, sem adiciona-las ao conjunto
+	 * de instancias informado, veja {@link #createInstance(Instances, Object)}.
+	 * 
+	 * Com {@link Weka2JPAInstanceType#AUTOMATIC} a representação de todas as
+	 * instancias do lote é escolhida pela proporção de valores diferentes de
+	 * zero do lote.
 	 * 
-	 * @param l_fieldName
+	 * @param p_instances
+	 * @param p_rows
 	 * @return
 	 */
-	private Object getDefaultValue(String l_fieldName) {
+	List<Instance> createInstancesFromRows(Instances p_instances, Collection<?> p_rows) {
+		long l_start = metrics == null ? 0 : System.nanoTime();
+		Attribute[] l_atts = attributesOf(p_instances);
+
+		List<double[]> l_rows;
+		if (isParallel(p_rows))
+			l_rows = convertRowsInParallel(l_atts, p_rows);
+		else
+			l_rows = convertRows(l_atts, p_rows);
+
+		long l_nonZero = 0;
+		if (instanceType == Weka2JPAInstanceType.AUTOMATIC) {
+			for (double[] l_vals : l_rows) {
+				l_nonZero += countNonZero(l_vals);
+			}
+		}
 
-		return helper.baseClassDefaultValuesExtraField.get(l_fieldName);
-	}
+		Weka2JPAInstanceType l_type = instanceType;
+		if (l_type == Weka2JPAInstanceType.AUTOMATIC)
+			l_type = chooseInstanceType(l_nonZero, (long) l_rows.size() * converters.length);
+
+		List<Instance> l_instances = new ArrayList<>(l_rows.size());
+		for (double[] l_vals : l_rows) {
+			l_instances.add(newInstance(p_instances, l_type, l_vals));
+		}
 
-	private Set<String> getExtraFieldsNames() {
-		return helper.baseClassExtraFieldsNames;
+		if (metrics != null)
+			measureConversion(l_start, l_atts, l_rows);
+		return l_instances;
 	}
 
-	private List<String> getReferenceValues(Attribute l_att) {
-		return mapAttributeToRefValues.get(l_att);
+	/**
+	 * Converte uma única entidade em uma instancia, sem adiciona-la ao
+	 * conjunto de instancias informado.
+	 * 
+	 * O conjunto de instancias é usado apenas como cabeçalho, para que os
+	 * atributos do tipo String recebam os valores encontrados, permitindo que
+	 * as instancias sejam gravadas uma a uma sem manter todas em memória.
+	 * 
+	 * Valores incógnitos são representados por {@link Utils#missingValue()}.
+	 * 
+	 * @param p_instances
+	 * @param p_entity
+	 * @return a instancia, ou null quando descartada por
+	 *         {@link Weka2JPAErrorPolicy#SKIP_ROW}
+	 */
+	public Instance createInstance(Instances p_instances, E p_entity) {
+		return createInstanceFromRow(p_instances, p_entity);
 	}
 
 	/**
-	 * Nome será usada como referencia para construir o campo \@Relation do
-	 * arquivo ARFF
+	 * Converte uma linha obtida pela consulta de projeção em uma instancia.
 	 * 
+	 * @see #setProjection(boolean)
+	 * @param p_instances
+	 * @param p_row
 	 * @return
 	 */
-	public String getRelationBaseName() {
-		return relationBaseName;
+	public Instance createInstance(Instances p_instances, Object[] p_row) {
+		return createInstanceFromRow(p_instances, p_row);
 	}
 
 	/**
-	 * Processa os valores referentes aos compos extras.
+	 * Converte uma linha, entidade ou vetor de colunas conforme o modo do
+	 * processador, em uma instancia.
 	 * 
-	 * Esta função é altamente dependente dos callbacks para gerar novos
-	 * valores.
-	 * 
-	 * @param p_entity
 	 * @param p_instances
-	 * @param p_listVals
+	 * @param p_row
+	 * @return
+	 */
+	Instance createInstanceFromRow(Instances p_instances, Object p_row) {
+		long l_start = metrics == null ? 0 : System.nanoTime();
+		Attribute[] l_atts = attributesOf(p_instances);
+		double[] l_vals = convertRow(l_atts, p_row);
+		if (l_vals == null)
+			return null;
+
+		Weka2JPAInstanceType l_type = instanceType;
+		if (l_type == Weka2JPAInstanceType.AUTOMATIC)
+			l_type = chooseInstanceType(countNonZero(l_vals), l_vals.length);
+
+		Instance l_instance = newInstance(p_instances, l_type, l_vals);
+		if (metrics != null)
+			measureConversion(l_start, l_atts, Collections.singletonList(l_vals));
+		return l_instance;
+	}
+
+	/**
+	 * Registra nas medições a conversão das linhas informadas.
+	 * 
+	 * @param p_start
+	 *            início da conversão, em {@link System#nanoTime()}
 	 * @param p_atts
-	 * @param p_incoginitoAttributes
+	 * @param p_rows
 	 */
-	private void processValueFromEachExtraField(final E p_entity, final Instances p_instances,
-			final double[] p_listVals, final ArrayList<Attribute> p_atts,
-			final ArrayList<Attribute> p_incoginitoAttributes) {
+	private void measureConversion(long p_start, Attribute[] p_atts, List<double[]> p_rows) {
+		metrics.countMissingValues(p_atts, p_rows);
+		metrics.addRows(p_rows.size());
+		metrics.addStageNanos(Weka2JPAExportStage.CONVERT, System.nanoTime() - p_start);
+	}
 
-		mapAttributeToExtraField.forEach((p_att, p_fieldName) -> {
+	/**
+	 * Converte uma linha nos valores de seus atributos, na ordem dos slots.
+	 * 
+	 * Os valores que falham são tratados conforme
+	 * {@link Weka2JPAHelper#setErrorPolicy(Weka2JPAErrorPolicy)}.
+	 * 
+	 * @param p_instances
+	 * @param p_row
+	 * @return os valores, ou null quando a linha deve ser descartada
+	 */
+	private double[] convertRow(Attribute[] p_atts, Object p_row) {
+		double[] l_vals = new double[converters.length];
 
+		for (int i = 0; i < converters.length; i++) {
 			try {
+				l_vals[i] = converters[i].convert(p_row, p_atts[i]);
+			} catch (RuntimeException e) {
+				if (!handleConversionError(i, e))
+					return null;
+				l_vals[i] = MISSING;
+			}
+		}
 
-				int l_attIndex = p_atts.indexOf(p_att);
+		return l_vals;
+	}
 
-				double l_val = 0;
+	/**
+	 * Conta a falha de conversão do slot e registra no log apenas uma
+	 * amostra, veja {@link #ERROR_LOG_SAMPLES}.
+	 * 
+	 * @param p_slot
+	 * @param p_error
+	 * @return true quando o valor deve ser incógnito, false quando a linha
+	 *         deve ser descartada
+	 * @throws ConversionWEKAJPARuntimeException
+	 *             com {@link Weka2JPAErrorPolicy#FAIL_FAST}
+	 */
+	private boolean handleConversionError(int p_slot, RuntimeException p_error) {
+		if (errorPolicy == Weka2JPAErrorPolicy.FAIL_FAST)
+			throw new ConversionWEKAJPARuntimeException(relationBaseName, slotNames[p_slot], p_error);
+
+		long l_count = conversionErrors.incrementAndGet(p_slot);
+		if (metrics != null)
+			metrics.addConversionError(slotNames[p_slot]);
+
+		if (l_count == 1) {
+			log.warn("Falha na conversão do atributo " + slotNames[p_slot] + " de " + relationBaseName, p_error);
+		} else if (l_count <= ERROR_LOG_SAMPLES) {
+			log.warn("Falha na conversão do atributo " + slotNames[p_slot] + ": " + p_error);
+		} else if (isPowerOfTen(l_count) && log.isWarnEnabled()) {
+			log.warn(l_count + " falhas na conversão do atributo " + slotNames[p_slot] + " de " + relationBaseName);
+		}
 
-				CallbackField<?> l_callBack = getCallBackExtraField(p_fieldName);
+		return errorPolicy == Weka2JPAErrorPolicy.MARK_MISSING;
+	}
+
+	private static boolean isPowerOfTen(long p_value) {
+		while (p_value >= 10 && p_value % 10 == 0) {
+			p_value /= 10;
+		}
+		return p_value == 1;
+	}
 
-				Object l_defaultValue = getDefaultValue(p_fieldName);
+	/**
+	 * Quantidade de falhas de conversão de cada atributo desde a criação dos
+	 * atributos, apenas dos atributos que falharam.
+	 * 
+	 * @see Weka2JPAErrorPolicy
+	 * @return
+	 */
+	public Map<String, Long> getConversionErrors() {
+		Map<String, Long> l_errors = new LinkedHashMap<>();
+		for (int i = 0; conversionErrors != null && i < conversionErrors.length(); i++) {
+			long l_count = conversionErrors.get(i);
+			if (l_count > 0)
+				l_errors.put(slotNames[i], l_count);
+		}
+		return l_errors;
+	}
 
-				boolean l_incognito = false;
+	/**
+	 * Define o tratamento das falhas de conversão deste processador, por
+	 * padrão o do helper.
+	 * 
+	 * @param p_policy
+	 */
+	public void setErrorPolicy(Weka2JPAErrorPolicy p_policy) {
+		errorPolicy = p_policy;
+	}
 
-				if (checkMissingFieldValue(p_fieldName, l_defaultValue)
-						|| (useNullLikeIncognito() && l_defaultValue == null))
-					l_incognito = true;
+	/**
+	 * Converte as linhas, omitindo as linhas descartadas.
+	 * 
+	 * @param p_atts
+	 * @param p_rows
+	 * @return
+	 */
+	private List<double[]> convertRows(Attribute[] p_atts, Collection<?> p_rows) {
+		List<double[]> l_rows = new ArrayList<>(p_rows.size());
+		for (Object l_row : p_rows) {
+			double[] l_vals = convertRow(p_atts, l_row);
+			if (l_vals != null)
+				l_rows.add(l_vals);
+		}
+		return l_rows;
+	}
 
-				if (l_callBack instanceof CallbackFieldToNumber) {
-					@SuppressWarnings("rawtypes")
-					Number l_value = (Number) ((CallbackFieldToNumber) l_callBack).call(p_entity, p_fieldName,
-							l_defaultValue);
-					
-					if (l_value != null) {
-						l_val = l_value.doubleValue();
+	/**
+	 * Indica se as linhas devem ser convertidas em paralelo.
+	 * 
+	 * Apenas as linhas da consulta de projeção são convertidas em paralelo,
+	 * entidades podem carregar relacionamentos tardios (Lazy) pelo
+	 * EntityManager, que não pode ser usado por várias threads, e são
+	 * convertidas sequencialmente, como na gravação simultânea, veja
+	 * {@link Weka2JPAHelper#setPipelinedSave(boolean)}.
+	 * 
+	 * @param p_rows
+	 * @return
+	 */
+	private boolean isParallel(Collection<?> p_rows) {
+		if (conversionThreads < 2 || p_rows.size() < 2 * MIN_ROWS_PER_TASK)
+			return false;
+		if (projection)
+			return true;
+		if (!parallelWarned) {
+			parallelWarned = true;
+			log.warn("Conversão paralela exige a consulta de projeção, convertendo " + relationBaseName
+					+ " sequencialmente");
+		}
+		return false;
+	}
 
-					} else if (useNullLikeIncognito())
-						l_incognito = true;
+	/**
+	 * Converte as linhas dividindo-as em partes contíguas, convertidas em
+	 * paralelo pelo pool do helper, veja
+	 * {@link Weka2JPAHelper#setConversionThreads(int)}.
+	 * 
+	 * Cada parte acumula os textos dos atributos String em cópias próprias
+	 * destes atributos. Ao fim, percorrendo as partes na ordem original, os
+	 * índices locais são trocados pelos índices dos atributos do cabeçalho,
+	 * assim os textos são adicionados ao cabeçalho na mesma ordem da conversão
+	 * sequencial e o resultado é idêntico.
+	 * 
+	 * Se uma parte falhar, as partes ainda não concluídas são canceladas antes
+	 * de propagar a falha.
+	 * 
+	 * @param p_atts
+	 * @param p_rows
+	 * @return
+	 */
+	private List<double[]> convertRowsInParallel(Attribute[] p_atts, Collection<?> p_rows) {
+		Object[] l_rows = p_rows.toArray();
+		int l_tasks = Math.min(conversionThreads, l_rows.length / MIN_ROWS_PER_TASK);
+		int l_chunk = (l_rows.length + l_tasks - 1) / l_tasks;
+
+		List<Attribute[]> l_localAtts = new ArrayList<>(l_tasks);
+		List<Future<List<double[]>>> l_futures = new ArrayList<>(l_tasks);
+		boolean l_done = false;
+		try {
+			for (int l_from = 0; l_from < l_rows.length; l_from += l_chunk) {
+				Attribute[] l_atts = createLocalStringAttributes(p_atts);
+				List<?> l_part = Arrays.asList(l_rows).subList(l_from, Math.min(l_from + l_chunk, l_rows.length));
+				l_localAtts.add(l_atts);
+				l_futures.add(helper.getConversionPool().submit(() -> convertRows(l_atts, l_part)));
+			}
 
-				} else if (l_callBack instanceof CallbackFieldToString) {
-					String l_string = ((CallbackFieldToString) l_callBack).call(p_entity, p_fieldName, l_defaultValue);
-					
-					if (l_string != null)
-						l_val = p_instances.attribute(l_attIndex).addStringValue(l_string);
-					else if (useNullLikeIncognito())
-						l_incognito = true;
+			List<double[]> l_result = new ArrayList<>(l_rows.length);
+			for (int t = 0; t < l_futures.size(); t++) {
+				List<double[]> l_part;
+				try {
+					l_part = l_futures.get(t).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Conversão interrompida", e);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof ConversionWEKAJPARuntimeException)
+						throw (ConversionWEKAJPARuntimeException) e.getCause();
+					throw new IllegalStateException("Falha na conversão paralela", e.getCause());
+				}
+				mergeStringValues(p_atts, l_localAtts.get(t), l_part);
+				l_result.addAll(l_part);
+			}
+			l_done = true;
+			return l_result;
+		} finally {
+			if (!l_done) {
+				for (Future<List<double[]>> l_future : l_futures) {
+					l_future.cancel(true);
+				}
+			}
+		}
+	}
 
-				} else if (l_defaultValue != null) {
-					l_val = p_instances.attribute(l_attIndex).addStringValue(l_defaultValue.toString());
-				} else if (useNullLikeIncognito())
-					l_incognito = true;
+	/**
+	 * Cria cópias vazias dos atributos String para uma parte da conversão
+	 * paralela, os demais atributos não são alterados pelos conversores e são
+	 * compartilhados.
+	 * 
+	 * O índice zero da cópia recebe o mesmo texto do cabeçalho, pois alguns
+	 * conversores usam o valor zero sem adicionar um texto.
+	 * 
+	 * @param p_atts
+	 * @return
+	 */
+	private static Attribute[] createLocalStringAttributes(Attribute[] p_atts) {
+		Attribute[] l_atts = p_atts.clone();
+		for (int i = 0; i < l_atts.length; i++) {
+			if (!l_atts[i].isString())
+				continue;
+			l_atts[i] = new Attribute(p_atts[i].name(), (List<String>) null);
+			if (p_atts[i].numValues() > 0)
+				l_atts[i].addStringValue(p_atts[i].value(0));
+		}
+		return l_atts;
+	}
 
-				if (l_incognito)
-					p_incoginitoAttributes.add(p_att);
-				
-				p_listVals[l_attIndex] = l_val;
-				
-			} catch (Exception e) {
-				// does nothing ignores the value?
-				log.info(e.getMessage());
+	/**
+	 * Troca os índices dos textos das cópias locais pelos índices dos
+	 * atributos do cabeçalho, adicionando os textos ao cabeçalho.
+	 * 
+	 * @param p_atts
+	 * @param p_localAtts
+	 * @param p_rows
+	 */
+	private static void mergeStringValues(Attribute[] p_atts, Attribute[] p_localAtts, List<double[]> p_rows) {
+		for (double[] l_vals : p_rows) {
+			for (int i = 0; i < p_atts.length; i++) {
+				if (p_atts[i] == p_localAtts[i] || Utils.isMissingValue(l_vals[i]))
+					continue;
+				int l_index = (int) l_vals[i];
+				if (l_index < p_localAtts[i].numValues())
+					l_vals[i] = p_atts[i].addStringValue(p_localAtts[i].value(l_index));
 			}
+		}
+	}
+
+	private static Attribute[] attributesOf(Instances p_instances) {
+		Attribute[] l_atts = new Attribute[p_instances.numAttributes()];
+		for (int i = 0; i < l_atts.length; i++) {
+			l_atts[i] = p_instances.attribute(i);
+		}
+		return l_atts;
+	}
+
+	/**
+	 * Cria a instancia com a representação informada.
+	 * 
+	 * @param p_instances
+	 * @param p_type
+	 * @param p_vals
+	 * @return
+	 */
+	private Instance newInstance(Instances p_instances, Weka2JPAInstanceType p_type, double[] p_vals) {
+		Instance l_instance;
+		switch (p_type) {
+		case SPARSE:
+			l_instance = new SparseInstance(1.0, p_vals);
+			break;
+		case BINARY_SPARSE:
+			l_instance = new BinarySparseInstance(1.0, p_vals);
+			break;
+		default:
+			l_instance = new DenseInstance(1.0, p_vals);
+		}
+		l_instance.setDataset(p_instances);
+		return l_instance;
+	}
 
-		});
+	private static Weka2JPAInstanceType chooseInstanceType(long p_nonZero, long p_values) {
+		if (p_values > 0 && p_nonZero <= p_values * SPARSE_MAX_DENSITY)
+			return Weka2JPAInstanceType.SPARSE;
+		return Weka2JPAInstanceType.DENSE;
 	}
 
-	private void processValueFromEachField(final E p_entityObj, final Instances p_instances, final double[] p_vals,
-			final ArrayList<Attribute> p_atts, final ArrayList<Attribute> p_incoginitoAttributes) {
+	/**
+	 * Quantidade de valores que uma instancia esparsa precisa guardar, os
+	 * incógnitos também são guardados.
+	 */
+	private static int countNonZero(double[] p_vals) {
+		int l_count = 0;
+		for (double l_val : p_vals) {
+			if (l_val != 0)
+				l_count++;
+		}
+		return l_count;
+	}
 
-		mapAttributeToField.forEach((p_att, p_field) -> {
+	/**
+	 * Reserva o indice zero dos atributos String para
+	 * {@link #SPARSE_STRING_PLACEHOLDER}, pois nas representações esparsas o
+	 * valor zero não é gravado e o primeiro texto encontrado seria perdido.
+	 * 
+	 * @param p_atts
+	 */
+	private void reserveSparseStringValues(List<Attribute> p_atts) {
+		for (Attribute l_att : p_atts) {
+			if (l_att.isString())
+				l_att.setStringValue(SPARSE_STRING_PLACEHOLDER);
+		}
+	}
 
-			try {
+	/**
+	 * Cria a consulta JPQL de projeção, que obtem apenas as colunas usadas
+	 * pelos atributos em vez das entidades:
+	 * 
+	 * <code>SELECT E.id, E.a, E.b, R2.id FROM Entidade E LEFT JOIN E.ref R2</code>
+	 * 
+	 * A primeira coluna é a chave da entidade base, quando esta possui uma
+	 * chave simples, seguida de uma coluna para cada campo na ordem dos
+	 * atributos. Campos ManyToOne são projetados pela chave da entidade
+	 * referenciada, resolvida pelo dicionário do atributo, evitando carregar
+	 * as entidades referenciadas.
+	 * 
+	 * @return
+	 */
+	public String createProjectionQuery() {
+		List<String> l_columns = new ArrayList<>(plan.getFields().size() + 1);
+		StringBuilder l_from = new StringBuilder(" FROM ").append(getEntityName(entityClass)).append(" E");
+
+		if (projectionIdName != null)
+			l_columns.add("E." + projectionIdName);
+
+		for (Weka2JPAFieldMapping l_mapping : plan.getFields()) {
+			if (l_mapping.getKind() == Weka2JPAAttributeKind.NOMINAL_REFERENCE) {
+				String l_alias = "R" + l_columns.size();
+				l_from.append(" LEFT JOIN E.").append(l_mapping.getFieldName()).append(' ').append(l_alias);
+				l_columns.add(l_alias + "." + getIdName(l_mapping.getMetadata().getType()));
+			} else {
+				l_columns.add("E." + l_mapping.getFieldName());
+			}
+		}
 
-				int l_attIndex = p_atts.indexOf(p_att);
+		return "SELECT " + String.join(", ", l_columns) + l_from;
+	}
 
-				Class<?> p_fieldType = p_field.getType();
-				p_field.setAccessible(true);
+	/**
+	 * Nome do campo chave da entidade, pelo metamodelo do JPA.
+	 * 
+	 * @param p_entityClass
+	 * @see Weka2JPAKeysetEntitySource#supports(javax.persistence.EntityManager,
+	 *      Class)
+	 * @return o nome ou null caso a entidade não possua chave simples
+	 */
+	private String getIdName(Class<?> p_entityClass) {
+		if (!Weka2JPAKeysetEntitySource.supports(session.getEntityManager(), p_entityClass))
+			return null;
+		EntityType<?> l_type = session.getEntityManager().getMetamodel().entity(p_entityClass);
+		return l_type.getId(l_type.getIdType().getJavaType()).getName();
+	}
 
-				double l_val = 0;
-				boolean l_incognito = false;
-				if (p_fieldType == String.class) {
-					String l_string = (String) p_field.get(p_entityObj);
+	/**
+	 * Nome da entidade usado nas consultas JPQL, que pode diferir do nome da
+	 * classe quando definido em {@link javax.persistence.Entity#name()}.
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	private String getEntityName(Class<?> p_entityClass) {
+		return session.getEntityManager().getMetamodel().entity(p_entityClass).getName();
+	}
 
-					if (l_string != null) {
-						l_val = p_instances.attribute(l_attIndex).addStringValue(l_string);
+	/**
+	 * Nome do campo chave da entidade base, primeira coluna da consulta de
+	 * projeção.
+	 * 
+	 * @return o nome ou null caso a entidade não possua chave simples
+	 */
+	public String getProjectionIdName() {
+		return projectionIdName;
+	}
 
-						if (checkMissingFieldValue(p_field.getName(), l_string))
-							l_incognito = true;
+	/**
+	 * Verifica se o plano pode ser atendido pela consulta de projeção.
+	 * 
+	 * Campos extras dependem da entidade para seus callbacks, portanto exigem
+	 * que as entidades sejam carregadas. A consulta também precisa de ao
+	 * menos duas colunas para que cada linha seja um vetor, e cada campo
+	 * ManyToOne é lido pela chave da entidade referenciada, que deve ser
+	 * simples.
+	 * 
+	 * @return
+	 */
+	public boolean isProjectionSupported() {
+		if (!plan.getExtraFields().isEmpty())
+			return false;
+		for (Weka2JPAFieldMapping l_mapping : plan.getFields()) {
+			if (l_mapping.getKind() == Weka2JPAAttributeKind.NOMINAL_REFERENCE
+					&& getIdName(l_mapping.getMetadata().getType()) == null)
+				return false;
+		}
+		int l_columns = plan.getFields().size() + (getIdName(entityClass) == null ? 0 : 1);
+		return l_columns >= 2;
+	}
 
-					} else if (useNullLikeIncognito())
-						l_incognito = true;
+	/**
+	 * @see #setProjection(boolean)
+	 * @return
+	 */
+	public boolean isProjection() {
+		return projection;
+	}
 
-				} else if (p_fieldType.isAssignableFrom(Number.class)) {
-					Double l_double = p_field.getDouble(p_entityObj);
+	/**
+	 * Ativa o modo projeção, no qual as linhas são os vetores de colunas
+	 * obtidos pela consulta {@link #createProjectionQuery()} e não entidades.
+	 * 
+	 * Deve ser chamado antes de {@link #createAttributes()}.
+	 * 
+	 * No modo projeção o valor incógnito de campos ManyToOne, veja
+	 * {@link Weka2JPAHelper#setMissing(String, Object)}, é comparado com a
+	 * chave da entidade referenciada.
+	 * 
+	 * @param p_flag
+	 */
+	public void setProjection(boolean p_flag) {
+		projection = p_flag;
+		projectionIdName = p_flag ? getIdName(entityClass) : null;
+	}
 
-					if (l_double != null) {
-						l_val = l_double;
+	/**
+	 * Define o cabeçalho de um arquivo já gravado ao qual as instancias serão
+	 * acrescentadas.
+	 * 
+	 * Os atributos nominais mantêm os valores deste cabeçalho, na mesma ordem,
+	 * assim os índices gravados continuam válidos. Valores que não existam no
+	 * cabeçalho são convertidos em incógnitos.
+	 * 
+	 * Deve ser chamado antes de {@link #createAttributes()}.
+	 * 
+	 * @param p_header
+	 */
+	public void setExistingHeader(Instances p_header) {
+		existingHeader = p_header;
+	}
 
-						if (checkMissingFieldValue(p_field.getName(), l_double))
-							l_incognito = true;
+	/**
+	 * Cria um cabeçalho para a conversão de uma única página, com cópias
+	 * próprias dos atributos String, permitindo que páginas diferentes sejam
+	 * convertidas e gravadas ao mesmo tempo.
+	 * 
+	 * @see Weka2JPAExportPipeline
+	 * @param p_header
+	 * @return
+	 */
+	public Instances createPageHeader(Instances p_header) {
+		Instances l_pageHeader = p_header.stringFreeStructure();
+		resetStringValues(l_pageHeader);
+		return l_pageHeader;
+	}
 
-					} else if (useNullLikeIncognito())
-						l_incognito = true;
+	/**
+	 * Descarta os valores acumulados pelos atributos do tipo String.
+	 * 
+	 * Usado na gravação incremental, após as instancias de uma página terem
+	 * sido gravadas seus valores String não são mais necessários, evitando que
+	 * o cabeçalho cresça conforme o tamanho da tabela.
+	 * 
+	 * @param p_instances
+	 */
+	public void resetStringValues(Instances p_instances) {
+		for (int i = 0; i < p_instances.numAttributes(); i++) {
+			Attribute l_att = p_instances.attribute(i);
+			if (l_att.isString())
+				l_att.setStringValue(SPARSE_STRING_PLACEHOLDER);
+		}
+	}
 
-				} else {
-					List<String> l_refValues = getReferenceValues(p_att);
-					Object l_value = p_field.get(p_entityObj);
-
-					String l_strValue;
-					if (l_value instanceof String) {
-						l_strValue = (String) l_value;
-					} else {
-						CallbackField<?> l_callback = getCallbackClassField(p_field);
-
-						String l_fieldName = p_field.getName();
-						if (l_callback != null)
-							l_strValue = (String) l_callback.call(p_entityObj, l_fieldName, l_value);
-						else
-							l_strValue = l_value.toString();
-					}
-
-					if ((useNullLikeIncognito() && l_strValue == null)
-							|| checkMissingFieldValue(p_field.getName(), l_value))
-						l_incognito = true;
-
-					l_val = l_refValues.indexOf(l_strValue);
-				}
-				if (l_incognito)
-					p_incoginitoAttributes.add(p_att);
+	public Class<E> getEntityClass() {
+		return entityClass;
+	}
 
-				p_vals[l_attIndex] = l_val;
+	/**
+	 * @see Weka2JPAExportSession#getMetrics()
+	 * @return
+	 */
+	Weka2JPAExportMetrics getMetrics() {
+		return metrics;
+	}
 
-			} catch (Exception e) {
-				// does nothing ignores the value?
-				log.warn(e.getMessage());
-			}
-		});
+	/**
+	 * Plano de mapeamento usado por este processador.
+	 * 
+	 * @return
+	 */
+	public Weka2JPAMappingPlan<E> getPlan() {
+		return plan;
 	}
 
 	/**
-	 * Retorna se deve ou não usar o valor null como Incognito;
+	 * Nome será usada como referencia para construir o campo \@Relation do
+	 * arquivo ARFF
 	 * 
 	 * @return
 	 */
-	private boolean useNullLikeIncognito() {
-		return helper.useNullLikeIncognito;
+	public String getRelationBaseName() {
+		return relationBaseName;
 	}
 }
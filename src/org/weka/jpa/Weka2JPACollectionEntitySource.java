@@ -0,0 +1,35 @@
+package org.weka.jpa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Entrega em páginas as entidades de uma coleção já fornecida.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public class Weka2JPACollectionEntitySource<E> implements Weka2JPAEntitySource<E> {
+
+	private Iterator<E> iterator;
+	private int pageSize;
+
+	public Weka2JPACollectionEntitySource(Collection<E> p_list, int p_pageSize) {
+		iterator = p_list.iterator();
+		pageSize = p_pageSize;
+	}
+
+	@Override
+	public List<E> nextPage() {
+		List<E> l_page = new ArrayList<>(pageSize);
+		while (iterator.hasNext() && l_page.size() < pageSize) {
+			l_page.add(iterator.next());
+		}
+		return l_page;
+	}
+}
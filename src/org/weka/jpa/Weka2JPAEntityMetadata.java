@@ -0,0 +1,133 @@
+package org.weka.jpa;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.Column;
+import javax.persistence.ManyToMany;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import javax.persistence.Temporal;
+
+/**
+ * Metadados de uma classe de entidade: a lista ordenada dos campos que podem
+ * se tornar atributos e o tipo de atributo de cada um.
+ * 
+ * A leitura de {@link Class#getDeclaredFields()} e das anotações é feita uma
+ * única vez por classe, o resultado é imutável e mantido em um cache
+ * compartilhado entre exportações e instancias de {@link Weka2JPAHelper},
+ * obtido por {@link #of(Class)}. O cache é um {@link ClassValue}, associado à
+ * própria classe, e não impede que o classloader de uma aplicação
+ * reimplantada seja descarregado.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public final class Weka2JPAEntityMetadata<E> {
+
+	private static final ClassValue<Weka2JPAEntityMetadata<?>> cache = new ClassValue<Weka2JPAEntityMetadata<?>>() {
+		@Override
+		protected Weka2JPAEntityMetadata<?> computeValue(Class<?> p_type) {
+			return new Weka2JPAEntityMetadata<>(p_type);
+		}
+	};
+
+	private final Class<E> entityClass;
+	private final String relationBaseName;
+	private final List<Weka2JPAFieldMetadata> fields;
+
+	private Weka2JPAEntityMetadata(Class<E> p_entityClass) {
+		entityClass = p_entityClass;
+		relationBaseName = p_entityClass.getSimpleName();
+
+		Field[] l_declaredFields = p_entityClass.getDeclaredFields();
+		List<Weka2JPAFieldMetadata> l_fields = new ArrayList<>(l_declaredFields.length);
+		for (Field l_field : l_declaredFields) {
+			if (l_field.getName().equals("serialVersionUID"))
+				continue;
+
+			Weka2JPAAttributeKind l_kind = kindOf(l_field);
+			if (l_kind != null)
+				l_fields.add(new Weka2JPAFieldMetadata(l_field, l_kind));
+		}
+		fields = Collections.unmodifiableList(l_fields);
+	}
+
+	/**
+	 * Obtem os metadados da classe informada, construindo-os apenas na
+	 * primeira vez em que a classe é usada.
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> Weka2JPAEntityMetadata<E> of(Class<E> p_entityClass) {
+		return (Weka2JPAEntityMetadata<E>) cache.get(p_entityClass);
+	}
+
+	/**
+	 * Define o tipo de atributo com base nas anotações do campo.
+	 * 
+	 * @param p_field
+	 * @return o tipo de atributo ou null caso o campo deva ser ignorado.
+	 */
+	private static Weka2JPAAttributeKind kindOf(Field p_field) {
+		if (p_field.getDeclaredAnnotation(Column.class) != null) {
+			Class<?> l_type = p_field.getType();
+			if (l_type == String.class)
+				return Weka2JPAAttributeKind.STRING;
+			if (isNumeric(l_type))
+				return Weka2JPAAttributeKind.NUMERIC;
+			// TODO demais tipos de coluna (Date, boolean, enum) ainda não
+			// são suportados
+			return null;
+		} else if (p_field.getDeclaredAnnotation(ManyToOne.class) != null) {
+			return Weka2JPAAttributeKind.NOMINAL_REFERENCE;
+		} else if (p_field.getDeclaredAnnotation(OneToMany.class) != null
+				|| p_field.getDeclaredAnnotation(OneToOne.class) != null
+				|| p_field.getDeclaredAnnotation(ManyToMany.class) != null
+				|| p_field.getDeclaredAnnotation(Temporal.class) != null) {
+			// TODO OneToMany, OneToOne, ManyToMany e Temporal não estão
+			// implementados ainda
+			return null;
+		}
+		// qualquer outra anotação será ignorada
+		return null;
+	}
+
+	/**
+	 * Verifica se o tipo é um primitivo númerico ou {@link Number}.
+	 * 
+	 * @param p_type
+	 * @return
+	 */
+	static boolean isNumeric(Class<?> p_type) {
+		if (p_type.isPrimitive())
+			return p_type != boolean.class && p_type != char.class && p_type != void.class;
+		return Number.class.isAssignableFrom(p_type);
+	}
+
+	public Class<E> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * Campos da entidade que podem se tornar atributos, na ordem em que foram
+	 * declarados.
+	 * 
+	 * @return lista imutável
+	 */
+	public List<Weka2JPAFieldMetadata> getFields() {
+		return fields;
+	}
+
+	public String getRelationBaseName() {
+		return relationBaseName;
+	}
+}
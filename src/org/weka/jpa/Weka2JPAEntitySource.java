@@ -0,0 +1,33 @@
+package org.weka.jpa;
+
+import java.util.List;
+
+/**
+ * Fonte das entidades que serão convertidas em instancias.
+ * 
+ * As entidades são entregues em páginas, permitindo que a exportação processe
+ * uma página por vez sem precisar manter toda a tabela em memória. Cada
+ * implementação decide como obter a próxima página, veja
+ * {@link Weka2JPAKeysetEntitySource}, {@link Weka2JPAOffsetEntitySource} e
+ * {@link Weka2JPACollectionEntitySource}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+@FunctionalInterface
+public interface Weka2JPAEntitySource<E> {
+
+	/**
+	 * Obtem a próxima página de entidades.
+	 * 
+	 * As entidades da página anterior não serão mais usadas quando este
+	 * método for chamado, portanto podem ser descartadas.
+	 * 
+	 * @return a próxima página ou uma lista vazia quando não houver mais
+	 *         entidades.
+	 */
+	public List<E> nextPage();
+}
@@ -0,0 +1,35 @@
+package org.weka.jpa;
+
+/**
+ * Define o tratamento dos valores que não puderam ser convertidos, quando o
+ * acesso ao campo ou o seu callback falham.
+ * 
+ * Em todos os casos as falhas são contadas por atributo, veja
+ * {@link Weka2JPAAttributeProcessor#getConversionErrors()} e
+ * {@link Weka2JPAExportMetrics#getConversionErrors()}, e apenas uma amostra é
+ * registrada no log.
+ * 
+ * @see Weka2JPAHelper#setErrorPolicy(Weka2JPAErrorPolicy)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPAErrorPolicy {
+
+	/**
+	 * Interrompe a exportação na primeira falha com
+	 * {@link ConversionWEKAJPARuntimeException}.
+	 */
+	FAIL_FAST,
+
+	/**
+	 * Descarta a linha inteira, que não é exportada.
+	 */
+	SKIP_ROW,
+
+	/**
+	 * Exporta o valor como incógnito (?) e mantém os demais valores da linha.
+	 */
+	MARK_MISSING;
+}
@@ -0,0 +1,362 @@
+package org.weka.jpa;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import weka.core.Attribute;
+import weka.core.Utils;
+
+/**
+ * Medições de uma exportação: o tempo de cada etapa, as linhas convertidas,
+ * os bytes gravados, os valores incógnitos e as falhas de conversão de cada
+ * atributo.
+ * 
+ * É criada pelo helper para cada sessão de exportação quando existe um
+ * receptor das medições, veja
+ * {@link Weka2JPAHelper#setMetricsReporter(Weka2JPAMetricsReporter)}, e
+ * entregue a ele quando a sessão é fechada. Sem receptor nenhuma medição é
+ * feita.
+ * 
+ * As etapas podem ocorrer em threads diferentes, com a conversão paralela ou
+ * a gravação simultânea, e neste caso a soma dos tempos das etapas pode ser
+ * maior que a duração da exportação.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAExportMetrics {
+
+	/**
+	 * Conta os bytes gravados no {@link OutputStream} envolvido.
+	 */
+	private final class CountingOutputStream extends FilterOutputStream {
+
+		private CountingOutputStream(OutputStream p_out) {
+			super(p_out);
+		}
+
+		@Override
+		public void write(int p_byte) throws IOException {
+			out.write(p_byte);
+			bytesWritten.increment();
+		}
+
+		@Override
+		public void write(byte[] p_bytes, int p_offset, int p_length) throws IOException {
+			out.write(p_bytes, p_offset, p_length);
+			bytesWritten.add(p_length);
+		}
+	}
+
+	/**
+	 * Conta os caracteres gravados no {@link Writer} envolvido.
+	 */
+	private final class CountingWriter extends FilterWriter {
+
+		private CountingWriter(Writer p_out) {
+			super(p_out);
+		}
+
+		@Override
+		public void write(int p_char) throws IOException {
+			out.write(p_char);
+			bytesWritten.increment();
+		}
+
+		@Override
+		public void write(char[] p_chars, int p_offset, int p_length) throws IOException {
+			out.write(p_chars, p_offset, p_length);
+			bytesWritten.add(p_length);
+		}
+
+		@Override
+		public void write(String p_string, int p_offset, int p_length) throws IOException {
+			out.write(p_string, p_offset, p_length);
+			bytesWritten.add(p_length);
+		}
+	}
+
+	private final long startTime = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+	private volatile long elapsedNanos = -1;
+	private volatile String entityName;
+
+	private final LongAdder[] stageNanos = new LongAdder[Weka2JPAExportStage.values().length];
+	private final LongAdder rows = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+	private final Map<String, LongAdder> callbackNanos = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> missingValues = new ConcurrentHashMap<>();
+	private final Map<String, LongAdder> conversionErrors = new ConcurrentHashMap<>();
+
+	public Weka2JPAExportMetrics() {
+		for (int i = 0; i < stageNanos.length; i++) {
+			stageNanos[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Encerra a medição da duração da exportação.
+	 */
+	void finish() {
+		if (elapsedNanos < 0)
+			elapsedNanos = System.nanoTime() - startNanos;
+	}
+
+	void setEntityName(String p_entityName) {
+		entityName = p_entityName;
+	}
+
+	void addStageNanos(Weka2JPAExportStage p_stage, long p_nanos) {
+		stageNanos[p_stage.ordinal()].add(p_nanos);
+	}
+
+	void addRows(int p_rows) {
+		rows.add(p_rows);
+	}
+
+	void addBytesWritten(long p_bytes) {
+		bytesWritten.add(p_bytes);
+	}
+
+	/**
+	 * Acumulador do tempo dos callbacks do atributo, obtido uma única vez por
+	 * conversor.
+	 * 
+	 * @param p_attributeName
+	 * @return
+	 */
+	LongAdder callbackCounter(String p_attributeName) {
+		return callbackNanos.computeIfAbsent(p_attributeName, k -> new LongAdder());
+	}
+
+	void addConversionError(String p_attributeName) {
+		conversionErrors.computeIfAbsent(p_attributeName, k -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Conta os valores incógnitos de cada atributo nas linhas convertidas.
+	 * 
+	 * @param p_atts
+	 * @param p_rows
+	 */
+	void countMissingValues(Attribute[] p_atts, List<double[]> p_rows) {
+		long[] l_counts = new long[p_atts.length];
+		for (double[] l_vals : p_rows) {
+			for (int i = 0; i < l_vals.length; i++) {
+				if (Utils.isMissingValue(l_vals[i]))
+					l_counts[i]++;
+			}
+		}
+
+		for (int i = 0; i < l_counts.length; i++) {
+			if (l_counts[i] > 0)
+				missingValues.computeIfAbsent(p_atts[i].name(), k -> new LongAdder()).add(l_counts[i]);
+		}
+	}
+
+	/**
+	 * Envolve a fonte informada medindo o tempo de obtenção das páginas.
+	 * 
+	 * @param p_source
+	 * @return
+	 */
+	<T> Weka2JPAEntitySource<T> timeQuery(Weka2JPAEntitySource<T> p_source) {
+		return () -> {
+			long l_start = System.nanoTime();
+			try {
+				return p_source.nextPage();
+			} finally {
+				addStageNanos(Weka2JPAExportStage.QUERY, System.nanoTime() - l_start);
+			}
+		};
+	}
+
+	/**
+	 * Envolve o destino informado medindo o tempo de gravação.
+	 * 
+	 * @param p_sink
+	 * @return
+	 */
+	Weka2JPAInstanceSink timeWrite(Weka2JPAInstanceSink p_sink) {
+		return p_instance -> {
+			long l_start = System.nanoTime();
+			try {
+				p_sink.write(p_instance);
+			} finally {
+				addStageNanos(Weka2JPAExportStage.WRITE, System.nanoTime() - l_start);
+			}
+		};
+	}
+
+	/**
+	 * Envolve o {@link OutputStream} informado contando os bytes gravados.
+	 * 
+	 * @param p_out
+	 * @return
+	 */
+	OutputStream countBytes(OutputStream p_out) {
+		return new CountingOutputStream(p_out);
+	}
+
+	/**
+	 * Envolve o {@link Writer} informado contando os caracteres gravados.
+	 * 
+	 * @param p_out
+	 * @return
+	 */
+	Writer countChars(Writer p_out) {
+		return new CountingWriter(p_out);
+	}
+
+	/**
+	 * Nome da relação exportada, o nome da entidade base.
+	 * 
+	 * @return
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
+
+	/**
+	 * Início da exportação em milissegundos, como
+	 * {@link System#currentTimeMillis()}.
+	 * 
+	 * @return
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Duração da exportação, até o momento quando ainda não encerrada.
+	 * 
+	 * @return
+	 */
+	public long getElapsedNanos() {
+		long l_elapsed = elapsedNanos;
+		return l_elapsed < 0 ? System.nanoTime() - startNanos : l_elapsed;
+	}
+
+	/**
+	 * Tempo gasto na etapa informada, somado entre todas as threads.
+	 * 
+	 * @param p_stage
+	 * @return
+	 */
+	public long getStageNanos(Weka2JPAExportStage p_stage) {
+		if (p_stage == Weka2JPAExportStage.CALLBACK) {
+			long l_total = 0;
+			for (LongAdder l_nanos : callbackNanos.values()) {
+				l_total += l_nanos.sum();
+			}
+			return l_total;
+		}
+		return stageNanos[p_stage.ordinal()].sum();
+	}
+
+	/**
+	 * Quantidade de linhas convertidas em instancias.
+	 * 
+	 * @return
+	 */
+	public long getRows() {
+		return rows.sum();
+	}
+
+	/**
+	 * Linhas convertidas por segundo de exportação.
+	 * 
+	 * @return
+	 */
+	public double getRowsPerSecond() {
+		long l_elapsed = getElapsedNanos();
+		return l_elapsed == 0 ? 0 : getRows() * (double) TimeUnit.SECONDS.toNanos(1) / l_elapsed;
+	}
+
+	/**
+	 * Bytes gravados no destino, após a compactação quando houver. Na
+	 * gravação por um {@link java.io.Writer} fornecido são contados os
+	 * caracteres.
+	 * 
+	 * @return
+	 */
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * Tempo dos callbacks de cada atributo que possui callback.
+	 * 
+	 * @return
+	 */
+	public Map<String, Long> getCallbackNanos() {
+		return sums(callbackNanos);
+	}
+
+	/**
+	 * Quantidade de valores incógnitos de cada atributo.
+	 * 
+	 * @return
+	 */
+	public Map<String, Long> getMissingValues() {
+		return sums(missingValues);
+	}
+
+	/**
+	 * Quantidade de falhas de conversão de cada atributo, valores que não
+	 * puderam ser convertidos e foram substituídos.
+	 * 
+	 * @return
+	 */
+	public Map<String, Long> getConversionErrors() {
+		return sums(conversionErrors);
+	}
+
+	public long getMissingValueCount() {
+		return total(missingValues);
+	}
+
+	public long getConversionErrorCount() {
+		return total(conversionErrors);
+	}
+
+	private static Map<String, Long> sums(Map<String, LongAdder> p_counters) {
+		Map<String, Long> l_sums = new TreeMap<>();
+		p_counters.forEach((k, v) -> l_sums.put(k, v.sum()));
+		return Collections.unmodifiableMap(l_sums);
+	}
+
+	private static long total(Map<String, LongAdder> p_counters) {
+		long l_total = 0;
+		for (LongAdder l_counter : p_counters.values()) {
+			l_total += l_counter.sum();
+		}
+		return l_total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder l_text = new StringBuilder();
+		l_text.append(entityName).append(": ").append(getRows()).append(" linhas em ")
+				.append(TimeUnit.NANOSECONDS.toMillis(getElapsedNanos())).append(" ms (")
+				.append(Math.round(getRowsPerSecond())).append(" linhas/s)");
+		for (Weka2JPAExportStage l_stage : Weka2JPAExportStage.values()) {
+			l_text.append(", ").append(l_stage).append(" ")
+					.append(TimeUnit.NANOSECONDS.toMillis(getStageNanos(l_stage))).append(" ms");
+		}
+		l_text.append(", ").append(getBytesWritten()).append(" bytes, ").append(getMissingValueCount())
+				.append(" incógnitos, ").append(getConversionErrorCount()).append(" falhas de conversão");
+		return l_text.toString();
+	}
+}
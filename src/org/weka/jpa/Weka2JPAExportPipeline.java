@@ -0,0 +1,194 @@
+package org.weka.jpa;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Exportação em estágios simultâneos: uma thread obtem as páginas da fonte,
+ * outra converte cada página em instancias e a thread que chamou
+ * {@link #run(Weka2JPAInstanceSink)} grava as instancias, assim a consulta ao banco, a
+ * conversão e a gravação do arquivo acontecem ao mesmo tempo.
+ * 
+ * Os estágios são ligados por filas limitadas, quando um estágio está mais
+ * lento os anteriores aguardam, mantendo em memória no máximo algumas páginas.
+ * 
+ * Cada página é convertida com seu próprio cabeçalho, veja
+ * {@link Weka2JPAAttributeProcessor#createPageHeader(Instances)}, pois os
+ * valores dos atributos String da página sendo gravada não podem ser
+ * alterados pela conversão da próxima página.
+ * 
+ * As entidades são convertidas enquanto a próxima página é obtida, já
+ * desanexadas do contexto de persistência, portanto a conversão não pode
+ * depender de carregamento tardio (Lazy), use a consulta de projeção, veja
+ * {@link Weka2JPAHelper#setProjectionQuery(boolean)}, ou uma fonte que obtenha
+ * as entidades completas.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAExportPipeline {
+
+	/**
+	 * Marca o fim das filas, comparada por identidade.
+	 */
+	private static final List<Object> END = new ArrayList<>(0);
+
+	private Weka2JPAAttributeProcessor<?> processor;
+	private Instances header;
+	private Weka2JPAEntitySource<?> source;
+	private BlockingQueue<List<?>> rows;
+	private BlockingQueue<List<?>> instances;
+	private AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	/**
+	 * @param p_processor
+	 *            processador com os atributos já criados.
+	 * @param p_header
+	 *            cabeçalho gravado no arquivo.
+	 * @param p_source
+	 * @param p_queueSize
+	 *            quantidade máxima de páginas aguardando em cada fila.
+	 */
+	public Weka2JPAExportPipeline(Weka2JPAAttributeProcessor<?> p_processor, Instances p_header,
+			Weka2JPAEntitySource<?> p_source, int p_queueSize) {
+		processor = p_processor;
+		header = p_header;
+		source = p_source;
+		rows = new ArrayBlockingQueue<>(p_queueSize);
+		instances = new ArrayBlockingQueue<>(p_queueSize);
+	}
+
+	/**
+	 * Executa a exportação, gravando as instancias no destino informado, cujo
+	 * cabeçalho já deve estar definido. O destino não é finalizado.
+	 * 
+	 * Uma falha em qualquer estágio interrompe os demais e é lançada por este
+	 * método.
+	 * 
+	 * @param p_sink
+	 * @throws IOException
+	 */
+	public void run(Weka2JPAInstanceSink p_sink) throws IOException {
+		ExecutorService l_executor = Executors.newFixedThreadPool(2, r -> {
+			Thread l_thread = new Thread(r, "Weka2JPAExportPipeline");
+			l_thread.setDaemon(true);
+			return l_thread;
+		});
+		try {
+			l_executor.execute(this::read);
+			l_executor.execute(this::convert);
+			write(p_sink);
+		} finally {
+			l_executor.shutdownNow();
+			awaitTermination(l_executor);
+		}
+
+		Throwable l_failure = failure.get();
+		if (l_failure instanceof RuntimeException)
+			throw (RuntimeException) l_failure;
+		if (l_failure instanceof Error)
+			throw (Error) l_failure;
+		if (l_failure != null)
+			throw new IOException(l_failure);
+	}
+
+	/**
+	 * Aguarda o fim dos estágios interrompidos. Uma consulta JDBC não atende à
+	 * interrupção, e a sessão da exportação, cujo {@link javax.persistence.EntityManager}
+	 * não pode ser usado por duas threads, só pode ser fechada depois que a
+	 * leitura terminar.
+	 * 
+	 * @param p_executor
+	 */
+	private static void awaitTermination(ExecutorService p_executor) {
+		boolean l_interrupted = false;
+		while (true) {
+			try {
+				if (p_executor.awaitTermination(1, TimeUnit.SECONDS))
+					break;
+			} catch (InterruptedException e) {
+				l_interrupted = true;
+			}
+		}
+		if (l_interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Estágio de leitura: obtem as páginas da fonte.
+	 */
+	private void read() {
+		try {
+			List<?> l_page;
+			while (!(l_page = source.nextPage()).isEmpty()) {
+				rows.put(l_page);
+			}
+		} catch (InterruptedException e) {
+			// exportação cancelada
+			return;
+		} catch (Throwable e) {
+			failure.compareAndSet(null, e);
+		}
+		putEnd(rows);
+	}
+
+	/**
+	 * Estágio de conversão: converte cada página em instancias.
+	 */
+	private void convert() {
+		try {
+			List<?> l_page;
+			while ((l_page = rows.take()) != END) {
+				Instances l_pageHeader = processor.createPageHeader(header);
+				instances.put(processor.createInstancesFromRows(l_pageHeader, l_page));
+			}
+		} catch (InterruptedException e) {
+			// exportação cancelada
+			return;
+		} catch (Throwable e) {
+			failure.compareAndSet(null, e);
+		}
+		putEnd(instances);
+	}
+
+	/**
+	 * Estágio de gravação, executado pela thread que chamou
+	 * {@link #run(Weka2JPAInstanceSink)}.
+	 * 
+	 * @param p_sink
+	 * @throws IOException
+	 */
+	private void write(Weka2JPAInstanceSink p_sink) throws IOException {
+		try {
+			List<?> l_page;
+			while ((l_page = instances.take()) != END) {
+				for (Object l_instance : l_page) {
+					p_sink.write((Instance) l_instance);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Exportação interrompida");
+		}
+	}
+
+	private static void putEnd(BlockingQueue<List<?>> p_queue) {
+		try {
+			p_queue.put(END);
+		} catch (InterruptedException e) {
+			// exportação cancelada, o próximo estágio já terminou
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package org.weka.jpa;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sessão usada por uma exportação para consultar a camada de persistência.
+ * 
+ * No modo somente leitura, veja
+ * {@link #open(javax.persistence.EntityManagerFactory)}, a sessão possui seu
+ * próprio {@link EntityManager}, criado apenas para a exportação e fechado por
+ * {@link #close()}, com {@link FlushModeType#COMMIT} e as dicas de somente
+ * leitura aplicadas a todas as consultas, assim as entidades carregadas não
+ * são verificadas nem mantidas em cópia para detecção de alterações.
+ * 
+ * Fora deste modo a sessão apenas usa o {@link EntityManager} informado, sem
+ * fecha-lo, veja {@link #wrap(EntityManager)}.
+ * 
+ * A sessão também delimita as medições da exportação, veja
+ * {@link #getMetrics()}, entregues ao receptor quando ela é fechada.
+ * 
+ * Deve ser usada com try-with-resources:
+ * 
+ * <pre>
+ * try (Weka2JPAExportSession l_session = helper.openExportSession()) {
+ * 	...
+ * }
+ * </pre>
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAExportSession implements AutoCloseable {
+
+	/**
+	 * Dica de consulta do Hibernate para carregar entidades somente leitura.
+	 */
+	public static final String HIBERNATE_READ_ONLY = "org.hibernate.readOnly";
+
+	/**
+	 * Dica de consulta do EclipseLink para carregar entidades somente leitura.
+	 */
+	public static final String ECLIPSELINK_READ_ONLY = "eclipselink.read-only";
+
+	private Logger log = LoggerFactory.getLogger(this.getClass());
+	private EntityManager em;
+	private boolean readOnly;
+	private boolean owner;
+	private Weka2JPAExportMetrics metrics;
+	private Weka2JPAMetricsReporter reporter;
+
+	private Weka2JPAExportSession(EntityManager p_em, boolean p_readOnly, boolean p_owner) {
+		em = p_em;
+		readOnly = p_readOnly;
+		owner = p_owner;
+	}
+
+	/**
+	 * Abre uma sessão somente leitura com um {@link EntityManager} exclusivo
+	 * criado pela fábrica informada.
+	 * 
+	 * @param p_emf
+	 * @return
+	 */
+	public static Weka2JPAExportSession open(javax.persistence.EntityManagerFactory p_emf) {
+		EntityManager l_em = p_emf.createEntityManager();
+		l_em.setFlushMode(FlushModeType.COMMIT);
+		l_em.setProperty(HIBERNATE_READ_ONLY, true);
+		l_em.setProperty(ECLIPSELINK_READ_ONLY, true);
+		return new Weka2JPAExportSession(l_em, true, true);
+	}
+
+	/**
+	 * Cria uma sessão que apenas usa o {@link EntityManager} informado, que
+	 * não será fechado ao fim da sessão.
+	 * 
+	 * @param p_em
+	 * @return
+	 */
+	public static Weka2JPAExportSession wrap(EntityManager p_em) {
+		return new Weka2JPAExportSession(p_em, false, false);
+	}
+
+	/**
+	 * Cria uma consulta aplicando as dicas de somente leitura quando a sessão
+	 * estiver neste modo.
+	 * 
+	 * @param p_qlString
+	 * @param p_resultClass
+	 * @return
+	 */
+	public <T> TypedQuery<T> createQuery(String p_qlString, Class<T> p_resultClass) {
+		TypedQuery<T> l_query = em.createQuery(p_qlString, p_resultClass);
+		applyHints(l_query);
+		return l_query;
+	}
+
+	/**
+	 * @see #createQuery(String, Class)
+	 * @param p_qlString
+	 * @return
+	 */
+	public Query createQuery(String p_qlString) {
+		Query l_query = em.createQuery(p_qlString);
+		applyHints(l_query);
+		return l_query;
+	}
+
+	private void applyHints(Query p_query) {
+		if (!readOnly)
+			return;
+		p_query.setHint(HIBERNATE_READ_ONLY, true);
+		p_query.setHint(ECLIPSELINK_READ_ONLY, true);
+		p_query.setFlushMode(FlushModeType.COMMIT);
+	}
+
+	/**
+	 * Desanexa as entidades de uma página já processada, usado antes da
+	 * leitura da página seguinte.
+	 * 
+	 * Com o {@link EntityManager} exclusivo da sessão todas as entidades são
+	 * desanexadas por {@link EntityManager#clear()}. Com o
+	 * {@link EntityManager} informado em {@link #wrap(EntityManager)} apenas
+	 * as entidades da página são desanexadas, as demais entidades do chamador
+	 * continuam gerenciadas. Quando há uma transação em andamento as
+	 * alterações pendentes são gravadas antes por
+	 * {@link EntityManager#flush()}, para que as alterações do chamador em
+	 * entidades da página não sejam descartadas.
+	 * 
+	 * @param p_entities
+	 *            entidades da página, vazia para páginas de projeção
+	 */
+	public void release(List<?> p_entities) {
+		if (owner) {
+			em.clear();
+			return;
+		}
+		if (p_entities.isEmpty())
+			return;
+
+		if (em.isJoinedToTransaction())
+			em.flush();
+		for (Object l_entity : p_entities) {
+			em.detach(l_entity);
+		}
+	}
+
+	public EntityManager getEntityManager() {
+		return em;
+	}
+
+	/**
+	 * @see #open(javax.persistence.EntityManagerFactory)
+	 * @return
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Inicia as medições da exportação, entregues ao receptor informado em
+	 * {@link #close()}.
+	 * 
+	 * @param p_reporter
+	 */
+	void startMetrics(Weka2JPAMetricsReporter p_reporter) {
+		metrics = new Weka2JPAExportMetrics();
+		reporter = p_reporter;
+	}
+
+	/**
+	 * @return as medições da exportação, ou null quando não são feitas
+	 */
+	public Weka2JPAExportMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Fecha o {@link EntityManager} exclusivo da sessão, as entidades
+	 * carregadas são desanexadas. Sessões criadas por
+	 * {@link #wrap(EntityManager)} não fecham o {@link EntityManager}.
+	 * 
+	 * Encerra as medições e as entrega ao receptor, uma única vez.
+	 */
+	@Override
+	public void close() {
+		if (owner && em.isOpen()) {
+			em.clear();
+			em.close();
+		}
+
+		Weka2JPAMetricsReporter l_reporter = reporter;
+		reporter = null;
+		if (l_reporter != null) {
+			metrics.finish();
+			try {
+				l_reporter.report(metrics);
+			} catch (RuntimeException e) {
+				log.warn("Falha ao entregar as medições da exportação", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package org.weka.jpa;
+
+/**
+ * Etapas de uma exportação cujo tempo é medido, veja
+ * {@link Weka2JPAExportMetrics#getStageNanos(Weka2JPAExportStage)}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPAExportStage {
+
+	/**
+	 * Obtenção das páginas pela fonte das linhas: a execução da consulta JPQL
+	 * e a materialização das entidades ou colunas retornadas, que o JPA
+	 * realiza em uma única chamada.
+	 */
+	QUERY,
+
+	/**
+	 * Conversão das linhas em instancias, inclusive as referências LAZY
+	 * carregadas durante a conversão e os callbacks.
+	 */
+	CONVERT,
+
+	/**
+	 * Chamadas aos callbacks dos campos, parte de {@link #CONVERT}, veja
+	 * {@link Weka2JPAExportMetrics#getCallbackNanos()}.
+	 */
+	CALLBACK,
+
+	/**
+	 * Gravação das instancias no destino.
+	 */
+	WRITE;
+}
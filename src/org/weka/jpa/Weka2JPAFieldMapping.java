@@ -0,0 +1,195 @@
+package org.weka.jpa;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.weka.jpa.utils.CallbackField;
+
+/**
+ * Mapeamento de um atributo ARFF já resolvido com a configuração do
+ * {@link Weka2JPAHelper}: o campo de origem (ou o campo extra), o tipo do
+ * atributo, o callback que será usado e a regra de valor incógnito.
+ * 
+ * Faz parte do {@link Weka2JPAMappingPlan} e é imutável.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public final class Weka2JPAFieldMapping {
+
+	private static final Predicate<Object> NEVER_MISSING = p_value -> false;
+
+	private final Weka2JPAFieldMetadata metadata;
+	private final String fieldName;
+	private final String attributeName;
+	private final Weka2JPAAttributeKind kind;
+	private final CallbackField<?> callback;
+	private final Object defaultValue;
+	private final String displayField;
+	private final List<String> nominalValues;
+	private final Object missing;
+	private final Predicate<Object> missingValue;
+	private final boolean numericMissingValue;
+	private final double missingNumber;
+
+	/**
+	 * Mapeamento de um campo da entidade base.
+	 */
+	Weka2JPAFieldMapping(Weka2JPAFieldMetadata p_metadata, CallbackField<?> p_callback, Object p_missingValue,
+			String p_displayField) {
+		metadata = p_metadata;
+		fieldName = p_metadata.getFieldName();
+		attributeName = p_metadata.getAttributeName();
+		kind = p_metadata.getKind();
+		callback = p_callback;
+		defaultValue = null;
+		displayField = p_displayField;
+		nominalValues = null;
+		missing = p_missingValue;
+		missingValue = createMissingPredicate(p_missingValue);
+		numericMissingValue = p_missingValue instanceof Number;
+		missingNumber = numericMissingValue ? ((Number) p_missingValue).doubleValue() : Double.NaN;
+	}
+
+	/**
+	 * Mapeamento de um campo extra.
+	 */
+	Weka2JPAFieldMapping(String p_extraField, Weka2JPAAttributeKind p_kind, CallbackField<?> p_callback,
+			Object p_defaultValue, Object p_missingValue, List<String> p_nominalValues) {
+		metadata = null;
+		fieldName = p_extraField;
+		attributeName = p_extraField;
+		kind = p_kind;
+		callback = p_callback;
+		defaultValue = p_defaultValue;
+		displayField = null;
+		nominalValues = p_nominalValues;
+		missing = p_missingValue;
+		missingValue = createMissingPredicate(p_missingValue);
+		numericMissingValue = p_missingValue instanceof Number;
+		missingNumber = numericMissingValue ? ((Number) p_missingValue).doubleValue() : Double.NaN;
+	}
+
+	/**
+	 * Cria a regra que identifica o valor incógnito (missing) do campo.
+	 * 
+	 * Valores númericos são comparados pelo seu valor double, assim um
+	 * incógnito informado como Integer também é reconhecido em um campo Long
+	 * ou double.
+	 * 
+	 * @param p_missingValue
+	 * @return
+	 */
+	private static Predicate<Object> createMissingPredicate(Object p_missingValue) {
+		if (p_missingValue == null)
+			return NEVER_MISSING;
+		if (p_missingValue instanceof Number) {
+			double l_missing = ((Number) p_missingValue).doubleValue();
+			return p_value -> p_value instanceof Number && ((Number) p_value).doubleValue() == l_missing;
+		}
+		return p_missingValue::equals;
+	}
+
+	public String getAttributeName() {
+		return attributeName;
+	}
+
+	/**
+	 * Callback resolvido para o campo, pelo nome no caso de campos extras ou
+	 * pela classe do campo no caso de campos da entidade base.
+	 * 
+	 * @return o callback ou null
+	 */
+	public CallbackField<?> getCallback() {
+		return callback;
+	}
+
+	/**
+	 * Valor padrão do campo extra, sempre null para campos da entidade base.
+	 * 
+	 * @return
+	 */
+	public Object getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * Campo da entidade referenciada usado como valor nominal de um campo
+	 * ManyToOne.
+	 * 
+	 * @see Weka2JPAHelper#setManyToOneDisplayField(String, String)
+	 * @return o nome do campo ou null
+	 */
+	public String getDisplayField() {
+		return displayField;
+	}
+
+	/**
+	 * Valores declarados do campo extra nominal.
+	 * 
+	 * @see Weka2JPAAttributeKind#NOMINAL
+	 * @return os valores ou null
+	 */
+	public List<String> getNominalValues() {
+		return nominalValues;
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public Weka2JPAAttributeKind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Metadados do campo da entidade base, null para campos extras.
+	 * 
+	 * @return
+	 */
+	public Weka2JPAFieldMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Valor tratado como incógnito para o campo.
+	 * 
+	 * @see Weka2JPAHelper#setMissing(String, Object)
+	 * @return o valor ou null
+	 */
+	public Object getMissingValue() {
+		return missing;
+	}
+
+	public boolean isExtraField() {
+		return metadata == null;
+	}
+
+	/**
+	 * Verifica se o valor obtido no campo deve ser tratado como incógnito.
+	 * 
+	 * @see Weka2JPAHelper#setMissing(String, Object)
+	 * @param p_value
+	 * @return
+	 */
+	public boolean isMissingValue(Object p_value) {
+		return missingValue.test(p_value);
+	}
+
+	/**
+	 * Versão de {@link #isMissingValue(Object)} para valores primitivos, sem
+	 * boxing.
+	 * 
+	 * @param p_value
+	 * @return
+	 */
+	public boolean isMissingValue(double p_value) {
+		return numericMissingValue && p_value == missingNumber;
+	}
+
+	@Override
+	public String toString() {
+		return attributeName + "(" + kind + ")";
+	}
+}
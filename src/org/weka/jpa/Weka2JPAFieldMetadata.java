@@ -0,0 +1,90 @@
+package org.weka.jpa;
+
+import java.lang.reflect.Field;
+
+import javax.persistence.Column;
+
+/**
+ * Metadados de um campo da entidade base obtidos por reflexão e anotações.
+ * 
+ * Depende apenas da classe da entidade, portanto é imutável e compartilhado
+ * por todas as exportações, veja {@link Weka2JPAEntityMetadata}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public final class Weka2JPAFieldMetadata {
+
+	private final Field field;
+	private final String attributeName;
+	private final Weka2JPAAttributeKind kind;
+
+	Weka2JPAFieldMetadata(Field p_field, Weka2JPAAttributeKind p_kind) {
+		field = p_field;
+		field.setAccessible(true);
+		kind = p_kind;
+		attributeName = createNameAttribute(p_field);
+	}
+
+	/**
+	 * Cria o nome do Attributo para uso no arquivo ARFF
+	 * 
+	 * Cria o nome do Atributo com base na anotação Column, caso ela não exista
+	 * ou o nome não seja informado utiliza o nome do campo informado.
+	 * 
+	 * @param p_field
+	 * @return
+	 */
+	private static String createNameAttribute(Field p_field) {
+		Column l_annot = p_field.getDeclaredAnnotation(Column.class);
+		String l_name = null;
+		if (l_annot != null)
+			l_name = l_annot.name();
+		if (l_name == null || l_name.isEmpty())
+			l_name = p_field.getName();
+
+		return l_name;
+	}
+
+	public String getAttributeName() {
+		return attributeName;
+	}
+
+	/**
+	 * Campo já acessível, não é preciso chamar
+	 * {@link Field#setAccessible(boolean)}.
+	 * 
+	 * @return
+	 */
+	public Field getField() {
+		return field;
+	}
+
+	public String getFieldName() {
+		return field.getName();
+	}
+
+	public Weka2JPAAttributeKind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Indica se o campo é de um tipo primitivo númerico, podendo ser lido por
+	 * {@link Field#getDouble(Object)} sem criar um objeto por valor.
+	 * 
+	 * @return
+	 */
+	public boolean isPrimitiveNumeric() {
+		return field.getType().isPrimitive() && Weka2JPAEntityMetadata.isNumeric(field.getType());
+	}
+
+	public Class<?> getType() {
+		return field.getType();
+	}
+
+	@Override
+	public String toString() {
+		return getFieldName() + "(" + kind + ")";
+	}
+}
@@ -1,15 +1,39 @@
 package org.weka.jpa;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.Temporal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.enterprise.inject.Default;
 import javax.inject.Inject;
@@ -17,19 +41,32 @@ import javax.inject.Named;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.slf4j.Logger;
 import org.weka.jpa.utils.CallbackField;
+import org.weka.jpa.utils.CallbackFieldToDouble;
+import org.weka.jpa.utils.CallbackFieldToIndex;
 import org.weka.jpa.utils.CallbackFieldToNumber;
 import org.weka.jpa.utils.CallbackFieldToString;
+import org.weka.jpa.utils.MemoizedCallbackField;
+import org.weka.jpa.utils.MemoizedCallbackFieldToNumber;
+import org.weka.jpa.utils.MemoizedCallbackFieldToString;
 
+import weka.classifiers.Classifier;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.converters.AbstractSaver;
+import weka.core.converters.ArffLoader;
 import weka.core.converters.ArffSaver;
+import weka.core.converters.SerializedInstancesSaver;
 
 public class Weka2JPAHelper<E> {
 
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
 	private Logger log;
 
 	EntityManager em;
@@ -79,7 +116,7 @@ public class Weka2JPAHelper<E> {
 	 * veja mais detalhes no método
 	 * {@link #addExtraField(String, Object, CallbackField)}
 	 */
-	Set<String> baseClassExtraFieldsNames = new HashSet<>();
+	Set<String> baseClassExtraFieldsNames = new LinkedHashSet<>();
 
 	/**
 	 * Armazena o valor padrão para cada campo extra.
@@ -89,6 +126,14 @@ public class Weka2JPAHelper<E> {
 	 */
 	Map<String, Object> baseClassDefaultValuesExtraField = new HashMap<>();
 
+	/**
+	 * Armazena os valores de cada campo extra nominal.
+	 * 
+	 * Veja mais detalhes no método
+	 * {@link #addExtraFieldNominal(String, List, Object, CallbackFieldToIndex)}.
+	 */
+	Map<String, List<String>> baseClassNominalValuesExtraField = new HashMap<>();
+
 	/**
 	 * Armazena o valor que será tratado como incóginito (missing) para o campo
 	 * da entidade base.
@@ -108,6 +153,138 @@ public class Weka2JPAHelper<E> {
 	 */
 	boolean useNullLikeIncognito = true;
 
+	/**
+	 * Define como são obtidos os valores nominais dos campos ManyToOne.
+	 * 
+	 * O padrão é consultar toda a tabela referenciada.
+	 */
+	Weka2JPANominalDomain nominalDomain = Weka2JPANominalDomain.FULL_TABLE;
+
+	/**
+	 * Armazena o campo da entidade referenciada usado como valor nominal de
+	 * cada campo ManyToOne, veja
+	 * {@link #setManyToOneDisplayField(String, String)}.
+	 */
+	Map<String, String> manyToOneDisplayFields = new HashMap<>();
+
+	/**
+	 * Armazenamento que mantém os índices dos valores nominais entre
+	 * exportações, veja
+	 * {@link #setDictionaryStore(Weka2JPANominalDictionaryStore)}.
+	 * 
+	 * O padrão é não usar.
+	 */
+	Weka2JPANominalDictionaryStore dictionaryStore = null;
+
+	/**
+	 * Quando ativo o arquivo ARFF é gravado de forma incremental, o cabeçalho
+	 * primeiro e em seguida cada página de entidades, sem construir a lista
+	 * completa de entidades nem o {@link Instances} com todos os dados.
+	 * 
+	 * O padrão é não usar.
+	 */
+	boolean streamingSave = false;
+
+	/**
+	 * Quando ativo as linhas são obtidas por uma consulta de projeção com
+	 * apenas as colunas usadas pelos atributos, em vez de entidades completas,
+	 * veja {@link Weka2JPAAttributeProcessor#createProjectionQuery()}.
+	 * 
+	 * O padrão é não usar.
+	 */
+	boolean projectionQuery = false;
+
+	/**
+	 * Quando ativo cada exportação usa uma sessão somente leitura com seu
+	 * próprio {@link EntityManager}, veja {@link #openExportSession()}.
+	 * 
+	 * O padrão é não usar.
+	 */
+	boolean readOnlyExport = false;
+
+	/**
+	 * Representação das instancias criadas, veja
+	 * {@link #setInstanceType(Weka2JPAInstanceType)}.
+	 * 
+	 * O padrão é {@link Weka2JPAInstanceType#DENSE}.
+	 */
+	Weka2JPAInstanceType instanceType = Weka2JPAInstanceType.DENSE;
+
+	/**
+	 * Quantidade de threads usadas para converter cada página de entidades,
+	 * veja {@link #setConversionThreads(int)}.
+	 * 
+	 * O padrão é converter sequencialmente.
+	 */
+	int conversionThreads = 1;
+
+	/**
+	 * Tratamento dos valores que não puderam ser convertidos, veja
+	 * {@link #setErrorPolicy(Weka2JPAErrorPolicy)}.
+	 * 
+	 * O padrão é {@link Weka2JPAErrorPolicy#MARK_MISSING}.
+	 */
+	Weka2JPAErrorPolicy errorPolicy = Weka2JPAErrorPolicy.MARK_MISSING;
+
+	/**
+	 * Quando ativo a gravação incremental obtem, converte e grava as páginas
+	 * simultaneamente, veja {@link #setPipelinedSave(boolean)}.
+	 * 
+	 * O padrão é não usar.
+	 */
+	boolean pipelinedSave = false;
+
+	/**
+	 * Quantidade máxima de páginas aguardando entre os estágios da gravação
+	 * simultânea.
+	 */
+	int pipelineQueueSize = 2;
+
+	/**
+	 * Quando ativo os arquivos são gravados pelo {@link Weka2JPAArffWriter} em
+	 * vez do {@link ArffSaver}.
+	 * 
+	 * O padrão é não usar.
+	 */
+	boolean directArffWriter = false;
+
+	/**
+	 * Formato dos arquivos gravados, quando não definido é identificado pela
+	 * extensão do arquivo, veja {@link Weka2JPAOutputFormat#of(File)}.
+	 */
+	Weka2JPAOutputFormat outputFormat = null;
+
+	/**
+	 * Pool usado na conversão paralela, criado no primeiro uso.
+	 */
+	private ForkJoinPool conversionPool;
+
+	/**
+	 * Quantidade de entidades obtidas por vez na camada de persistência, veja
+	 * {@link Weka2JPAEntitySource}.
+	 */
+	int pageSize = 1000;
+
+	/**
+	 * Planos de mapeamento já compilados para cada classe base, descartados
+	 * sempre que a configuração do helper é alterada.
+	 * 
+	 * Veja {@link #getMappingPlan(Class)}.
+	 */
+	private Map<Class<?>, Weka2JPAMappingPlan<E>> mappingPlans = new ConcurrentHashMap<>();
+
+	/**
+	 * Cache dos conjuntos de instancias obtidos em memória, null enquanto
+	 * desativado, veja {@link #setInstancesCacheTtl(long, TimeUnit)}.
+	 */
+	private volatile Weka2JPAInstancesCache instancesCache;
+
+	/**
+	 * Receptor das medições de cada exportação, null quando as medições não
+	 * são feitas, veja {@link #setMetricsReporter(Weka2JPAMetricsReporter)}.
+	 */
+	Weka2JPAMetricsReporter metricsReporter;
+
 	/**
 	 * Caso não se esteja usando CDI (como WELD) é preciso fornecer manualmente
 	 * o Logger e EntityManager para a classe;
@@ -140,6 +317,7 @@ public class Weka2JPAHelper<E> {
 	 * @param p_unknow
 	 */
 	public void addExtraField(String p_string, Number p_unknow) {
+		mappingPlans.clear();
 		baseClassExtraFieldsNames.add(p_string);
 		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
 	}
@@ -160,6 +338,7 @@ public class Weka2JPAHelper<E> {
 	 * @param p_unknow
 	 */
 	public void addExtraField(String p_string, String p_unknow) {
+		mappingPlans.clear();
 		baseClassExtraFieldsNames.add(p_string);
 		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
 
@@ -181,6 +360,7 @@ public class Weka2JPAHelper<E> {
 	 */
 	public <R extends Number, V> void addExtraFieldToNumber(String p_string, V p_unknow,
 			CallbackFieldToNumber<R> p_callback) {
+		mappingPlans.clear();
 		baseClassExtraFieldsNames.add(p_string);
 		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
 		baseClassFieldCallBack.put(p_string, p_callback);
@@ -216,8 +396,55 @@ public class Weka2JPAHelper<E> {
 	 * @param p_callback
 	 */
 	public <V> void addExtraFieldToString(String p_string, V p_unknow, CallbackFieldToString p_callback) {
+		mappingPlans.clear();
+		baseClassExtraFieldsNames.add(p_string);
+		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
+		baseClassFieldCallBack.put(p_string, p_callback);
+	}
+
+	/**
+	 * Específico para campos extras númericos calculados, o callback retorna
+	 * diretamente um double e nenhum {@link Number} é criado por valor.
+	 * 
+	 * @see #addExtraFieldToNumber(String, Object, CallbackFieldToNumber)
+	 * 
+	 * @param p_string
+	 * @param p_unknow
+	 * @param p_callback
+	 */
+	public <V> void addExtraFieldToDouble(String p_string, V p_unknow, CallbackFieldToDouble p_callback) {
+		mappingPlans.clear();
+		baseClassExtraFieldsNames.add(p_string);
+		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
+		baseClassFieldCallBack.put(p_string, p_callback);
+	}
+
+	/**
+	 * Adiciona um campo extra nominal com os valores informados, o callback
+	 * retorna diretamente o índice do valor de cada entidade.
+	 * 
+	 * Examplo: <code>
+	 * l_arffHelper.addExtraFieldNominal("faixa", Arrays.asList("baixo", "medio", "alto"), 0, (p_entity, p_field, p_value) -> {
+	 * 			return ((Produto) p_entity).getPreco() < 10 ? 0 : ((Produto) p_entity).getPreco() < 100 ? 1 : 2;
+	 *    });
+	 * </code>
+	 * 
+	 * @see CallbackFieldToIndex
+	 * 
+	 * @param p_string
+	 * @param p_values
+	 *            valores do atributo nominal, na ordem dos índices
+	 * @param p_unknow
+	 * @param p_callback
+	 */
+	public <V> void addExtraFieldNominal(String p_string, List<String> p_values, V p_unknow,
+			CallbackFieldToIndex p_callback) {
+		if (p_values == null || p_values.isEmpty())
+			throw new IllegalArgumentException("Valores do campo nominal " + p_string + " não informados");
+		mappingPlans.clear();
 		baseClassExtraFieldsNames.add(p_string);
 		baseClassDefaultValuesExtraField.put(p_string, p_unknow);
+		baseClassNominalValuesExtraField.put(p_string, Collections.unmodifiableList(new ArrayList<>(p_values)));
 		baseClassFieldCallBack.put(p_string, p_callback);
 	}
 
@@ -227,23 +454,59 @@ public class Weka2JPAHelper<E> {
 	 * 
 	 * @param p_entityClass
 	 * @param p_list
+	 * @param p_session
 	 * @return
 	 */
-	private Instances createAttributesAndInstances(Class<E> p_entityClass, Collection<E> p_list) {
+	private Instances createAttributesAndInstances(Class<E> p_entityClass, Collection<E> p_list,
+			Weka2JPAExportSession p_session) {
 
-		if (!basseClassNotEntity && !p_entityClass.isAnnotationPresent(Entity.class)) {
-			throw new NotEntityWEKAJPARuntimeException();
-		}
+		checkEntityClass(p_entityClass);
 
-		Weka2JPAAttributeProcessor<E> l_processor = new Weka2JPAAttributeProcessor<E>(p_entityClass, this);
+		Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, p_list == null, p_session);
 
 		ArrayList<Attribute> l_atts = l_processor.createAttributes();
 
-		Instances l_data = populateInstanceWithData(l_processor, l_atts, p_list);
+		Instances l_data = populateInstanceWithData(l_processor, l_atts, p_list, p_session);
 
 		return l_data;
 	}
 
+	/**
+	 * Verifica se a classe informada pode ser usada como classe base.
+	 * 
+	 * @param p_entityClass
+	 */
+	private void checkEntityClass(Class<E> p_entityClass) {
+		if (!basseClassNotEntity && !p_entityClass.isAnnotationPresent(Entity.class)) {
+			throw new NotEntityWEKAJPARuntimeException();
+		}
+	}
+
+	/**
+	 * Obtem o plano de mapeamento da classe informada com a configuração atual
+	 * deste helper.
+	 * 
+	 * O plano é compilado apenas na primeira exportação da classe e reusado
+	 * pelas exportações seguintes, até que a configuração seja alterada. Os
+	 * metadados obtidos por reflexão são compartilhados também entre helpers,
+	 * veja {@link Weka2JPAEntityMetadata#of(Class)}.
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	public Weka2JPAMappingPlan<E> getMappingPlan(Class<E> p_entityClass) {
+		return mappingPlans.computeIfAbsent(p_entityClass,
+				p_class -> Weka2JPAMappingPlan.compile(Weka2JPAEntityMetadata.of(p_entityClass), this));
+	}
+
+	/**
+	 * @see #setPageSize(int)
+	 * @return
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
 	/**
 	 * Permite informar o nome dos campos que devem ser ignorados.
 	 * 
@@ -261,6 +524,7 @@ public class Weka2JPAHelper<E> {
 	 * @param p_fieldsName
 	 */
 	public void ignoreFieldsName(List<String> p_fieldsName) {
+		mappingPlans.clear();
 		ignoreFieldsName.addAll(p_fieldsName);
 	}
 
@@ -283,6 +547,7 @@ public class Weka2JPAHelper<E> {
 	 * @param p_classes
 	 */
 	public void ignoreFieldTypeOf(Collection<Class<?>> p_classes) {
+		mappingPlans.clear();
 		ignoreFieldsTypeOf.addAll(p_classes);
 	}
 
@@ -294,27 +559,204 @@ public class Weka2JPAHelper<E> {
 		return basseClassNotEntity;
 	}
 
+	/**
+	 * @see #setProjectionQuery(boolean)
+	 * @return
+	 */
+	public boolean isProjectionQuery() {
+		return projectionQuery;
+	}
+
+	/**
+	 * @see #setReadOnlyExport(boolean)
+	 * @return
+	 */
+	public boolean isReadOnlyExport() {
+		return readOnlyExport;
+	}
+
+	/**
+	 * @see #setStreamingSave(boolean)
+	 * @return
+	 */
+	public boolean isStreamingSave() {
+		return streamingSave;
+	}
+
 	private Instances populateInstanceWithData(Weka2JPAAttributeProcessor<E> l_processor, ArrayList<Attribute> p_atts,
-			Collection<E> p_list) {
+			Collection<E> p_list, Weka2JPAExportSession p_session) {
 
-		Collection<E> l_list;
+		Instances l_instances;
 		if (p_list == null) {
 			log.info("Instancias obtidos diretamente pelo JPA");
-			String l_qlString = "SELECT E FROM " + l_processor.getRelationBaseName() + " E ";
-
-			Query l_query = em.createQuery(l_qlString);
+			Weka2JPAEntitySource<?> l_source = createExportSource(l_processor, p_session);
 
-			l_list = l_query.getResultList();
+			l_instances = new Instances(l_processor.getRelationBaseName(), p_atts, 0);
+			addPages(l_instances, l_processor, l_source);
 		} else {
 			log.info("Instancias usando lista de entidades fornecida");
-			l_list = p_list;
+			l_instances = l_processor.createInstances(p_atts, p_list);
 		}
 
-		Instances l_instances = l_processor.createInstances(p_atts, l_list);
-
 		return l_instances;
 	}
 
+	/**
+	 * Converte e adiciona ao conjunto de instancias todas as linhas da fonte.
+	 * 
+	 * @param p_instances
+	 * @param p_processor
+	 * @param p_source
+	 */
+	private void addPages(Instances p_instances, Weka2JPAAttributeProcessor<E> p_processor,
+			Weka2JPAEntitySource<?> p_source) {
+		List<?> l_page;
+		while (!(l_page = p_source.nextPage()).isEmpty()) {
+			for (Instance l_instance : p_processor.createInstancesFromRows(p_instances, l_page)) {
+				p_instances.add(l_instance);
+			}
+		}
+	}
+
+	/**
+	 * Cria o processador de atributos da classe informada com base no plano de
+	 * mapeamento em cache.
+	 * 
+	 * Quando as linhas serão obtidas pelo JPA e a consulta de projeção estiver
+	 * ativa, veja {@link #setProjectionQuery(boolean)},
+	 * {@link #setPipelinedSave(boolean)} e
+	 * {@link #setConversionThreads(int)}, o processador é
+	 * colocado no modo projeção se o plano permitir, caso contrário as
+	 * entidades são carregadas normalmente.
+	 * 
+	 * @param p_entityClass
+	 * @param p_fromJPA
+	 * @param p_session
+	 * @return
+	 */
+	Weka2JPAAttributeProcessor<E> createProcessor(Class<E> p_entityClass, boolean p_fromJPA,
+			Weka2JPAExportSession p_session) {
+		Weka2JPAMappingPlan<E> l_plan = getMappingPlan(p_entityClass);
+		Weka2JPAAttributeProcessor<E> l_processor = new Weka2JPAAttributeProcessor<E>(l_plan, this, p_session);
+
+		if ((projectionQuery || pipelinedSave || conversionThreads > 1) && p_fromJPA) {
+			if (l_processor.isProjectionSupported())
+				l_processor.setProjection(true);
+			else
+				log.warn("Consulta de projeção não suportada para " + p_entityClass.getSimpleName()
+						+ ", as entidades serão carregadas");
+		}
+
+		return l_processor;
+	}
+
+	/**
+	 * Cria a fonte das linhas exportadas pelo processador informado, a
+	 * consulta de projeção quando o processador está no modo projeção, caso
+	 * contrário a fonte padrão das entidades.
+	 * 
+	 * @param p_processor
+	 * @param p_session
+	 * @return
+	 */
+	Weka2JPAEntitySource<?> createExportSource(Weka2JPAAttributeProcessor<E> p_processor,
+			Weka2JPAExportSession p_session) {
+		return createExportSource(p_processor, p_session, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Cria a fonte das linhas exportadas pelo processador informado que
+	 * atendem à condição informada.
+	 * 
+	 * @see #createEntitySource(Class, Weka2JPAExportSession, String, Map)
+	 * @param p_processor
+	 * @param p_session
+	 * @param p_condition
+	 * @param p_parameters
+	 * @return
+	 */
+	private Weka2JPAEntitySource<?> createExportSource(Weka2JPAAttributeProcessor<E> p_processor,
+			Weka2JPAExportSession p_session, String p_condition, Map<String, ?> p_parameters) {
+		if (p_processor.isProjection())
+			return timeQuery(new Weka2JPAProjectionSource(p_session, p_processor, pageSize, p_condition,
+					p_parameters), p_session);
+
+		return timeQuery(createEntitySource(p_processor.getEntityClass(), p_session, p_condition, p_parameters),
+				p_session);
+	}
+
+	/**
+	 * Cria a fonte padrão das entidades quando estas são obtidas pelo JPA.
+	 * 
+	 * Usa a paginação pela chave primária ({@link Weka2JPAKeysetEntitySource})
+	 * quando possível, caso contrário a paginação por deslocamento (
+	 * {@link Weka2JPAOffsetEntitySource}).
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	public Weka2JPAEntitySource<E> createEntitySource(Class<E> p_entityClass) {
+		return createEntitySource(p_entityClass, Weka2JPAExportSession.wrap(em));
+	}
+
+	/**
+	 * Cria a fonte padrão das entidades consultando pela sessão informada, veja
+	 * {@link #openExportSession()}.
+	 * 
+	 * @param p_entityClass
+	 * @param p_session
+	 * @return
+	 */
+	public Weka2JPAEntitySource<E> createEntitySource(Class<E> p_entityClass, Weka2JPAExportSession p_session) {
+		return createEntitySource(p_entityClass, p_session, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Cria a fonte padrão das entidades que atendem à condição JPQL
+	 * informada, escrita sobre o alias <code>E</code> da entidade base, por
+	 * exemplo <code>E.alteracao &gt; :desde</code>.
+	 * 
+	 * @param p_entityClass
+	 * @param p_session
+	 * @param p_condition
+	 *            condição ou null para todas as entidades
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 * @return
+	 */
+	public Weka2JPAEntitySource<E> createEntitySource(Class<E> p_entityClass, Weka2JPAExportSession p_session,
+			String p_condition, Map<String, ?> p_parameters) {
+		if (Weka2JPAKeysetEntitySource.supports(p_session.getEntityManager(), p_entityClass))
+			return new Weka2JPAKeysetEntitySource<>(p_session, p_entityClass, pageSize, p_condition, p_parameters);
+
+		return new Weka2JPAOffsetEntitySource<>(p_session, p_entityClass, pageSize, p_condition, p_parameters);
+	}
+
+	/**
+	 * Abre a sessão usada por uma exportação.
+	 * 
+	 * Quando a exportação somente leitura estiver ativa, veja
+	 * {@link #setReadOnlyExport(boolean)}, a sessão usa um
+	 * {@link EntityManager} exclusivo, criado pela mesma fábrica do
+	 * {@link EntityManager} do helper e fechado junto com a sessão. Caso
+	 * contrário a sessão usa o próprio {@link EntityManager} do helper e a
+	 * exportação desanexa apenas as entidades que carregou, veja
+	 * {@link Weka2JPAExportSession#release(java.util.List)}.
+	 * 
+	 * @return
+	 */
+	public Weka2JPAExportSession openExportSession() {
+		Weka2JPAExportSession l_session;
+		if (readOnlyExport)
+			l_session = Weka2JPAExportSession.open(em.getEntityManagerFactory());
+		else
+			l_session = Weka2JPAExportSession.wrap(em);
+
+		if (metricsReporter != null)
+			l_session.startMetrics(metricsReporter);
+		return l_session;
+	}
+
 	/**
 	 * Cria o arquivo ARFF com base na classe da entidade informada, consultando
 	 * a camada de persitencia injetada pela lista de objetos.
@@ -333,13 +775,15 @@ public class Weka2JPAHelper<E> {
 	 */
 	public void save(File p_file, Class<E> p_entityClass) throws IOException {
 
-		Instances l_data = createAttributesAndInstances(p_entityClass, null);
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			if (isIncremental(getOutputFormat(p_file))) {
+				saveIncremental(p_file, p_entityClass, null, l_session);
+				return;
+			}
 
-		ArffSaver saver = new ArffSaver();
-		saver.setInstances(l_data);
-		saver.setFile(p_file);
-
-		saver.writeBatch();
+			Instances l_data = createAttributesAndInstances(p_entityClass, null, l_session);
+			saveBatch(p_file, l_data, l_session);
+		}
 	}
 
 	/**
@@ -360,77 +804,1238 @@ public class Weka2JPAHelper<E> {
 	 * @throws IOException
 	 */
 	public void save(File p_file, Class<E> p_entityClass, Collection<E> p_list) throws IOException {
-		Instances l_data = createAttributesAndInstances(p_entityClass, p_list);
 
-		ArffSaver saver = new ArffSaver();
-		saver.setInstances(l_data);
-		saver.setFile(p_file);
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			if (isIncremental(getOutputFormat(p_file))) {
+				saveIncremental(p_file, p_entityClass, new Weka2JPACollectionEntitySource<>(p_list, pageSize),
+						l_session);
+				return;
+			}
 
-		saver.writeBatch();
+			Instances l_data = createAttributesAndInstances(p_entityClass, p_list, l_session);
+			saveBatch(p_file, l_data, l_session);
+		}
 	}
 
 	/**
-	 * Permite usar classes que não sejam entidades, neste caso a classe deverá
-	 * vir completamente preenchida. Ou durante uma transação obter dados em
-	 * métodos Lazy.
+	 * Cria o arquivo ARFF de forma incremental com base na classe da entidade
+	 * informada e nas entidades entregues pela fonte informada.
 	 * 
-	 * ATENÇÃO: Futuramente as classes escravas poderão ser consultadas no banco
-	 * apenas se houver mapeamento para queries ou callbacks
+	 * Permite fornecer uma fonte especializada de entidades, por exemplo com
+	 * filtros ou ordenação própria, mantendo a gravação incremental
+	 * independente de {@link #setStreamingSave(boolean)}.
 	 * 
-	 * @param p_flag
+	 * @see Weka2JPAEntitySource
+	 * @param p_file
+	 * @param p_entityClass
+	 * @param p_source
+	 * @throws IOException
 	 */
-	public void setBaseClassNotEntity(boolean p_flag) {
-		basseClassNotEntity = p_flag;
+	public void save(File p_file, Class<E> p_entityClass, Weka2JPAEntitySource<E> p_source) throws IOException {
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			if (isIncremental(getOutputFormat(p_file))) {
+				saveIncremental(p_file, p_entityClass, p_source, l_session);
+				return;
+			}
+
+			checkEntityClass(p_entityClass);
+			Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, false, l_session);
+			Instances l_data = new Instances(l_processor.getRelationBaseName(), l_processor.createAttributes(), 0);
+			addPages(l_data, l_processor, timeQuery(p_source, l_session));
+			saveBatch(p_file, l_data, l_session);
+		}
 	}
 
 	/**
-	 * Define um callback especifico para converter uma determinada classe em
-	 * String.
-	 * 
-	 * Este callback pode ser usado sempre que é encontrado uma classe filha,
-	 * para fornecer sua representação string no lugar de chamar o método
-	 * {@link Object#toString()}
+	 * Verifica se o arquivo será gravado de forma incremental, o que depende
+	 * da configuração e do formato.
 	 * 
-	 * @param p_class
-	 * @param p_callback
+	 * @param p_format
+	 * @return
 	 */
-	public <E extends Number> void setClassCallBackToNumber(@SuppressWarnings("rawtypes") Class p_class,
-			Class<E> p_returnType, CallbackFieldToNumber<E> p_callback) {
-		baseClassFieldClassCallBack.put(p_class, p_callback);
+	private boolean isIncremental(Weka2JPAOutputFormat p_format) {
+		switch (p_format) {
+		case SERIALIZED:
+			return false;
+		case ARFF_GZIP:
+			return true;
+		default:
+			return streamingSave || pipelinedSave;
+		}
 	}
 
 	/**
-	 * Define um callback especifico para converter uma determinada classe em
-	 * String.
-	 * 
-	 * Este callback pode ser usado sempre que é encontrado uma classe filha,
-	 * para fornecer sua representação string no lugar de chamar o método
-	 * {@link Object#toString()}
+	 * Formato em que o arquivo informado será gravado.
 	 * 
-	 * @param p_class
-	 * @param p_callback
+	 * @see #setOutputFormat(Weka2JPAOutputFormat)
+	 * @param p_file
+	 * @return
 	 */
-	public void setClassCallBackToString(@SuppressWarnings("rawtypes") Class p_class,
-			CallbackFieldToString p_callback) {
-		baseClassFieldClassCallBack.put(p_class, p_callback);
+	private Weka2JPAOutputFormat getOutputFormat(File p_file) {
+		return outputFormat == null ? Weka2JPAOutputFormat.of(p_file) : outputFormat;
 	}
 
 	/**
-	 * Este método permite adicionar valores "incógnitos" (Missing) a um campos
-	 * especifico.
-	 * 
-	 * Este método pode ser chamado quantas vezes for necessário para adicionar
-	 * diversos campos como "incógnitos".
+	 * Abre o arquivo para gravação, compactando o que for gravado conforme o
+	 * formato, e opcionalmente acrescentando ao seu fim.
 	 * 
-	 * Os campos que forem "incógnitos" serão valorados com uma ? para que
-	 * durante o processo com o WEKA seja tratados adequadmente.
+	 * Um arquivo gzip recebe um novo membro compactado, que é lido em
+	 * sequência aos anteriores.
 	 * 
-	 * Normalmente os campos extras são tratados como "incógnitos", portanto o
-	 * ideal é fornecer o mesmo objeto que foi entregue como sendo o objeto
-	 * padrão do campo extra.
+	 * Os bytes gravados no arquivo, após a compactação, são contados nas
+	 * medições da sessão quando estas são feitas.
 	 * 
-	 * A melhor forma de se fazer uso deste recurso é fornecer a string "?" como
-	 * valor padrão do campo extra.
+	 * @param p_file
+	 * @param p_format
+	 * @param p_append
+	 * @param p_session
+	 *            sessão da exportação
+	 * @return
+	 * @throws IOException
+	 */
+	private static OutputStream openOutputStream(File p_file, Weka2JPAOutputFormat p_format, boolean p_append,
+			Weka2JPAExportSession p_session) throws IOException {
+		OutputStream l_out = countBytes(new FileOutputStream(p_file, p_append), p_session);
+		if (p_format == Weka2JPAOutputFormat.ARFF_GZIP)
+			return new GZIPOutputStream(l_out, GZIP_BUFFER_SIZE);
+		return l_out;
+	}
+
+	/**
+	 * Envolve a fonte informada medindo o tempo das consultas, quando as
+	 * medições da sessão são feitas.
+	 * 
+	 * @param p_source
+	 * @param p_session
+	 * @return
+	 */
+	private static <T> Weka2JPAEntitySource<T> timeQuery(Weka2JPAEntitySource<T> p_source,
+			Weka2JPAExportSession p_session) {
+		Weka2JPAExportMetrics l_metrics = p_session.getMetrics();
+		return l_metrics == null ? p_source : l_metrics.timeQuery(p_source);
+	}
+
+	/**
+	 * Envolve o {@link OutputStream} informado contando os bytes gravados,
+	 * quando as medições da sessão são feitas.
+	 * 
+	 * @param p_out
+	 * @param p_session
+	 * @return
+	 */
+	private static OutputStream countBytes(OutputStream p_out, Weka2JPAExportSession p_session) {
+		Weka2JPAExportMetrics l_metrics = p_session.getMetrics();
+		return l_metrics == null ? p_out : l_metrics.countBytes(p_out);
+	}
+
+	/**
+	 * Exportação incremental pelo campo de controle padrão da entidade, veja
+	 * {@link #saveChanges(File, Class, String)}.
+	 * 
+	 * O campo padrão é o campo anotado com {@link javax.persistence.Version}
+	 * quando este for uma data ou hora, caso contrário a chave primária, que
+	 * identifica apenas as entidades novas.
+	 * 
+	 * @param p_file
+	 * @param p_entityClass
+	 * @throws IOException
+	 */
+	public void saveChanges(File p_file, Class<E> p_entityClass) throws IOException {
+		saveChanges(p_file, p_entityClass, getWatermarkFieldName(p_entityClass));
+	}
+
+	/**
+	 * Acrescenta ao arquivo ARFF apenas as entidades alteradas desde a
+	 * exportação anterior.
+	 * 
+	 * O campo de controle informado deve crescer a cada alteração, como a
+	 * data da última alteração ou uma chave sequencial. O maior valor
+	 * exportado é gravado como marca d'água ao lado do arquivo, veja
+	 * {@link Weka2JPAWatermark}, e a próxima exportação obtem apenas as
+	 * entidades cujo campo seja maior que a marca e no máximo o maior valor
+	 * existente no início da exportação.
+	 * 
+	 * Quando o arquivo ou a marca ainda não existem todas as entidades são
+	 * exportadas e o arquivo é criado. Caso contrário o cabeçalho gravado é
+	 * lido e as novas instancias são acrescentadas à seção de dados,
+	 * mantendo os valores e índices dos atributos nominais do cabeçalho, veja
+	 * {@link Weka2JPAAttributeProcessor#setExistingHeader(Instances)}.
+	 * 
+	 * As entidades alteradas são acrescentadas novamente, sem substituir as
+	 * instancias anteriores, e entidades com o campo de controle nulo não são
+	 * exportadas.
+	 * 
+	 * Apenas os formatos ARFF e ARFF gzip podem ser acrescentados.
+	 * 
+	 * @param p_file
+	 * @param p_entityClass
+	 * @param p_fieldName
+	 *            campo de controle da entidade base
+	 * @throws IOException
+	 *             também quando os atributos do cabeçalho gravado forem
+	 *             diferentes dos atributos atuais da entidade, neste caso
+	 *             remova o arquivo para exporta-lo por completo
+	 */
+	public void saveChanges(File p_file, Class<E> p_entityClass, String p_fieldName) throws IOException {
+
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAOutputFormat l_format = getOutputFormat(p_file);
+		if (l_format == Weka2JPAOutputFormat.SERIALIZED)
+			throw new IllegalArgumentException("Exportação incremental não suportada no formato " + l_format);
+
+		File l_watermarkFile = Weka2JPAWatermark.fileOf(p_file);
+		Weka2JPAWatermark l_previous = null;
+		if (p_file.exists() && l_watermarkFile.exists()) {
+			l_previous = Weka2JPAWatermark.load(l_watermarkFile);
+			if (!l_previous.getFieldName().equals(p_fieldName)) {
+				log.warn("Marca d'água do campo " + l_previous.getFieldName() + " em vez de " + p_fieldName
+						+ ", o arquivo será exportado por completo");
+				l_previous = null;
+			}
+		}
+
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			String l_entityName = l_session.getEntityManager().getMetamodel().entity(p_entityClass).getName();
+			Object l_last = l_session.createQuery("SELECT MAX(E." + p_fieldName + ") FROM " + l_entityName + " E")
+					.getSingleResult();
+
+			Map<String, Object> l_parameters = new HashMap<>();
+			String l_condition = null;
+			if (l_last != null) {
+				l_condition = "E." + p_fieldName + " <= :wekaLast";
+				l_parameters.put("wekaLast", l_last);
+			}
+
+			if (l_previous != null) {
+				if (l_last == null || l_last.equals(l_previous.getValue())) {
+					log.info("Nenhuma alteração desde " + l_previous);
+					return;
+				}
+				l_condition = "E." + p_fieldName + " > :wekaPrevious AND " + l_condition;
+				l_parameters.put("wekaPrevious", l_previous.getValue());
+			}
+
+			Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, true, l_session);
+			Instances l_existing = null;
+			if (l_previous != null) {
+				l_existing = readHeader(p_file, l_format);
+				l_processor.setExistingHeader(l_existing);
+			}
+
+			Instances l_header = new Instances(l_processor.getRelationBaseName(), l_processor.createAttributes(), 0);
+			if (l_existing != null)
+				checkExistingHeader(p_file, l_existing, l_header);
+
+			Weka2JPAEntitySource<?> l_source;
+			if (l_last == null)
+				l_source = () -> Collections.emptyList();
+			else
+				l_source = createExportSource(l_processor, l_session, l_condition, l_parameters);
+
+			log.info((l_previous == null ? "Exportando até " : "Exportando após " + l_previous + " até ") + l_last);
+			try (Weka2JPAArffWriter l_writer = new Weka2JPAArffWriter(
+					openOutputStream(p_file, l_format, l_existing != null, l_session))) {
+				if (l_existing == null)
+					l_writer.writeHeader(l_header);
+				else
+					l_writer.resume(l_header);
+				writeRows(l_processor, l_header, l_source, true, l_writer);
+			}
+
+			if (l_last != null)
+				new Weka2JPAWatermark(p_fieldName, l_last).store(l_watermarkFile);
+		}
+	}
+
+	/**
+	 * Campo de controle padrão da exportação incremental, veja
+	 * {@link #saveChanges(File, Class)}.
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	private String getWatermarkFieldName(Class<E> p_entityClass) {
+		EntityType<E> l_type = em.getMetamodel().entity(p_entityClass);
+
+		for (SingularAttribute<? super E, ?> l_att : l_type.getSingularAttributes()) {
+			Class<?> l_javaType = l_att.getJavaType();
+			if (l_att.isVersion() && (Date.class.isAssignableFrom(l_javaType)
+					|| Calendar.class.isAssignableFrom(l_javaType) || Temporal.class.isAssignableFrom(l_javaType)))
+				return l_att.getName();
+		}
+
+		if (!l_type.hasSingleIdAttribute())
+			throw new IllegalArgumentException("Entidade sem campo de controle para exportação incremental: "
+					+ l_type.getName());
+		return l_type.getId(l_type.getIdType().getJavaType()).getName();
+	}
+
+	/**
+	 * Lê apenas o cabeçalho de um arquivo ARFF já gravado.
+	 * 
+	 * @param p_file
+	 * @param p_format
+	 * @return
+	 * @throws IOException
+	 */
+	private static Instances readHeader(File p_file, Weka2JPAOutputFormat p_format) throws IOException {
+		InputStream l_in = new FileInputStream(p_file);
+		if (p_format == Weka2JPAOutputFormat.ARFF_GZIP)
+			l_in = new GZIPInputStream(l_in, GZIP_BUFFER_SIZE);
+
+		try (Reader l_reader = new BufferedReader(new InputStreamReader(l_in, StandardCharsets.UTF_8))) {
+			return new ArffLoader.ArffReader(l_reader, 1).getStructure();
+		}
+	}
+
+	/**
+	 * Verifica se as instancias criadas a partir da entidade podem ser
+	 * acrescentadas ao arquivo com o cabeçalho gravado, veja
+	 * {@link #sameAttributes(Instances, Instances)}.
+	 * 
+	 * @param p_file
+	 * @param p_existing
+	 * @param p_header
+	 * @throws IOException
+	 */
+	private static void checkExistingHeader(File p_file, Instances p_existing, Instances p_header) throws IOException {
+		if (!sameAttributes(p_existing, p_header))
+			throw new IOException("Atributos de " + p_file + " diferentes dos atributos atuais da entidade "
+					+ p_header.relationName());
+	}
+
+	/**
+	 * Verifica se os cabeçalhos possuem os mesmos atributos, na mesma ordem,
+	 * com os mesmos tipos e valores nominais, assim as instancias de um são
+	 * válidas no outro.
+	 * 
+	 * @param p_existing
+	 * @param p_header
+	 * @return
+	 */
+	static boolean sameAttributes(Instances p_existing, Instances p_header) {
+		boolean l_same = p_existing.numAttributes() == p_header.numAttributes();
+
+		for (int i = 0; l_same && i < p_header.numAttributes(); i++) {
+			Attribute l_existing = p_existing.attribute(i);
+			Attribute l_att = p_header.attribute(i);
+			l_same = l_existing.name().equals(l_att.name()) && l_existing.type() == l_att.type();
+
+			for (int v = 0; l_same && l_att.isNominal() && v < l_att.numValues(); v++) {
+				l_same = l_existing.numValues() == l_att.numValues() && l_existing.value(v).equals(l_att.value(v));
+			}
+		}
+		return l_same;
+	}
+
+	/**
+	 * Lê o arquivo ARFF, ou ARFF gzip pela extensão <code>.gz</code>, e
+	 * persiste cada instancia como uma nova entidade da classe informada,
+	 * veja {@link Weka2JPAImporter}.
+	 * 
+	 * As entidades são persistidas em lotes do tamanho das páginas, veja
+	 * {@link #setPageSize(int)}.
+	 * 
+	 * @param p_file
+	 * @param p_entityClass
+	 * @return quantidade de entidades persistidas
+	 * @throws IOException
+	 */
+	public long load(File p_file, Class<E> p_entityClass) throws IOException {
+		InputStream l_in = new FileInputStream(p_file);
+		if (Weka2JPAOutputFormat.of(p_file) == Weka2JPAOutputFormat.ARFF_GZIP)
+			l_in = new GZIPInputStream(l_in, GZIP_BUFFER_SIZE);
+
+		try (Reader l_reader = new BufferedReader(new InputStreamReader(l_in, StandardCharsets.UTF_8))) {
+			return load(l_reader, p_entityClass);
+		}
+	}
+
+	/**
+	 * Lê o arquivo ARFF do {@link Reader} informado, que não é fechado, e
+	 * persiste cada instancia como uma nova entidade.
+	 * 
+	 * @see #load(File, Class)
+	 * @param p_reader
+	 * @param p_entityClass
+	 * @return quantidade de entidades persistidas
+	 * @throws IOException
+	 */
+	public long load(Reader p_reader, Class<E> p_entityClass) throws IOException {
+		return createImporter(p_entityClass).importFrom(p_reader);
+	}
+
+	/**
+	 * Cria o importador de arquivos ARFF da classe informada, que persiste as
+	 * entidades pelo {@link EntityManager} do helper, com lotes do tamanho
+	 * das páginas.
+	 * 
+	 * @param p_entityClass
+	 * @return
+	 */
+	public Weka2JPAImporter<E> createImporter(Class<E> p_entityClass) {
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAImporter<E> l_importer = new Weka2JPAImporter<>(this, em, p_entityClass);
+		l_importer.setBatchSize(pageSize);
+		return l_importer;
+	}
+
+	/**
+	 * Cria o classificador em lote das entidades da classe informada, que
+	 * grava a previsão do classificador em campos da própria entidade, veja
+	 * {@link Weka2JPAScorer}.
+	 * 
+	 * As entidades são lidas conforme a configuração da exportação, inclusive
+	 * a consulta de projeção e a sessão somente leitura, e alteradas pelo
+	 * {@link EntityManager} do helper.
+	 * 
+	 * @param p_entityClass
+	 * @param p_classifier
+	 *            classificador já treinado
+	 * @param p_classAttribute
+	 *            nome do atributo classe
+	 * @return
+	 */
+	public Weka2JPAScorer<E> createScorer(Class<E> p_entityClass, Classifier p_classifier, String p_classAttribute) {
+		checkEntityClass(p_entityClass);
+		return new Weka2JPAScorer<>(this, p_entityClass, p_classifier, p_classAttribute);
+	}
+
+	/**
+	 * Obtem em memória as instancias de todas as entidades da classe
+	 * informada, sem gravar arquivos, por exemplo para treinar um
+	 * classificador diretamente.
+	 * 
+	 * @see #getInstances(Class, String, Map)
+	 * @param p_entityClass
+	 * @return
+	 */
+	public Instances getInstances(Class<E> p_entityClass) {
+		return getInstances(p_entityClass, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Obtem em memória as instancias das entidades da classe informada que
+	 * atendem à condição JPQL informada, escrita sobre o alias <code>E</code>
+	 * da entidade base.
+	 * 
+	 * Quando o cache estiver ativo, veja
+	 * {@link #setInstancesCacheTtl(long, TimeUnit)}, é entregue uma cópia do
+	 * conjunto obtido anteriormente com a mesma classe, condição e parâmetros
+	 * se os dados não tiverem sido alterados e o tempo de vida não tiver
+	 * expirado.
+	 * 
+	 * @param p_entityClass
+	 * @param p_condition
+	 *            condição ou null para todas as entidades
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 * @return
+	 */
+	public Instances getInstances(Class<E> p_entityClass, String p_condition, Map<String, ?> p_parameters) {
+
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAInstancesCache l_cache = basseClassNotEntity ? null : instancesCache;
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			List<Object> l_key = null;
+			List<Object> l_version = null;
+			if (l_cache != null) {
+				l_key = Arrays.asList(getMappingPlan(p_entityClass), instanceType, useNullLikeIncognito,
+						nominalDomain, p_condition, new HashMap<>(p_parameters));
+				l_version = getDataVersion(l_session, p_entityClass, p_condition, p_parameters);
+
+				Instances l_cached = l_cache.get(l_key, l_version);
+				if (l_cached != null) {
+					log.info("Instancias de " + p_entityClass.getSimpleName() + " obtidas do cache");
+					return l_cached;
+				}
+			}
+
+			Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, true, l_session);
+			Instances l_instances = new Instances(l_processor.getRelationBaseName(), l_processor.createAttributes(), 0);
+			addPages(l_instances, l_processor, createExportSource(l_processor, l_session, p_condition, p_parameters));
+
+			if (l_cache != null)
+				l_cache.put(l_key, l_version, l_instances);
+			return l_instances;
+		}
+	}
+
+	/**
+	 * Obtem em memória as instancias das entidades informadas, sem usar o
+	 * cache.
+	 * 
+	 * @param p_entityClass
+	 * @param p_list
+	 * @return
+	 */
+	public Instances getInstances(Class<E> p_entityClass, Collection<E> p_list) {
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			return createAttributesAndInstances(p_entityClass, p_list, l_session);
+		}
+	}
+
+	/**
+	 * Percorre as instancias de todas as entidades da classe informada uma a
+	 * uma, veja {@link Weka2JPAInstanceIterator}.
+	 * 
+	 * @see #iterateInstances(Class, String, Map)
+	 * @param p_entityClass
+	 * @return
+	 */
+	public Weka2JPAInstanceIterator iterateInstances(Class<E> p_entityClass) {
+		return iterateInstances(p_entityClass, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Percorre as instancias das entidades que atendem à condição informada
+	 * uma a uma, obtendo e convertendo uma página por vez, por exemplo para
+	 * treinar classificadores atualizáveis sem manter o conjunto completo em
+	 * memória.
+	 * 
+	 * O iterador mantém aberta a sessão da exportação e deve ser fechado.
+	 * 
+	 * @param p_entityClass
+	 * @param p_condition
+	 *            condição ou null para todas as entidades
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 * @return
+	 */
+	public Weka2JPAInstanceIterator iterateInstances(Class<E> p_entityClass, String p_condition,
+			Map<String, ?> p_parameters) {
+
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAExportSession l_session = openExportSession();
+		try {
+			Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, true, l_session);
+			Instances l_header = new Instances(l_processor.getRelationBaseName(), l_processor.createAttributes(), 0);
+			return new Weka2JPAInstanceIterator(l_session, l_processor, l_header,
+					createExportSource(l_processor, l_session, p_condition, p_parameters));
+		} catch (RuntimeException e) {
+			l_session.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Versão dos dados usada pelo cache de instancias: a quantidade de
+	 * entidades e o maior valor do campo de controle, o mesmo da exportação
+	 * incremental, veja {@link #saveChanges(File, Class)}.
+	 * 
+	 * Entidades sem um campo @Version do tipo data ou hora têm apenas as
+	 * inclusões e exclusões identificadas, as alterações são percebidas
+	 * apenas quando o tempo de vida expira.
+	 * 
+	 * @param p_session
+	 * @param p_entityClass
+	 * @param p_condition
+	 * @param p_parameters
+	 * @return
+	 */
+	private List<Object> getDataVersion(Weka2JPAExportSession p_session, Class<E> p_entityClass,
+			String p_condition, Map<String, ?> p_parameters) {
+
+		StringBuilder l_jpql = new StringBuilder("SELECT COUNT(E)");
+		try {
+			l_jpql.append(", MAX(E.").append(getWatermarkFieldName(p_entityClass)).append(")");
+		} catch (IllegalArgumentException e) {
+			log.debug("Versão de " + p_entityClass.getSimpleName() + " apenas pela quantidade de entidades");
+		}
+		l_jpql.append(" FROM ").append(p_session.getEntityManager().getMetamodel().entity(p_entityClass).getName())
+				.append(" E");
+		if (p_condition != null)
+			l_jpql.append(" WHERE ").append(p_condition);
+
+		Query l_query = p_session.createQuery(l_jpql.toString());
+		p_parameters.forEach(l_query::setParameter);
+
+		Object l_result = l_query.getSingleResult();
+		if (l_result instanceof Object[])
+			return Arrays.asList((Object[]) l_result);
+		return Collections.singletonList(l_result);
+	}
+
+	/**
+	 * Ativa o cache dos conjuntos de instancias obtidos por
+	 * {@link #getInstances(Class, String, Map)}, cada conjunto é descartado
+	 * após o tempo de vida informado ou quando os dados são alterados.
+	 * 
+	 * O cache é identificado pela configuração do mapeamento, mas o
+	 * {@link Weka2JPANominalDictionaryStore} e alterações feitas diretamente
+	 * no banco de dados não são percebidos, neste caso use
+	 * {@link #clearInstancesCache()}.
+	 * 
+	 * @param p_ttl
+	 *            tempo de vida, zero desativa o cache
+	 * @param p_unit
+	 */
+	public void setInstancesCacheTtl(long p_ttl, TimeUnit p_unit) {
+		if (p_ttl < 0)
+			throw new IllegalArgumentException("ttl: " + p_ttl);
+		instancesCache = p_ttl == 0 ? null : new Weka2JPAInstancesCache(p_unit.toNanos(p_ttl));
+	}
+
+	/**
+	 * Descarta todos os conjuntos de instancias em cache.
+	 */
+	public void clearInstancesCache() {
+		Weka2JPAInstancesCache l_cache = instancesCache;
+		if (l_cache != null)
+			l_cache.clear();
+	}
+
+	/**
+	 * Grava o arquivo ARFF de forma incremental no {@link Writer} informado,
+	 * usando {@link Weka2JPAArffWriter}, com base na classe da entidade
+	 * informada, consultando a camada de persistência.
+	 * 
+	 * O {@link Writer} não é fechado, apenas esvaziado (flush) ao final.
+	 * 
+	 * @param p_writer
+	 * @param p_entityClass
+	 * @throws IOException
+	 */
+	public void save(Writer p_writer, Class<E> p_entityClass) throws IOException {
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			Weka2JPAExportMetrics l_metrics = l_session.getMetrics();
+			Writer l_writer = l_metrics == null ? p_writer : l_metrics.countChars(p_writer);
+			saveIncremental(new Weka2JPAArffWriter(l_writer), p_entityClass, null, l_session);
+		}
+	}
+
+	/**
+	 * Grava o arquivo ARFF em UTF-8 no {@link OutputStream} informado, que
+	 * não é fechado, veja {@link #save(Writer, Class)}.
+	 * 
+	 * O formato é o definido por
+	 * {@link #setOutputFormat(Weka2JPAOutputFormat)}, ou ARFF texto quando não
+	 * definido.
+	 * 
+	 * @param p_out
+	 * @param p_entityClass
+	 * @throws IOException
+	 */
+	public void save(OutputStream p_out, Class<E> p_entityClass) throws IOException {
+		Weka2JPAOutputFormat l_format = outputFormat == null ? Weka2JPAOutputFormat.ARFF : outputFormat;
+
+		try (Weka2JPAExportSession l_session = openExportSession()) {
+			OutputStream l_out = countBytes(p_out, l_session);
+
+			switch (l_format) {
+			case SERIALIZED:
+				Instances l_data = createAttributesAndInstances(p_entityClass, null, l_session);
+				long l_start = System.nanoTime();
+				ObjectOutputStream l_objectOut = new ObjectOutputStream(l_out);
+				l_objectOut.writeObject(l_data);
+				l_objectOut.flush();
+				addWriteNanos(l_session, l_start);
+				break;
+			case ARFF_GZIP:
+				GZIPOutputStream l_gzipOut = new GZIPOutputStream(l_out, GZIP_BUFFER_SIZE);
+				saveIncremental(new Weka2JPAArffWriter(new OutputStreamWriter(l_gzipOut, StandardCharsets.UTF_8)),
+						p_entityClass, null, l_session);
+				l_gzipOut.finish();
+				l_gzipOut.flush();
+				break;
+			default:
+				saveIncremental(new Weka2JPAArffWriter(new OutputStreamWriter(l_out, StandardCharsets.UTF_8)),
+						p_entityClass, null, l_session);
+			}
+		}
+	}
+
+	/**
+	 * Registra nas medições da sessão o tempo de uma gravação em lote.
+	 * 
+	 * @param p_session
+	 * @param p_start
+	 *            início da gravação, em {@link System#nanoTime()}
+	 */
+	private static void addWriteNanos(Weka2JPAExportSession p_session, long p_start) {
+		Weka2JPAExportMetrics l_metrics = p_session.getMetrics();
+		if (l_metrics != null)
+			l_metrics.addStageNanos(Weka2JPAExportStage.WRITE, System.nanoTime() - p_start);
+	}
+
+	/**
+	 * Grava o arquivo ARFF no canal informado, que não é fechado, veja
+	 * {@link #save(OutputStream, Class)}.
+	 * 
+	 * @param p_channel
+	 * @param p_entityClass
+	 * @throws IOException
+	 */
+	public void save(WritableByteChannel p_channel, Class<E> p_entityClass) throws IOException {
+		save(Channels.newOutputStream(p_channel), p_entityClass);
+	}
+
+	/**
+	 * Grava em lote as instancias já construídas, pelo {@link ArffSaver} ou
+	 * pelo {@link Weka2JPAArffWriter}, veja
+	 * {@link #setDirectArffWriter(boolean)}, ou serializadas conforme o
+	 * formato do arquivo.
+	 * 
+	 * @param p_file
+	 * @param p_data
+	 * @param p_session
+	 *            sessão da exportação, cujas medições recebem o tempo de
+	 *            gravação
+	 * @throws IOException
+	 */
+	private void saveBatch(File p_file, Instances p_data, Weka2JPAExportSession p_session) throws IOException {
+		long l_start = System.nanoTime();
+		Weka2JPAOutputFormat l_format = getOutputFormat(p_file);
+
+		if (l_format == Weka2JPAOutputFormat.SERIALIZED) {
+			SerializedInstancesSaver l_saver = new SerializedInstancesSaver();
+			l_saver.setInstances(p_data);
+			l_saver.setDestination(openOutputStream(p_file, l_format, false, p_session));
+			l_saver.writeBatch();
+		} else if (directArffWriter || l_format == Weka2JPAOutputFormat.ARFF_GZIP) {
+			try (Weka2JPAArffWriter l_writer = new Weka2JPAArffWriter(openOutputStream(p_file, l_format, false,
+					p_session))) {
+				l_writer.writeHeader(p_data);
+				for (Instance l_instance : p_data) {
+					l_writer.write(l_instance);
+				}
+			}
+		} else {
+			ArffSaver saver = new ArffSaver();
+			saver.setInstances(p_data);
+			saver.setFile(p_file);
+
+			saver.writeBatch();
+			addBytesWritten(p_session, p_file);
+		}
+
+		addWriteNanos(p_session, l_start);
+	}
+
+	/**
+	 * Registra nas medições da sessão o tamanho do arquivo gravado pelo
+	 * {@link ArffSaver}, que abre o arquivo por conta própria.
+	 * 
+	 * @param p_session
+	 * @param p_file
+	 */
+	private static void addBytesWritten(Weka2JPAExportSession p_session, File p_file) {
+		Weka2JPAExportMetrics l_metrics = p_session.getMetrics();
+		if (l_metrics != null)
+			l_metrics.addBytesWritten(p_file.length());
+	}
+
+	/**
+	 * Grava o arquivo ARFF de forma incremental.
+	 * 
+	 * Com {@link #setPipelinedSave(boolean)} a obtenção, a conversão e a
+	 * gravação das páginas acontecem simultaneamente, veja
+	 * {@link Weka2JPAExportPipeline}.
+	 * 
+	 * Caso a fonte não seja informada as linhas são obtidas pelo JPA, veja
+	 * {@link #createExportSource(Weka2JPAAttributeProcessor, Weka2JPAExportSession)}.
+	 * 
+	 * O cabeçalho é gravado primeiro e em seguida as entidades são obtidas da
+	 * fonte informada uma página por vez, cada entidade é convertida e gravada
+	 * imediatamente, e ao fim de cada página os valores dos atributos String
+	 * são descartados, assim o uso de memória depende do tamanho da página e
+	 * não do tamanho da tabela.
+	 * 
+	 * @param p_file
+	 * @param p_entityClass
+	 * @param p_source
+	 * @param p_session
+	 * @throws IOException
+	 */
+	private void saveIncremental(File p_file, Class<E> p_entityClass, Weka2JPAEntitySource<E> p_source,
+			Weka2JPAExportSession p_session) throws IOException {
+
+		Weka2JPAOutputFormat l_format = getOutputFormat(p_file);
+		if (directArffWriter || l_format == Weka2JPAOutputFormat.ARFF_GZIP) {
+			try (Weka2JPAArffWriter l_writer = new Weka2JPAArffWriter(openOutputStream(p_file, l_format, false,
+					p_session))) {
+				saveIncremental(l_writer, p_entityClass, p_source, p_session);
+			}
+			return;
+		}
+
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, p_source == null, p_session);
+		Weka2JPAEntitySource<?> l_source = p_source == null ? createExportSource(l_processor, p_session)
+				: timeQuery(p_source, p_session);
+
+		ArrayList<Attribute> l_atts = l_processor.createAttributes();
+		Instances l_header = new Instances(l_processor.getRelationBaseName(), l_atts, 0);
+
+		ArffSaver l_saver = new ArffSaver();
+		l_saver.setRetrieval(AbstractSaver.INCREMENTAL);
+		l_saver.setInstances(l_header);
+		l_saver.setFile(p_file);
+
+		writeRows(l_processor, l_header, l_source, p_source == null, l_saver::writeIncremental);
+
+		// finaliza e fecha o arquivo
+		l_saver.writeIncremental(null);
+		addBytesWritten(p_session, p_file);
+	}
+
+	/**
+	 * Grava o arquivo ARFF de forma incremental pelo
+	 * {@link Weka2JPAArffWriter} informado, que não é fechado.
+	 * 
+	 * @see #saveIncremental(File, Class, Weka2JPAEntitySource,
+	 *      Weka2JPAExportSession)
+	 * @param p_writer
+	 * @param p_entityClass
+	 * @param p_source
+	 * @param p_session
+	 * @throws IOException
+	 */
+	private void saveIncremental(Weka2JPAArffWriter p_writer, Class<E> p_entityClass,
+			Weka2JPAEntitySource<E> p_source, Weka2JPAExportSession p_session) throws IOException {
+
+		checkEntityClass(p_entityClass);
+
+		Weka2JPAAttributeProcessor<E> l_processor = createProcessor(p_entityClass, p_source == null, p_session);
+		Weka2JPAEntitySource<?> l_source = p_source == null ? createExportSource(l_processor, p_session)
+				: timeQuery(p_source, p_session);
+
+		ArrayList<Attribute> l_atts = l_processor.createAttributes();
+		Instances l_header = new Instances(l_processor.getRelationBaseName(), l_atts, 0);
+
+		p_writer.writeHeader(l_header);
+		writeRows(l_processor, l_header, l_source, p_source == null, p_writer);
+		p_writer.flush();
+	}
+
+	/**
+	 * Converte e grava todas as linhas da fonte, página a página ou pelos
+	 * estágios simultâneos, veja {@link #setPipelinedSave(boolean)}.
+	 * 
+	 * @param p_processor
+	 * @param p_header
+	 * @param p_source
+	 * @param p_fromJPA
+	 *            indica se a fonte obtem as linhas pelo JPA
+	 * @param p_sink
+	 * @throws IOException
+	 */
+	private void writeRows(Weka2JPAAttributeProcessor<E> p_processor, Instances p_header,
+			Weka2JPAEntitySource<?> p_source, boolean p_fromJPA, Weka2JPAInstanceSink p_sink) throws IOException {
+
+		boolean l_pipelined = pipelinedSave && (!p_fromJPA || p_processor.isProjection());
+		if (pipelinedSave && !l_pipelined)
+			log.warn("Gravação simultânea exige a consulta de projeção para entidades obtidas pelo JPA, "
+					+ "gravando sequencialmente");
+
+		Weka2JPAExportMetrics l_metrics = p_processor.getMetrics();
+		if (l_metrics != null)
+			p_sink = l_metrics.timeWrite(p_sink);
+
+		if (l_pipelined) {
+			new Weka2JPAExportPipeline(p_processor, p_header, p_source, pipelineQueueSize).run(p_sink);
+		} else {
+			List<?> l_page;
+			while (!(l_page = p_source.nextPage()).isEmpty()) {
+				writeIncremental(p_sink, p_processor, p_header, l_page);
+			}
+		}
+	}
+
+	/**
+	 * Permite definir a quantidade de entidades obtidas por vez na camada de
+	 * persistência, que também é a quantidade máxima de entidades mantidas no
+	 * contexto de persistência durante a exportação.
+	 * 
+	 * @see #setStreamingSave(boolean)
+	 * @see #createEntitySource(Class)
+	 * @param p_pageSize
+	 */
+	public void setPageSize(int p_pageSize) {
+		if (p_pageSize < 1)
+			throw new IllegalArgumentException("pageSize: " + p_pageSize);
+		pageSize = p_pageSize;
+	}
+
+	/**
+	 * Permite obter as linhas pela consulta de projeção, carregando apenas as
+	 * colunas usadas pelos atributos e a chave das entidades referenciadas
+	 * pelos campos ManyToOne, sem carregar entidades completas nem seus
+	 * relacionamentos.
+	 * 
+	 * Aplicado apenas quando as entidades são obtidas pelo JPA e a classe base
+	 * não possui campos extras, caso contrário as entidades são carregadas.
+	 * 
+	 * @param p_flag
+	 */
+	public void setProjectionQuery(boolean p_flag) {
+		projectionQuery = p_flag;
+	}
+
+	/**
+	 * Permite converter cada página de entidades em paralelo, dividindo-a
+	 * entre a quantidade de threads informada.
+	 * 
+	 * As instancias mantêm a ordem das entidades e o arquivo gerado é idêntico
+	 * ao da conversão sequencial. Os callbacks registrados devem poder ser
+	 * chamados por várias threads. Apenas as linhas da consulta de projeção
+	 * são convertidas em paralelo, pois entidades podem depender de
+	 * carregamento tardio (Lazy) durante a conversão. As entidades obtidas
+	 * pelo JPA passam a ser lidas pela consulta de projeção, como na gravação
+	 * simultânea; quando o plano não permite a projeção, ou as entidades são
+	 * informadas pela aplicação, as páginas são convertidas sequencialmente,
+	 * com um aviso no log, veja {@link #setProjectionQuery(boolean)}.
+	 * 
+	 * @param p_threads
+	 *            1 para conversão sequencial.
+	 */
+	public synchronized void setConversionThreads(int p_threads) {
+		if (p_threads < 1)
+			throw new IllegalArgumentException("conversionThreads: " + p_threads);
+		conversionThreads = p_threads;
+		if (conversionPool != null) {
+			conversionPool.shutdown();
+			conversionPool = null;
+		}
+	}
+
+	/**
+	 * Permite que a gravação incremental obtenha a próxima página do banco, e
+	 * converta a página atual, enquanto a página anterior é gravada, cada
+	 * estágio em sua própria thread ligados por filas limitadas, veja
+	 * {@link #setPipelineQueueSize(int)}.
+	 * 
+	 * Implica a gravação incremental, veja {@link #setStreamingSave(boolean)}.
+	 * As entidades são convertidas já desanexadas, portanto não podem depender
+	 * de carregamento tardio (Lazy). Quando obtidas pelo JPA é usada a
+	 * consulta de projeção, veja {@link #setProjectionQuery(boolean)}, e se o
+	 * plano não a permitir a gravação é feita sequencialmente.
+	 * 
+	 * @see Weka2JPAExportPipeline
+	 * @param p_flag
+	 */
+	public void setPipelinedSave(boolean p_flag) {
+		pipelinedSave = p_flag;
+	}
+
+	/**
+	 * Permite gravar os arquivos pelo {@link Weka2JPAArffWriter}, que formata
+	 * os valores diretamente em um buffer, em vez do {@link ArffSaver}. O
+	 * conteúdo gravado é o mesmo.
+	 * 
+	 * Os métodos que gravam em {@link Writer}, {@link OutputStream} ou
+	 * {@link WritableByteChannel} sempre usam o {@link Weka2JPAArffWriter}.
+	 * 
+	 * @param p_flag
+	 */
+	public void setDirectArffWriter(boolean p_flag) {
+		directArffWriter = p_flag;
+	}
+
+	/**
+	 * Define o formato dos arquivos gravados: ARFF texto, ARFF compactado com
+	 * gzip, gravado de forma incremental e compactado enquanto é gravado, ou
+	 * as instancias serializadas do Weka.
+	 * 
+	 * Quando não definido (null), o padrão, o formato é identificado pela
+	 * extensão do arquivo: <code>.arff.gz</code> ou <code>.bsi</code>.
+	 * 
+	 * @see Weka2JPAOutputFormat
+	 * @param p_format
+	 */
+	public void setOutputFormat(Weka2JPAOutputFormat p_format) {
+		outputFormat = p_format;
+	}
+
+	/**
+	 * @see #setOutputFormat(Weka2JPAOutputFormat)
+	 * @return
+	 */
+	public Weka2JPAOutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+
+	/**
+	 * @see #setDirectArffWriter(boolean)
+	 * @return
+	 */
+	public boolean isDirectArffWriter() {
+		return directArffWriter;
+	}
+
+	/**
+	 * @see #setPipelinedSave(boolean)
+	 * @return
+	 */
+	public boolean isPipelinedSave() {
+		return pipelinedSave;
+	}
+
+	/**
+	 * Define quantas páginas podem aguardar entre cada estágio da gravação
+	 * simultânea, quando a fila está cheia o estágio anterior aguarda.
+	 * 
+	 * @param p_queueSize
+	 */
+	public void setPipelineQueueSize(int p_queueSize) {
+		if (p_queueSize < 1)
+			throw new IllegalArgumentException("pipelineQueueSize: " + p_queueSize);
+		pipelineQueueSize = p_queueSize;
+	}
+
+	/**
+	 * @see #setConversionThreads(int)
+	 * @return
+	 */
+	public int getConversionThreads() {
+		return conversionThreads;
+	}
+
+	/**
+	 * Define o tratamento dos valores cujo campo ou callback lançam exceção
+	 * durante a conversão: interromper a exportação, descartar a linha ou
+	 * exportar o valor como incógnito.
+	 * 
+	 * As falhas são contadas por atributo e apenas uma amostra é registrada no
+	 * log.
+	 * 
+	 * @param p_policy
+	 */
+	public void setErrorPolicy(Weka2JPAErrorPolicy p_policy) {
+		if (p_policy == null)
+			throw new IllegalArgumentException("errorPolicy: null");
+		errorPolicy = p_policy;
+	}
+
+	/**
+	 * @see #setErrorPolicy(Weka2JPAErrorPolicy)
+	 * @return
+	 */
+	public Weka2JPAErrorPolicy getErrorPolicy() {
+		return errorPolicy;
+	}
+
+	/**
+	 * Pool da conversão paralela, suas threads são daemon e terminam quando
+	 * ficam ociosas.
+	 * 
+	 * @return
+	 */
+	synchronized ForkJoinPool getConversionPool() {
+		if (conversionPool == null)
+			conversionPool = new ForkJoinPool(conversionThreads);
+		return conversionPool;
+	}
+
+	/**
+	 * Define a representação das instancias criadas a partir das entidades,
+	 * densa, esparsa, esparsa binária ou escolhida automaticamente para cada
+	 * página de entidades conforme a proporção de valores diferentes de zero.
+	 * 
+	 * As representações esparsas são gravadas no arquivo ARFF na sintaxe
+	 * esparsa, reduzindo o arquivo e a memória usada por entidades com muitos
+	 * campos zerados.
+	 * 
+	 * @see Weka2JPAInstanceType
+	 * @param p_type
+	 */
+	public void setInstanceType(Weka2JPAInstanceType p_type) {
+		instanceType = p_type;
+	}
+
+	/**
+	 * @see #setInstanceType(Weka2JPAInstanceType)
+	 * @return
+	 */
+	public Weka2JPAInstanceType getInstanceType() {
+		return instanceType;
+	}
+
+	/**
+	 * Permite que cada exportação use um {@link EntityManager} exclusivo e de
+	 * curta duração, com as consultas marcadas como somente leitura e sem
+	 * flush automático, fechado ao fim da exportação.
+	 * 
+	 * Assim as entidades carregadas não ficam no contexto de persistência do
+	 * {@link EntityManager} do helper, nem mantêm cópias para detecção de
+	 * alterações.
+	 * 
+	 * @see Weka2JPAExportSession
+	 * @param p_flag
+	 */
+	public void setReadOnlyExport(boolean p_flag) {
+		readOnlyExport = p_flag;
+	}
+
+	/**
+	 * Permite gravar o arquivo ARFF de forma incremental, sem que todas as
+	 * entidades e instancias sejam mantidas em memória.
+	 * 
+	 * Indicado para tabelas grandes, o uso de memória passa a depender do
+	 * tamanho da página, veja {@link #setPageSize(int)}.
+	 * 
+	 * @param p_flag
+	 */
+	public void setStreamingSave(boolean p_flag) {
+		streamingSave = p_flag;
+	}
+
+	/**
+	 * Converte e grava as linhas de uma página, em seguida descarta os
+	 * valores String acumulados no cabeçalho.
+	 * 
+	 * @param p_sink
+	 * @param p_processor
+	 * @param p_header
+	 * @param p_page
+	 * @throws IOException
+	 */
+	private void writeIncremental(Weka2JPAInstanceSink p_sink, Weka2JPAAttributeProcessor<E> p_processor,
+			Instances p_header, Collection<?> p_page) throws IOException {
+		for (Instance l_instance : p_processor.createInstancesFromRows(p_header, p_page)) {
+			p_sink.write(l_instance);
+		}
+		p_processor.resetStringValues(p_header);
+	}
+
+	/**
+	 * Permite usar classes que não sejam entidades, neste caso a classe deverá
+	 * vir completamente preenchida. Ou durante uma transação obter dados em
+	 * métodos Lazy.
+	 * 
+	 * ATENÇÃO: Futuramente as classes escravas poderão ser consultadas no banco
+	 * apenas se houver mapeamento para queries ou callbacks
+	 * 
+	 * @param p_flag
+	 */
+	public void setBaseClassNotEntity(boolean p_flag) {
+		basseClassNotEntity = p_flag;
+	}
+
+	/**
+	 * Define um callback especifico para converter uma determinada classe em
+	 * String.
+	 * 
+	 * Este callback pode ser usado sempre que é encontrado uma classe filha,
+	 * para fornecer sua representação string no lugar de chamar o método
+	 * {@link Object#toString()}
+	 * 
+	 * @param p_class
+	 * @param p_callback
+	 */
+	public <E extends Number> void setClassCallBackToNumber(@SuppressWarnings("rawtypes") Class p_class,
+			Class<E> p_returnType, CallbackFieldToNumber<E> p_callback) {
+		mappingPlans.clear();
+		baseClassFieldClassCallBack.put(p_class, p_callback);
+	}
+
+	/**
+	 * Define um callback especifico para converter uma determinada classe em
+	 * String.
+	 * 
+	 * Este callback pode ser usado sempre que é encontrado uma classe filha,
+	 * para fornecer sua representação string no lugar de chamar o método
+	 * {@link Object#toString()}
+	 * 
+	 * @param p_class
+	 * @param p_callback
+	 */
+	public void setClassCallBackToString(@SuppressWarnings("rawtypes") Class p_class,
+			CallbackFieldToString p_callback) {
+		mappingPlans.clear();
+		baseClassFieldClassCallBack.put(p_class, p_callback);
+	}
+
+	/**
+	 * Define um callback especifico para converter uma determinada classe em
+	 * Number, memorizando no máximo a quantidade informada de resultados.
+	 * 
+	 * @see #setClassCallBackToString(Class, CallbackFieldToString, int)
+	 * @param p_class
+	 * @param p_returnType
+	 * @param p_callback
+	 * @param p_cacheSize
+	 */
+	public <E extends Number> void setClassCallBackToNumber(@SuppressWarnings("rawtypes") Class p_class,
+			Class<E> p_returnType, CallbackFieldToNumber<E> p_callback, int p_cacheSize) {
+		setClassCallBackToNumber(p_class, p_returnType,
+				new MemoizedCallbackFieldToNumber<>(p_callback, p_cacheSize, createCallbackKey(p_class)));
+	}
+
+	/**
+	 * Define um callback especifico para converter uma determinada classe em
+	 * String, memorizando no máximo a quantidade informada de resultados.
+	 * 
+	 * Cada entidade referenciada é convertida uma única vez enquanto seu
+	 * resultado estiver memorizado, identificada pela chave primária quando a
+	 * classe é uma entidade ou pela identidade do objeto nos demais casos. O
+	 * callback deve depender apenas do valor recebido, e os resultados valem
+	 * para todas as exportações deste helper, veja
+	 * {@link MemoizedCallbackField}.
+	 * 
+	 * @param p_class
+	 * @param p_callback
+	 * @param p_cacheSize
+	 *            quantidade máxima de resultados memorizados
+	 */
+	public void setClassCallBackToString(@SuppressWarnings("rawtypes") Class p_class,
+			CallbackFieldToString p_callback, int p_cacheSize) {
+		setClassCallBackToString(p_class,
+				new MemoizedCallbackFieldToString(p_callback, p_cacheSize, createCallbackKey(p_class)));
+	}
+
+	/**
+	 * Chave dos resultados memorizados dos callbacks da classe informada.
+	 * 
+	 * @param p_class
+	 * @return a chave primária para entidades, ou null para usar a identidade
+	 */
+	private Function<Object, Object> createCallbackKey(Class<?> p_class) {
+		if (!p_class.isAnnotationPresent(Entity.class))
+			return null;
+		return p_value -> em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(p_value);
+	}
+
+	/**
+	 * Define o campo da entidade referenciada cujo valor será usado como valor
+	 * nominal de um campo ManyToOne, usado com
+	 * {@link Weka2JPANominalDomain#PROJECTION}.
+	 * 
+	 * Examplo: <code>
+	 * l_arffHelper.setManyToOneDisplayField("category", "name");
+	 * </code>
+	 * 
+	 * @param p_fieldName
+	 *            nome do campo ManyToOne da entidade base
+	 * @param p_displayField
+	 *            nome do campo da entidade referenciada
+	 */
+	public void setManyToOneDisplayField(String p_fieldName, String p_displayField) {
+		mappingPlans.clear();
+		manyToOneDisplayFields.put(p_fieldName, p_displayField);
+	}
+
+	/**
+	 * Este método permite adicionar valores "incógnitos" (Missing) a um campos
+	 * especifico.
+	 * 
+	 * Este método pode ser chamado quantas vezes for necessário para adicionar
+	 * diversos campos como "incógnitos".
+	 * 
+	 * Os campos que forem "incógnitos" serão valorados com uma ? para que
+	 * durante o processo com o WEKA seja tratados adequadmente.
+	 * 
+	 * Normalmente os campos extras são tratados como "incógnitos", portanto o
+	 * ideal é fornecer o mesmo objeto que foi entregue como sendo o objeto
+	 * padrão do campo extra.
+	 * 
+	 * A melhor forma de se fazer uso deste recurso é fornecer a string "?" como
+	 * valor padrão do campo extra.
 	 * 
 	 * E similar a chamar {@link Instance#setMissing(int)}.
 	 * 
@@ -444,9 +2049,45 @@ public class Weka2JPAHelper<E> {
 	 *            nome do campo que deve ser tratado como Incognito.
 	 */
 	public <I> void setMissing(String p_fieldName, I p_defaultValue) {
+		mappingPlans.clear();
 		mapMissingValueToFields.put(p_fieldName, p_defaultValue);
 	}
 
+	/**
+	 * Permite definir como são obtidos os valores nominais dos campos
+	 * ManyToOne.
+	 * 
+	 * Com {@link Weka2JPANominalDomain#REFERENCED_ONLY} ou
+	 * {@link Weka2JPANominalDomain#PROJECTION} as tabelas referenciadas não são
+	 * carregadas por completo, apenas os registros usados pela entidade base.
+	 * 
+	 * @param p_domain
+	 */
+	public void setNominalDomain(Weka2JPANominalDomain p_domain) {
+		nominalDomain = p_domain;
+	}
+
+	/**
+	 * Permite manter os índices dos valores nominais dos campos ManyToOne
+	 * entre exportações, inclusive entre execuções da aplicação, assim
+	 * modelos treinados com arquivos anteriores continuam válidos.
+	 * 
+	 * Os valores já armazenados mantêm seus índices e os novos valores são
+	 * acrescentados ao fim do atributo, veja
+	 * {@link Weka2JPANominalDictionaryStore}. O armazenamento deve ser lido
+	 * uma única vez e compartilhado pelas exportações.
+	 * 
+	 * @param p_store
+	 *            armazenamento ou null para usar a ordem da consulta
+	 */
+	public void setDictionaryStore(Weka2JPANominalDictionaryStore p_store) {
+		dictionaryStore = p_store;
+	}
+
+	public Weka2JPANominalDictionaryStore getDictionaryStore() {
+		return dictionaryStore;
+	}
+
 	/**
 	 * permite definir se os valores dos campos que retornarem null sejam do
 	 * tipo Incognito (?)
@@ -456,4 +2097,24 @@ public class Weka2JPAHelper<E> {
 	public void setNullLikeIncognito(boolean p_flag) {
 		useNullLikeIncognito = p_flag;
 	}
+
+	/**
+	 * Define o receptor das medições de cada exportação: o tempo de cada
+	 * etapa, as linhas convertidas por segundo, os bytes gravados, os valores
+	 * incógnitos e as falhas de conversão, veja {@link Weka2JPAExportMetrics}
+	 * e {@link Weka2JPAMetricsRegistry}.
+	 * 
+	 * Cada sessão de exportação, veja {@link #openExportSession()}, é medida
+	 * e entregue ao receptor quando fechada.
+	 * 
+	 * @param p_reporter
+	 *            receptor ou null para não medir as exportações
+	 */
+	public void setMetricsReporter(Weka2JPAMetricsReporter p_reporter) {
+		metricsReporter = p_reporter;
+	}
+
+	public Weka2JPAMetricsReporter getMetricsReporter() {
+		return metricsReporter;
+	}
 }
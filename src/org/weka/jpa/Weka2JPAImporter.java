@@ -0,0 +1,435 @@
+package org.weka.jpa;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.GeneratedValue;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.ArffLoader;
+
+/**
+ * Caminho inverso da exportação: lê um arquivo ARFF e persiste cada
+ * instancia como uma nova entidade.
+ * 
+ * Os atributos são associados aos campos da entidade pelo mesmo plano de
+ * mapeamento da exportação, veja {@link Weka2JPAMappingPlan}, pelo nome do
+ * atributo. Atributos sem campo correspondente, como os campos extras, são
+ * ignorados, assim como campos sem atributo no arquivo.
+ * 
+ * O arquivo é lido de forma incremental, uma instancia por vez, e a cada
+ * {@link #setBatchSize(int)} entidades o {@link EntityManager} é esvaziado
+ * (flush) e limpo (clear), portanto o uso de memória não depende do tamanho
+ * do arquivo. Para que as inserções de cada lote sejam enviadas em lotes
+ * JDBC configure o mesmo tamanho na unidade de persistência, por exemplo
+ * <code>hibernate.jdbc.batch_size</code> ou
+ * <code>eclipselink.jdbc.batch-writing.size</code>.
+ * 
+ * Quando não há uma transação ativa, e o {@link EntityManager} não é
+ * gerenciado pelo container (JTA), cada lote é gravado em sua própria
+ * transação. Caso contrário os lotes são gravados na transação atual.
+ * 
+ * Valores incógnitos tornam-se null, ou o valor definido por
+ * {@link Weka2JPAHelper#setMissing(String, Object)}, campos primitivos
+ * mantêm seu valor padrão. Os valores nominais dos campos ManyToOne são
+ * convertidos em referências às entidades pelo mesmo dicionário da
+ * exportação, prefira {@link Weka2JPANominalDomain#FULL_TABLE}.
+ * 
+ * Chaves primárias geradas ({@link GeneratedValue}) e campos de versão
+ * ({@link javax.persistence.Version}) não são importados, as entidades
+ * recebem novas chaves e versões. Para atualizar entidades já existentes
+ * pelas chaves e versões gravadas no arquivo use {@link #setMerge(boolean)}.
+ * 
+ * @see Weka2JPAHelper#load(java.io.File, Class)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public class Weka2JPAImporter<E> {
+
+	/**
+	 * Altera um campo da entidade com o valor de um atributo da instancia,
+	 * criado uma única vez por campo, como os conversores da exportação.
+	 */
+	@FunctionalInterface
+	private interface FieldWriter {
+
+		void write(Object p_entity, Instance p_instance);
+	}
+
+	private Logger log = LoggerFactory.getLogger(this.getClass());
+	private Weka2JPAHelper<E> helper;
+	private EntityManager em;
+	private Weka2JPAMappingPlan<E> plan;
+	private int batchSize = 1000;
+	private boolean merge;
+	private long unknownValues;
+
+	/**
+	 * @param p_helper
+	 *            helper cuja configuração define o mapeamento
+	 * @param p_em
+	 *            {@link EntityManager} em que as entidades são persistidas
+	 * @param p_entityClass
+	 */
+	public Weka2JPAImporter(Weka2JPAHelper<E> p_helper, EntityManager p_em, Class<E> p_entityClass) {
+		helper = p_helper;
+		em = p_em;
+		plan = p_helper.getMappingPlan(p_entityClass);
+	}
+
+	/**
+	 * Quantidade de entidades persistidas entre cada flush e clear do
+	 * {@link EntityManager}, e em cada transação quando a transação é
+	 * controlada pelo importador.
+	 * 
+	 * @param p_batchSize
+	 */
+	public void setBatchSize(int p_batchSize) {
+		if (p_batchSize < 1)
+			throw new IllegalArgumentException("Tamanho do lote deve ser positivo: " + p_batchSize);
+		batchSize = p_batchSize;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Quando ativo as entidades são gravadas por {@link EntityManager#merge(Object)}
+	 * em vez de {@link EntityManager#persist(Object)}, importando também as
+	 * chaves geradas e as versões: entidades existentes são atualizadas, com
+	 * a verificação otimista da versão, e as demais inseridas.
+	 * 
+	 * O padrão é não usar, cada instancia é uma nova entidade.
+	 * 
+	 * @param p_flag
+	 */
+	public void setMerge(boolean p_flag) {
+		merge = p_flag;
+	}
+
+	public boolean isMerge() {
+		return merge;
+	}
+
+	/**
+	 * Lê o arquivo ARFF e persiste cada instancia como uma nova entidade.
+	 * 
+	 * O {@link Reader} não é fechado.
+	 * 
+	 * @param p_reader
+	 * @return quantidade de entidades persistidas
+	 * @throws IOException
+	 */
+	public long importFrom(Reader p_reader) throws IOException {
+		ArffLoader.ArffReader l_arff = new ArffLoader.ArffReader(p_reader, 1);
+		Instances l_header = l_arff.getStructure();
+
+		Constructor<E> l_constructor = getConstructor();
+		List<FieldWriter> l_writers = createWriters(l_header);
+
+		EntityTransaction l_transaction = getOwnTransaction(em);
+		long l_count = 0;
+		unknownValues = 0;
+		try {
+			if (l_transaction != null)
+				l_transaction.begin();
+
+			Instance l_instance;
+			while ((l_instance = l_arff.readInstance(l_header)) != null) {
+				E l_entity = l_constructor.newInstance();
+				for (FieldWriter l_writer : l_writers) {
+					l_writer.write(l_entity, l_instance);
+				}
+				if (merge)
+					em.merge(l_entity);
+				else
+					em.persist(l_entity);
+
+				if (++l_count % batchSize == 0) {
+					endBatch(l_transaction);
+					if (log.isDebugEnabled())
+						log.debug(l_count + " entidades importadas");
+				}
+			}
+
+			em.flush();
+			em.clear();
+			if (l_transaction != null)
+				l_transaction.commit();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Entidade não pode ser criada: " + plan.getEntityClass(), e);
+		} finally {
+			if (l_transaction != null && l_transaction.isActive())
+				l_transaction.rollback();
+		}
+
+		if (unknownValues > 0)
+			log.warn(unknownValues + " valores nominais sem entidade correspondente foram importados como null");
+		log.info("Importação concluída: " + l_count + " entidades " + plan.getRelationBaseName());
+		return l_count;
+	}
+
+	/**
+	 * Grava as entidades do lote e as desanexa, iniciando uma nova transação
+	 * quando a transação é controlada pelo importador.
+	 * 
+	 * @param p_transaction
+	 */
+	private void endBatch(EntityTransaction p_transaction) {
+		em.flush();
+		em.clear();
+		if (p_transaction != null) {
+			p_transaction.commit();
+			p_transaction.begin();
+		}
+	}
+
+	/**
+	 * Obtem a transação que será controlada pelo importador, também usada
+	 * por {@link Weka2JPAScorer}.
+	 * 
+	 * @param p_em
+	 * @return a transação, ou null quando já existe uma transação ativa ou as
+	 *         transações são gerenciadas pelo container
+	 */
+	static EntityTransaction getOwnTransaction(EntityManager p_em) {
+		try {
+			EntityTransaction l_transaction = p_em.getTransaction();
+			return l_transaction.isActive() ? null : l_transaction;
+		} catch (IllegalStateException e) {
+			// EntityManager JTA, transação gerenciada pelo container
+			return null;
+		}
+	}
+
+	private Constructor<E> getConstructor() {
+		try {
+			Constructor<E> l_constructor = plan.getEntityClass().getDeclaredConstructor();
+			l_constructor.setAccessible(true);
+			return l_constructor;
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Entidade sem construtor sem parâmetros: " + plan.getEntityClass(), e);
+		}
+	}
+
+	/**
+	 * Cria o conversor de cada campo do plano que possui um atributo de mesmo
+	 * nome no cabeçalho, exceto as chaves geradas e as versões, veja
+	 * {@link #isGenerated(Weka2JPAFieldMapping)}.
+	 * 
+	 * @param p_header
+	 * @return
+	 */
+	private List<FieldWriter> createWriters(Instances p_header) {
+		Weka2JPAAttributeProcessor<E> l_processor = null;
+		List<FieldWriter> l_writers = new ArrayList<>(plan.getFields().size());
+
+		for (Weka2JPAFieldMapping l_mapping : plan.getFields()) {
+			Attribute l_att = p_header.attribute(l_mapping.getAttributeName());
+			if (l_att == null) {
+				log.info("Campo " + l_mapping.getFieldName() + " sem atributo no arquivo, ignorado");
+				continue;
+			}
+			if (!merge && isGenerated(l_mapping)) {
+				log.info("Campo " + l_mapping.getFieldName() + " gerado pela persistência, ignorado");
+				continue;
+			}
+
+			Field l_field = l_mapping.getMetadata().getField();
+			switch (l_mapping.getKind()) {
+			case NUMERIC:
+				l_writers.add(createNumericWriter(l_mapping, l_att, l_field));
+				break;
+			case STRING:
+				l_writers.add(createStringWriter(l_mapping, l_att, l_field));
+				break;
+			case NOMINAL_REFERENCE:
+				if (l_processor == null)
+					l_processor = new Weka2JPAAttributeProcessor<>(plan, helper, Weka2JPAExportSession.wrap(em));
+				l_writers.add(createReferenceWriter(l_mapping, l_att, l_field,
+						l_processor.createDictionaryFromManyToOne(l_mapping)));
+				break;
+			}
+		}
+
+		log.info("Campos importados: " + l_writers.size() + " de " + plan.getFields().size());
+		return l_writers;
+	}
+
+	/**
+	 * Verifica se o campo é uma chave primária gerada ou a versão da
+	 * entidade, valores atribuídos pela camada de persistência.
+	 * 
+	 * @param p_mapping
+	 * @return
+	 */
+	private boolean isGenerated(Weka2JPAFieldMapping p_mapping) {
+		SingularAttribute<?, ?> l_attribute;
+		try {
+			EntityType<E> l_type = em.getMetamodel().entity(plan.getEntityClass());
+			l_attribute = l_type.getSingularAttribute(p_mapping.getFieldName());
+		} catch (IllegalArgumentException e) {
+			// não é um atributo persistente da entidade
+			return false;
+		}
+
+		if (l_attribute.isVersion())
+			return true;
+		return l_attribute.isId() && p_mapping.getMetadata().getField().isAnnotationPresent(GeneratedValue.class);
+	}
+
+	private FieldWriter createNumericWriter(Weka2JPAFieldMapping p_mapping, Attribute p_att,
+			Field p_field) {
+		Class<?> l_type = p_mapping.getMetadata().getType();
+		Object l_missing = missingValueOf(p_mapping, l_type);
+		int l_index = p_att.index();
+
+		if (p_att.isNumeric()) {
+			return (p_entity, p_instance) -> {
+				if (p_instance.isMissing(l_index))
+					setField(p_entity, p_field, l_missing);
+				else
+					setField(p_entity, p_field, toNumber(l_type, p_instance.value(l_index)));
+			};
+		}
+
+		// atributo nominal ou String com valores numéricos
+		return (p_entity, p_instance) -> {
+			if (p_instance.isMissing(l_index))
+				setField(p_entity, p_field, l_missing);
+			else
+				setField(p_entity, p_field, toNumber(l_type, Double.parseDouble(p_instance.stringValue(l_index))));
+		};
+	}
+
+	private FieldWriter createStringWriter(Weka2JPAFieldMapping p_mapping, Attribute p_att,
+			Field p_field) {
+		Object l_missing = missingValueOf(p_mapping, String.class);
+		int l_index = p_att.index();
+		boolean l_numeric = p_att.isNumeric();
+
+		return (p_entity, p_instance) -> {
+			if (p_instance.isMissing(l_index))
+				setField(p_entity, p_field, l_missing);
+			else if (l_numeric)
+				setField(p_entity, p_field, Double.toString(p_instance.value(l_index)));
+			else
+				setField(p_entity, p_field, p_instance.stringValue(l_index));
+		};
+	}
+
+	/**
+	 * Cria o conversor de um campo ManyToOne, o valor nominal é localizado no
+	 * dicionário e a entidade referenciada é obtida por
+	 * {@link EntityManager#getReference(Class, Object)} pela sua chave, sem
+	 * consultar o banco para cada linha.
+	 * 
+	 * @param p_mapping
+	 * @param p_att
+	 * @param p_field
+	 * @param p_dictionary
+	 * @return
+	 */
+	private FieldWriter createReferenceWriter(Weka2JPAFieldMapping p_mapping, Attribute p_att,
+			Field p_field, Weka2JPANominalDictionary p_dictionary) {
+		Class<?> l_type = p_mapping.getMetadata().getType();
+		int l_index = p_att.index();
+
+		return (p_entity, p_instance) -> {
+			if (p_instance.isMissing(l_index))
+				return;
+
+			int l_valueIndex = p_dictionary.indexOf(p_instance.stringValue(l_index));
+			Object l_key = l_valueIndex < 0 ? null : p_dictionary.keyOf(l_valueIndex);
+			if (l_key == null) {
+				unknownValues++;
+				return;
+			}
+			setField(p_entity, p_field, em.getReference(l_type, l_key));
+		};
+	}
+
+	/**
+	 * Valor usado no campo quando o atributo é incógnito, o valor definido
+	 * por {@link Weka2JPAHelper#setMissing(String, Object)} convertido para o
+	 * tipo do campo, ou null.
+	 * 
+	 * @param p_mapping
+	 * @param p_type
+	 * @return
+	 */
+	private static Object missingValueOf(Weka2JPAFieldMapping p_mapping, Class<?> p_type) {
+		Object l_missing = p_mapping.getMissingValue();
+		if (l_missing instanceof Number && p_type != String.class)
+			return toNumber(p_type, ((Number) l_missing).doubleValue());
+		if (l_missing != null && p_type == String.class)
+			return l_missing.toString();
+		return null;
+	}
+
+	/**
+	 * Altera o valor do campo já acessível, campos primitivos não aceitam
+	 * null e mantêm o valor atual.
+	 * 
+	 * @param p_entity
+	 * @param p_field
+	 * @param p_value
+	 */
+	static void setField(Object p_entity, Field p_field, Object p_value) {
+		if (p_value == null && p_field.getType().isPrimitive())
+			return;
+		try {
+			p_field.set(p_entity, p_value);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Campo não pode ser alterado: " + p_field, e);
+		}
+	}
+
+	/**
+	 * Converte o valor do atributo para o tipo númerico do campo, valores
+	 * inteiros são arredondados.
+	 * 
+	 * @param p_type
+	 * @param p_value
+	 * @return
+	 */
+	static Object toNumber(Class<?> p_type, double p_value) {
+		if (p_type == double.class || p_type == Double.class || p_type == Number.class)
+			return p_value;
+		if (p_type == float.class || p_type == Float.class)
+			return (float) p_value;
+		if (p_type == long.class || p_type == Long.class)
+			return Math.round(p_value);
+		if (p_type == int.class || p_type == Integer.class)
+			return (int) Math.round(p_value);
+		if (p_type == short.class || p_type == Short.class)
+			return (short) Math.round(p_value);
+		if (p_type == byte.class || p_type == Byte.class)
+			return (byte) Math.round(p_value);
+		if (p_type == BigDecimal.class)
+			return BigDecimal.valueOf(p_value);
+		if (p_type == BigInteger.class)
+			return BigInteger.valueOf(Math.round(p_value));
+		throw new IllegalArgumentException("Tipo númerico não suportado: " + p_type);
+	}
+}
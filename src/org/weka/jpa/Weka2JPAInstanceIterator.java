@@ -0,0 +1,94 @@
+package org.weka.jpa;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Percorre as instancias convertidas a partir das entidades uma a uma, sem
+ * construir o conjunto completo, por exemplo para treinar classificadores
+ * atualizáveis (weka.classifiers.UpdateableClassifier) diretamente do banco.
+ * 
+ * As entidades são obtidas e convertidas uma página por vez, cada página com
+ * seu próprio cabeçalho, veja
+ * {@link Weka2JPAAttributeProcessor#createPageHeader(Instances)}, assim as
+ * instancias já entregues continuam válidas.
+ * 
+ * Mantém aberta a sessão da exportação até {@link #close()}, deve ser usado
+ * com try-with-resources:
+ * 
+ * <pre>
+ * try (Weka2JPAInstanceIterator l_it = helper.iterateInstances(Entidade.class)) {
+ * 	classificador.buildClassifier(l_it.getHeader());
+ * 	while (l_it.hasNext())
+ * 		classificador.updateClassifier(l_it.next());
+ * }
+ * </pre>
+ * 
+ * @see Weka2JPAHelper#iterateInstances(Class)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAInstanceIterator implements Iterator<Instance>, AutoCloseable {
+
+	private Weka2JPAExportSession session;
+	private Weka2JPAAttributeProcessor<?> processor;
+	private Weka2JPAEntitySource<?> source;
+	private Instances header;
+	private Iterator<Instance> page = Collections.emptyIterator();
+	private boolean finished;
+
+	Weka2JPAInstanceIterator(Weka2JPAExportSession p_session, Weka2JPAAttributeProcessor<?> p_processor,
+			Instances p_header, Weka2JPAEntitySource<?> p_source) {
+		session = p_session;
+		processor = p_processor;
+		header = p_header;
+		source = p_source;
+	}
+
+	/**
+	 * Cabeçalho das instancias, sem dados.
+	 * 
+	 * @return
+	 */
+	public Instances getHeader() {
+		return header;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!page.hasNext() && !finished) {
+			List<?> l_rows = source.nextPage();
+			if (l_rows.isEmpty()) {
+				finished = true;
+			} else {
+				Instances l_pageHeader = processor.createPageHeader(header);
+				page = processor.createInstancesFromRows(l_pageHeader, l_rows).iterator();
+			}
+		}
+		return page.hasNext();
+	}
+
+	@Override
+	public Instance next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return page.next();
+	}
+
+	/**
+	 * Encerra a sessão da exportação.
+	 */
+	@Override
+	public void close() {
+		finished = true;
+		page = Collections.emptyIterator();
+		session.close();
+	}
+}
@@ -0,0 +1,27 @@
+package org.weka.jpa;
+
+import java.io.IOException;
+
+import weka.core.Instance;
+import weka.core.converters.ArffSaver;
+
+/**
+ * Destino das instancias gravadas de forma incremental, por exemplo
+ * {@link ArffSaver#writeIncremental(Instance)} ou
+ * {@link Weka2JPAArffWriter#write(Instance)}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@FunctionalInterface
+public interface Weka2JPAInstanceSink {
+
+	/**
+	 * Grava a instancia informada.
+	 * 
+	 * @param p_instance
+	 * @throws IOException
+	 */
+	public void write(Instance p_instance) throws IOException;
+}
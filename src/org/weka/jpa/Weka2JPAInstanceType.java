@@ -0,0 +1,46 @@
+package org.weka.jpa;
+
+import weka.core.BinarySparseInstance;
+import weka.core.DenseInstance;
+import weka.core.SparseInstance;
+
+/**
+ * Define a representação das instancias criadas a partir das entidades, e
+ * portanto a sintaxe da seção de dados do arquivo ARFF.
+ * 
+ * @see Weka2JPAHelper#setInstanceType(Weka2JPAInstanceType)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPAInstanceType {
+
+	/**
+	 * Todos os valores são mantidos e gravados, {@link DenseInstance}.
+	 */
+	DENSE,
+
+	/**
+	 * Apenas os valores diferentes de zero são mantidos e gravados na sintaxe
+	 * esparsa <code>{indice valor, ...}</code>, {@link SparseInstance}.
+	 * 
+	 * O valor zero de um atributo String é reservado para o texto vazio, pois
+	 * valores zero não são gravados.
+	 */
+	SPARSE,
+
+	/**
+	 * Como {@link #SPARSE}, mas todo valor diferente de zero, inclusive o
+	 * incógnito, é considerado 1, {@link BinarySparseInstance}. Indicado
+	 * apenas quando todos os atributos são binários.
+	 */
+	BINARY_SPARSE,
+
+	/**
+	 * Escolhe entre {@link #DENSE} e {@link #SPARSE} para cada lote de
+	 * entidades, conforme a proporção de valores diferentes de zero observada
+	 * no lote.
+	 */
+	AUTOMATIC;
+}
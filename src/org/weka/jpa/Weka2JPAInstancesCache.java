@@ -0,0 +1,93 @@
+package org.weka.jpa;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import weka.core.Instances;
+
+/**
+ * Cache dos conjuntos de instancias obtidos por
+ * {@link Weka2JPAHelper#getInstances(Class)}, evitando consultar e converter
+ * a tabela novamente a cada novo treino.
+ * 
+ * Cada conjunto é identificado pela classe base, pelo plano de mapeamento e
+ * pela consulta, e é válido enquanto a versão dos dados não mudar e o tempo
+ * de vida não expirar. A versão é calculada pelo helper a cada consulta ao
+ * cache, veja {@link Weka2JPAHelper#setInstancesCacheTtl(long, java.util.concurrent.TimeUnit)}.
+ * 
+ * É entregue sempre uma cópia do conjunto armazenado, assim alterações feitas
+ * por quem o usa, como a definição da classe ou filtros, não alteram o cache.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAInstancesCache {
+
+	private static final class Entry {
+
+		private final Instances instances;
+		private final Object version;
+		private final long expiresAt;
+
+		private Entry(Instances p_instances, Object p_version, long p_expiresAt) {
+			instances = p_instances;
+			version = p_version;
+			expiresAt = p_expiresAt;
+		}
+	}
+
+	private final Map<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+	private final long ttlNanos;
+
+	/**
+	 * @param p_ttlNanos
+	 *            tempo de vida de cada conjunto em nanossegundos
+	 */
+	public Weka2JPAInstancesCache(long p_ttlNanos) {
+		ttlNanos = p_ttlNanos;
+	}
+
+	/**
+	 * Obtem uma cópia do conjunto armazenado.
+	 * 
+	 * @param p_key
+	 * @param p_version
+	 *            versão atual dos dados
+	 * @return a cópia, ou null quando o conjunto não existe, expirou ou é de
+	 *         outra versão
+	 */
+	public Instances get(List<Object> p_key, Object p_version) {
+		Entry l_entry = entries.get(p_key);
+		if (l_entry == null)
+			return null;
+
+		if (System.nanoTime() - l_entry.expiresAt >= 0 || !l_entry.version.equals(p_version)) {
+			entries.remove(p_key, l_entry);
+			return null;
+		}
+		return new Instances(l_entry.instances);
+	}
+
+	/**
+	 * Armazena o conjunto, removendo os conjuntos expirados.
+	 * 
+	 * @param p_key
+	 * @param p_version
+	 * @param p_instances
+	 */
+	public void put(List<Object> p_key, Object p_version, Instances p_instances) {
+		long l_now = System.nanoTime();
+		entries.values().removeIf(l_entry -> l_now - l_entry.expiresAt >= 0);
+		entries.put(p_key, new Entry(new Instances(p_instances), p_version, l_now + ttlNanos));
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public long getTtlNanos() {
+		return ttlNanos;
+	}
+}
@@ -0,0 +1,145 @@
+package org.weka.jpa;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Id;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Type.PersistenceType;
+
+/**
+ * Obtem as entidades em páginas ordenadas pelo campo anotado com {@link Id},
+ * usando a última chave lida como ponto de partida da próxima página:
+ * 
+ * <code>SELECT E FROM Entidade E WHERE E.id &gt; :last ORDER BY E.id</code>
+ * 
+ * Diferente de paginar com OFFSET, o custo de cada página não cresce conforme
+ * se avança na tabela. Antes de cada nova página o {@link EntityManager} é
+ * limpo, assim o contexto de persistência mantém no máximo uma página de
+ * entidades.
+ * 
+ * A entidade deve possuir uma única chave primária, caso contrário use
+ * {@link Weka2JPAOffsetEntitySource}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public class Weka2JPAKeysetEntitySource<E> implements Weka2JPAEntitySource<E> {
+
+	private Weka2JPAExportSession session;
+	private Class<E> entityClass;
+	private int pageSize;
+	private String firstPageQlString;
+	private String nextPageQlString;
+	private Map<String, ?> parameters;
+	private Object lastId;
+	private List<E> lastPage = Collections.emptyList();
+	private boolean finished;
+
+	public Weka2JPAKeysetEntitySource(EntityManager p_em, Class<E> p_entityClass, int p_pageSize) {
+		this(Weka2JPAExportSession.wrap(p_em), p_entityClass, p_pageSize);
+	}
+
+	/**
+	 * Obtem as entidades pela sessão informada, usando suas dicas de consulta.
+	 * 
+	 * @param p_session
+	 * @param p_entityClass
+	 * @param p_pageSize
+	 */
+	public Weka2JPAKeysetEntitySource(Weka2JPAExportSession p_session, Class<E> p_entityClass, int p_pageSize) {
+		this(p_session, p_entityClass, p_pageSize, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Obtem pela sessão informada apenas as entidades que atendem à condição
+	 * JPQL informada, escrita sobre o alias <code>E</code> da entidade base,
+	 * por exemplo <code>E.alteracao &gt; :desde</code>.
+	 * 
+	 * @param p_session
+	 * @param p_entityClass
+	 * @param p_pageSize
+	 * @param p_condition
+	 *            condição ou null para todas as entidades
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 */
+	public Weka2JPAKeysetEntitySource(Weka2JPAExportSession p_session, Class<E> p_entityClass, int p_pageSize,
+			String p_condition, Map<String, ?> p_parameters) {
+		session = p_session;
+		entityClass = p_entityClass;
+		pageSize = p_pageSize;
+		parameters = p_parameters;
+
+		EntityType<E> l_type = p_session.getEntityManager().getMetamodel().entity(p_entityClass);
+		if (!supports(p_session.getEntityManager(), p_entityClass))
+			throw new IllegalArgumentException("Entidade sem chave primária simples: " + l_type.getName());
+
+		String l_idName = l_type.getId(l_type.getIdType().getJavaType()).getName();
+
+		String l_from = "SELECT E FROM " + l_type.getName() + " E";
+		if (p_condition == null) {
+			firstPageQlString = l_from + " ORDER BY E." + l_idName;
+			nextPageQlString = l_from + " WHERE E." + l_idName + " > :last ORDER BY E." + l_idName;
+		} else {
+			firstPageQlString = l_from + " WHERE (" + p_condition + ") ORDER BY E." + l_idName;
+			nextPageQlString = l_from + " WHERE (" + p_condition + ") AND E." + l_idName + " > :last ORDER BY E."
+					+ l_idName;
+		}
+	}
+
+	/**
+	 * Verifica se a entidade informada possui uma única chave primária de tipo
+	 * básico, condição para uso desta fonte, chaves embutidas
+	 * ({@link javax.persistence.EmbeddedId}) não podem ser comparadas.
+	 * 
+	 * @param p_em
+	 * @param p_entityClass
+	 * @return
+	 */
+	public static boolean supports(EntityManager p_em, Class<?> p_entityClass) {
+		try {
+			EntityType<?> l_type = p_em.getMetamodel().entity(p_entityClass);
+			return l_type.hasSingleIdAttribute() && l_type.getIdType().getPersistenceType() == PersistenceType.BASIC;
+		} catch (IllegalArgumentException e) {
+			// não é uma entidade gerenciada
+			return false;
+		}
+	}
+
+	@Override
+	public List<E> nextPage() {
+		if (finished)
+			return Collections.emptyList();
+
+		session.release(lastPage);
+		lastPage = Collections.emptyList();
+
+		TypedQuery<E> l_query;
+		if (lastId == null) {
+			l_query = session.createQuery(firstPageQlString, entityClass);
+		} else {
+			l_query = session.createQuery(nextPageQlString, entityClass);
+			l_query.setParameter("last", lastId);
+		}
+		parameters.forEach(l_query::setParameter);
+		l_query.setMaxResults(pageSize);
+
+		List<E> l_page = l_query.getResultList();
+		lastPage = l_page;
+
+		if (l_page.size() < pageSize)
+			finished = true;
+		if (!l_page.isEmpty())
+			lastId = session.getEntityManager().getEntityManagerFactory().getPersistenceUnitUtil()
+					.getIdentifier(l_page.get(l_page.size() - 1));
+
+		return l_page;
+	}
+}
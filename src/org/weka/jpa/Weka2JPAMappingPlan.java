@@ -0,0 +1,129 @@
+package org.weka.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.weka.jpa.utils.CallbackField;
+import org.weka.jpa.utils.CallbackFieldToIndex;
+import org.weka.jpa.utils.CallbackFieldToNumber;
+import org.weka.jpa.utils.CallbackFieldToString;
+
+/**
+ * Plano de mapeamento de uma classe de entidade em atributos ARFF.
+ * 
+ * Combina os metadados da classe ({@link Weka2JPAEntityMetadata}) com a
+ * configuração do {@link Weka2JPAHelper} (campos ignorados, campos extras,
+ * callbacks e valores incógnitos), resolvendo tudo uma única vez. O plano é
+ * imutável e mantido em cache pelo helper enquanto sua configuração não for
+ * alterada, veja {@link Weka2JPAHelper#getMappingPlan(Class)}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public final class Weka2JPAMappingPlan<E> {
+
+	private final Weka2JPAEntityMetadata<E> metadata;
+	private final List<Weka2JPAFieldMapping> fields;
+	private final List<Weka2JPAFieldMapping> extraFields;
+
+	private Weka2JPAMappingPlan(Weka2JPAEntityMetadata<E> p_metadata, List<Weka2JPAFieldMapping> p_fields,
+			List<Weka2JPAFieldMapping> p_extraFields) {
+		metadata = p_metadata;
+		fields = Collections.unmodifiableList(p_fields);
+		extraFields = Collections.unmodifiableList(p_extraFields);
+	}
+
+	/**
+	 * Compila o plano de mapeamento da classe informada com a configuração
+	 * atual do helper.
+	 * 
+	 * @param p_metadata
+	 * @param p_helper
+	 * @return
+	 */
+	static <E> Weka2JPAMappingPlan<E> compile(Weka2JPAEntityMetadata<E> p_metadata, Weka2JPAHelper<E> p_helper) {
+
+		List<Weka2JPAFieldMapping> l_fields = new ArrayList<>(p_metadata.getFields().size());
+		for (Weka2JPAFieldMetadata l_field : p_metadata.getFields()) {
+			if (p_helper.ignoreFieldsTypeOf.contains(l_field.getType())
+					|| p_helper.ignoreFieldsName.contains(l_field.getFieldName())) {
+				continue;
+			}
+
+			CallbackField<?> l_callback = p_helper.baseClassFieldClassCallBack.get(l_field.getType());
+			Object l_missing = p_helper.mapMissingValueToFields.get(l_field.getFieldName());
+
+			String l_displayField = p_helper.manyToOneDisplayFields.get(l_field.getFieldName());
+
+			l_fields.add(new Weka2JPAFieldMapping(l_field, l_callback, l_missing, l_displayField));
+		}
+
+		List<Weka2JPAFieldMapping> l_extraFields = new ArrayList<>(p_helper.baseClassExtraFieldsNames.size());
+		for (String l_extraField : p_helper.baseClassExtraFieldsNames) {
+			CallbackField<?> l_callback = p_helper.baseClassFieldCallBack.get(l_extraField);
+			Object l_defaultValue = p_helper.baseClassDefaultValuesExtraField.get(l_extraField);
+			Object l_missing = p_helper.mapMissingValueToFields.get(l_extraField);
+			List<String> l_nominalValues = p_helper.baseClassNominalValuesExtraField.get(l_extraField);
+
+			l_extraFields.add(new Weka2JPAFieldMapping(l_extraField, kindOfExtraField(l_callback, l_defaultValue),
+					l_callback, l_defaultValue, l_missing, l_nominalValues));
+		}
+
+		return new Weka2JPAMappingPlan<>(p_metadata, l_fields, l_extraFields);
+	}
+
+	/**
+	 * Define o tipo do atributo de um campo extra, pelo tipo de callback
+	 * registrado ou na falta deste pelo tipo do valor padrão.
+	 * 
+	 * @param p_callback
+	 * @param p_defaultValue
+	 * @return
+	 */
+	private static Weka2JPAAttributeKind kindOfExtraField(CallbackField<?> p_callback, Object p_defaultValue) {
+		if (p_callback instanceof CallbackFieldToIndex)
+			return Weka2JPAAttributeKind.NOMINAL;
+		if (p_callback instanceof CallbackFieldToNumber)
+			return Weka2JPAAttributeKind.NUMERIC;
+		if (p_callback instanceof CallbackFieldToString)
+			return Weka2JPAAttributeKind.STRING;
+		if (p_defaultValue == null || p_defaultValue instanceof Number)
+			return Weka2JPAAttributeKind.NUMERIC;
+		return Weka2JPAAttributeKind.STRING;
+	}
+
+	public Class<E> getEntityClass() {
+		return metadata.getEntityClass();
+	}
+
+	/**
+	 * Mapeamentos dos campos extras, na ordem em que foram adicionados.
+	 * 
+	 * @return lista imutável
+	 */
+	public List<Weka2JPAFieldMapping> getExtraFields() {
+		return extraFields;
+	}
+
+	/**
+	 * Mapeamentos dos campos da entidade base, na ordem em que foram
+	 * declarados.
+	 * 
+	 * @return lista imutável
+	 */
+	public List<Weka2JPAFieldMapping> getFields() {
+		return fields;
+	}
+
+	public Weka2JPAEntityMetadata<E> getMetadata() {
+		return metadata;
+	}
+
+	public String getRelationBaseName() {
+		return metadata.getRelationBaseName();
+	}
+}
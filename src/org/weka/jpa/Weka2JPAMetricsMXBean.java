@@ -0,0 +1,50 @@
+package org.weka.jpa;
+
+import java.util.Map;
+
+/**
+ * Interface JMX das medições das exportações, publicada por
+ * {@link Weka2JPAMetricsRegistry#registerMBean()}.
+ * 
+ * Os totais acumulam todas as exportações desde a criação do registro ou do
+ * último {@link #reset()}, e os valores <code>Last</code> referem-se à última
+ * exportação encerrada, permitindo alertas por queda de vazão.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public interface Weka2JPAMetricsMXBean {
+
+	public long getExportCount();
+
+	public long getTotalRows();
+
+	public long getTotalBytesWritten();
+
+	public long getTotalMissingValues();
+
+	public long getTotalConversionErrors();
+
+	public String getLastEntityName();
+
+	public long getLastElapsedMillis();
+
+	public double getLastRowsPerSecond();
+
+	/**
+	 * @return tempo de cada etapa da última exportação, em milissegundos,
+	 *         pelo nome da etapa
+	 */
+	public Map<String, Long> getLastStageMillis();
+
+	/**
+	 * @return falhas de conversão da última exportação, por atributo
+	 */
+	public Map<String, Long> getLastConversionErrors();
+
+	/**
+	 * Descarta os totais e o histórico.
+	 */
+	public void reset();
+}
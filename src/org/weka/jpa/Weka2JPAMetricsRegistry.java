@@ -0,0 +1,202 @@
+package org.weka.jpa;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Receptor das medições que as mantém em memória: os totais de todas as
+ * exportações e o histórico das últimas exportações, consultáveis pela
+ * aplicação ou por JMX, veja {@link #registerMBean()}.
+ * 
+ * <pre>
+ * Weka2JPAMetricsRegistry l_registry = new Weka2JPAMetricsRegistry();
+ * l_registry.registerMBean();
+ * helper.setMetricsReporter(l_registry);
+ * </pre>
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAMetricsRegistry implements Weka2JPAMetricsReporter, Weka2JPAMetricsMXBean {
+
+	/**
+	 * Nome padrão do MBean publicado.
+	 */
+	public static final String DEFAULT_OBJECT_NAME = "org.weka.jpa:type=Weka2JPAMetrics";
+
+	private final int historySize;
+	private final Deque<Weka2JPAExportMetrics> history = new ArrayDeque<>();
+
+	private long exportCount;
+	private long totalRows;
+	private long totalBytesWritten;
+	private long totalMissingValues;
+	private long totalConversionErrors;
+
+	private ObjectName objectName;
+
+	public Weka2JPAMetricsRegistry() {
+		this(100);
+	}
+
+	/**
+	 * @param p_historySize
+	 *            quantidade de exportações mantidas no histórico
+	 */
+	public Weka2JPAMetricsRegistry(int p_historySize) {
+		if (p_historySize < 1)
+			throw new IllegalArgumentException("historySize: " + p_historySize);
+		historySize = p_historySize;
+	}
+
+	@Override
+	public synchronized void report(Weka2JPAExportMetrics p_metrics) {
+		if (history.size() == historySize)
+			history.removeFirst();
+		history.addLast(p_metrics);
+
+		exportCount++;
+		totalRows += p_metrics.getRows();
+		totalBytesWritten += p_metrics.getBytesWritten();
+		totalMissingValues += p_metrics.getMissingValueCount();
+		totalConversionErrors += p_metrics.getConversionErrorCount();
+	}
+
+	/**
+	 * Medições das últimas exportações, da mais antiga para a mais recente.
+	 * 
+	 * @return
+	 */
+	public synchronized List<Weka2JPAExportMetrics> getHistory() {
+		return Collections.unmodifiableList(new ArrayList<>(history));
+	}
+
+	/**
+	 * @return medições da última exportação, ou null quando nenhuma foi
+	 *         encerrada
+	 */
+	public synchronized Weka2JPAExportMetrics getLast() {
+		return history.peekLast();
+	}
+
+	/**
+	 * Publica o registro no MBeanServer da plataforma com o nome
+	 * {@link #DEFAULT_OBJECT_NAME}.
+	 * 
+	 * @throws JMException
+	 */
+	public void registerMBean() throws JMException {
+		registerMBean(new ObjectName(DEFAULT_OBJECT_NAME));
+	}
+
+	/**
+	 * Publica o registro no MBeanServer da plataforma com o nome informado,
+	 * por exemplo para distinguir os registros de aplicações diferentes.
+	 * 
+	 * @param p_name
+	 * @throws JMException
+	 */
+	public synchronized void registerMBean(ObjectName p_name) throws JMException {
+		if (objectName != null)
+			throw new IllegalStateException("Registro já publicado como " + objectName);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, p_name);
+		objectName = p_name;
+	}
+
+	/**
+	 * Remove o registro do MBeanServer da plataforma, quando publicado.
+	 * 
+	 * @throws JMException
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		if (objectName == null)
+			return;
+		MBeanServer l_server = ManagementFactory.getPlatformMBeanServer();
+		if (l_server.isRegistered(objectName))
+			l_server.unregisterMBean(objectName);
+		objectName = null;
+	}
+
+	@Override
+	public synchronized long getExportCount() {
+		return exportCount;
+	}
+
+	@Override
+	public synchronized long getTotalRows() {
+		return totalRows;
+	}
+
+	@Override
+	public synchronized long getTotalBytesWritten() {
+		return totalBytesWritten;
+	}
+
+	@Override
+	public synchronized long getTotalMissingValues() {
+		return totalMissingValues;
+	}
+
+	@Override
+	public synchronized long getTotalConversionErrors() {
+		return totalConversionErrors;
+	}
+
+	@Override
+	public synchronized String getLastEntityName() {
+		Weka2JPAExportMetrics l_last = getLast();
+		return l_last == null ? null : l_last.getEntityName();
+	}
+
+	@Override
+	public synchronized long getLastElapsedMillis() {
+		Weka2JPAExportMetrics l_last = getLast();
+		return l_last == null ? 0 : TimeUnit.NANOSECONDS.toMillis(l_last.getElapsedNanos());
+	}
+
+	@Override
+	public synchronized double getLastRowsPerSecond() {
+		Weka2JPAExportMetrics l_last = getLast();
+		return l_last == null ? 0 : l_last.getRowsPerSecond();
+	}
+
+	@Override
+	public synchronized Map<String, Long> getLastStageMillis() {
+		Map<String, Long> l_stages = new LinkedHashMap<>();
+		Weka2JPAExportMetrics l_last = getLast();
+		if (l_last != null) {
+			for (Weka2JPAExportStage l_stage : Weka2JPAExportStage.values()) {
+				l_stages.put(l_stage.name(), TimeUnit.NANOSECONDS.toMillis(l_last.getStageNanos(l_stage)));
+			}
+		}
+		return l_stages;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getLastConversionErrors() {
+		Weka2JPAExportMetrics l_last = getLast();
+		return l_last == null ? Collections.emptyMap() : l_last.getConversionErrors();
+	}
+
+	@Override
+	public synchronized void reset() {
+		history.clear();
+		exportCount = 0;
+		totalRows = 0;
+		totalBytesWritten = 0;
+		totalMissingValues = 0;
+		totalConversionErrors = 0;
+	}
+}
@@ -0,0 +1,25 @@
+package org.weka.jpa;
+
+/**
+ * Recebe as medições de cada exportação ao seu fim, veja
+ * {@link Weka2JPAHelper#setMetricsReporter(Weka2JPAMetricsReporter)}.
+ * 
+ * É chamado pela thread que encerra a exportação, logo após o fechamento da
+ * sessão, e deve retornar rapidamente. Falhas do receptor são registradas no
+ * log e não interrompem a exportação.
+ * 
+ * @see Weka2JPAMetricsRegistry
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@FunctionalInterface
+public interface Weka2JPAMetricsReporter {
+
+	/**
+	 * @param p_metrics
+	 *            medições da exportação encerrada, não mais alteradas
+	 */
+	public void report(Weka2JPAExportMetrics p_metrics);
+}
@@ -0,0 +1,229 @@
+package org.weka.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dicionário dos valores de um atributo nominal.
+ * 
+ * Mantém a lista ordenada dos valores, que define o índice de cada valor no
+ * cabeçalho ARFF, junto de um mapa do valor para seu índice, permitindo
+ * localizar o índice de um valor sem percorrer a lista. Opcionalmente cada
+ * índice também pode ser associado a uma chave, como a chave primária da
+ * entidade referenciada, evitando converter a entidade em String a cada
+ * linha.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPANominalDictionary {
+
+	private final List<String> values;
+	private final Map<String, Integer> valueIndex;
+	private final Map<Object, Integer> keyIndex;
+	private final List<Object> keys;
+
+	public Weka2JPANominalDictionary() {
+		this(16);
+	}
+
+	public Weka2JPANominalDictionary(int p_expectedSize) {
+		values = new ArrayList<>(p_expectedSize);
+		valueIndex = new HashMap<>(p_expectedSize * 4 / 3 + 1);
+		keyIndex = new HashMap<>(p_expectedSize * 4 / 3 + 1);
+		keys = new ArrayList<>(p_expectedSize);
+	}
+
+	/**
+	 * Adiciona um valor ao dicionário caso ainda não exista.
+	 * 
+	 * @param p_value
+	 * @return o índice do valor
+	 */
+	public int add(String p_value) {
+		Integer l_index = valueIndex.get(p_value);
+		if (l_index == null) {
+			l_index = values.size();
+			values.add(p_value);
+			keys.add(null);
+			valueIndex.put(p_value, l_index);
+		}
+		return l_index;
+	}
+
+	/**
+	 * Adiciona um valor ao dicionário associando seu índice à chave
+	 * informada.
+	 * 
+	 * @param p_key
+	 *            chave, normalmente a chave primária da entidade referenciada
+	 * @param p_value
+	 * @return o índice do valor
+	 */
+	public int add(Object p_key, String p_value) {
+		int l_index = add(p_value);
+		if (p_key != null)
+			putKey(p_key, l_index);
+		return l_index;
+	}
+
+	/**
+	 * Associa a chave ao índice, o primeiro valor associado a cada índice é
+	 * mantido como sua chave, veja {@link #keyOf(int)}.
+	 * 
+	 * @param p_key
+	 * @param p_index
+	 */
+	private void putKey(Object p_key, int p_index) {
+		keyIndex.put(p_key, p_index);
+		if (keys.get(p_index) == null)
+			keys.set(p_index, p_key);
+	}
+
+	/**
+	 * Localiza o índice de um valor.
+	 * 
+	 * @param p_value
+	 * @return o índice ou -1 caso o valor não exista
+	 */
+	public int indexOf(String p_value) {
+		Integer l_index = valueIndex.get(p_value);
+		return l_index == null ? -1 : l_index;
+	}
+
+	/**
+	 * Localiza o índice associado a uma chave.
+	 * 
+	 * @see #add(Object, String)
+	 * @param p_key
+	 * @return o índice ou -1 caso a chave não exista
+	 */
+	public int indexOfKey(Object p_key) {
+		Integer l_index = keyIndex.get(p_key);
+		return l_index == null ? -1 : l_index;
+	}
+
+	/**
+	 * Localiza a chave associada a um índice, o caminho inverso de
+	 * {@link #indexOfKey(Object)}.
+	 * 
+	 * @param p_index
+	 * @return a chave ou null caso o índice não tenha chave
+	 */
+	public Object keyOf(int p_index) {
+		return keys.get(p_index);
+	}
+
+	/**
+	 * Chaves associadas aos valores, veja {@link #add(Object, String)}.
+	 * 
+	 * @return conjunto imutável
+	 */
+	public Set<Object> getKeys() {
+		return Collections.unmodifiableSet(keyIndex.keySet());
+	}
+
+	/**
+	 * Indica se algum valor foi associado a uma chave.
+	 * 
+	 * @return
+	 */
+	public boolean hasKeys() {
+		return !keyIndex.isEmpty();
+	}
+
+	/**
+	 * Cria um dicionário com os valores informados, na mesma ordem, mantendo
+	 * as chaves deste dicionário cujos valores existam entre os informados.
+	 * 
+	 * Usado para manter os índices de um cabeçalho já gravado, os valores
+	 * deste dicionário que não existam entre os informados são descartados e
+	 * suas chaves deixam de ser localizadas.
+	 * 
+	 * @param p_values
+	 * @return
+	 */
+	public Weka2JPANominalDictionary restrictTo(List<String> p_values) {
+		Weka2JPANominalDictionary l_dictionary = new Weka2JPANominalDictionary(p_values.size());
+		for (String l_value : p_values) {
+			l_dictionary.add(l_value);
+		}
+		copyKeysTo(l_dictionary);
+		return l_dictionary;
+	}
+
+	/**
+	 * Cria um dicionário que começa pelos valores informados, na mesma ordem,
+	 * seguidos dos valores deste dicionário que não existam entre eles, em
+	 * ordem alfabética, mantendo as chaves deste dicionário.
+	 * 
+	 * Assim os índices dos valores informados não mudam e os novos valores
+	 * recebem índices que não dependem da ordem em que foram consultados.
+	 * 
+	 * @param p_values
+	 * @return
+	 */
+	public Weka2JPANominalDictionary extendFrom(List<String> p_values) {
+		Weka2JPANominalDictionary l_dictionary = new Weka2JPANominalDictionary(p_values.size() + values.size());
+		for (String l_value : p_values) {
+			l_dictionary.add(l_value);
+		}
+
+		List<String> l_newValues = new ArrayList<>();
+		for (String l_value : values) {
+			if (l_dictionary.indexOf(l_value) < 0)
+				l_newValues.add(l_value);
+		}
+		Collections.sort(l_newValues);
+		for (String l_value : l_newValues) {
+			l_dictionary.add(l_value);
+		}
+
+		copyKeysTo(l_dictionary);
+		return l_dictionary;
+	}
+
+	/**
+	 * Associa as chaves deste dicionário aos índices dos mesmos valores no
+	 * dicionário informado.
+	 * 
+	 * @param p_dictionary
+	 */
+	private void copyKeysTo(Weka2JPANominalDictionary p_dictionary) {
+		// as chaves de cada índice primeiro, mantendo-as como chaves dos
+		// índices do novo dicionário
+		for (int i = 0; i < keys.size(); i++) {
+			int l_index = p_dictionary.indexOf(values.get(i));
+			if (keys.get(i) != null && l_index >= 0)
+				p_dictionary.putKey(keys.get(i), l_index);
+		}
+		for (Map.Entry<Object, Integer> l_entry : keyIndex.entrySet()) {
+			int l_index = p_dictionary.indexOf(values.get(l_entry.getValue()));
+			if (l_index >= 0)
+				p_dictionary.putKey(l_entry.getKey(), l_index);
+		}
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	/**
+	 * Valores na ordem de seus índices.
+	 * 
+	 * @return lista imutável
+	 */
+	public List<String> getValues() {
+		return Collections.unmodifiableList(values);
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
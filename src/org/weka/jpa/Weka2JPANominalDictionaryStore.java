@@ -0,0 +1,377 @@
+package org.weka.jpa;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Armazena em arquivo os valores dos atributos nominais de cada entidade,
+ * mantendo os mesmos índices entre exportações.
+ * 
+ * Sem o armazenamento a ordem dos valores de um campo ManyToOne depende da
+ * ordem retornada pela consulta, e duas exportações dos mesmos dados podem
+ * gerar cabeçalhos diferentes, obrigando modelos já treinados a serem
+ * refeitos. Com o armazenamento cada valor recebe o índice da primeira vez
+ * em que foi exportado, os novos valores são acrescentados ao fim e nenhum
+ * valor é removido, veja {@link Weka2JPANominalDictionary#extendFrom(List)}.
+ * 
+ * Junto de cada valor é armazenada a chave primária da entidade
+ * referenciada, quando esta é de um tipo básico, veja
+ * {@link #isKeyType(Class)}. Assim as exportações seguintes consultam apenas
+ * as chaves das entidades referenciadas e carregam somente as entidades
+ * ainda não armazenadas, sem refazer o dicionário inteiro. Os valores de
+ * chaves já armazenadas não são relidos, mesmo que a entidade referenciada
+ * tenha sido alterada, para refaze-los basta apagar o arquivo.
+ * 
+ * Apenas os atributos nominais são armazenados. Os atributos String também
+ * atribuem índices na ordem em que os textos são encontrados, porém estes
+ * índices existem apenas em memória: o cabeçalho ARFF não lista os textos e
+ * cada linha grava o próprio texto, portanto o arquivo não depende deles.
+ * 
+ * O arquivo é lido uma única vez, em {@link #load(File)}, e apenas os novos
+ * valores são acrescentados ao seu fim, uma linha por valor com a chave
+ * <code>Entidade.atributo</code>, o valor e a chave da entidade referenciada,
+ * quando houver, separados por tabulação. Uma mesma linha de valor pode se
+ * repetir com chaves diferentes.
+ * 
+ * @see Weka2JPAHelper#setDictionaryStore(Weka2JPANominalDictionaryStore)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPANominalDictionaryStore {
+
+	private static final Logger log = LoggerFactory.getLogger(Weka2JPANominalDictionaryStore.class);
+
+	private static final char SEPARATOR = '\t';
+
+	private File file;
+
+	/**
+	 * Valores e chaves de cada atributo, pela chave
+	 * <code>Entidade.atributo</code>.
+	 */
+	private Map<String, Entry> dictionaries = new HashMap<>();
+
+	/**
+	 * Valores armazenados de um atributo na ordem de seus índices e as chaves
+	 * das entidades referenciadas, em texto, associadas a cada índice.
+	 */
+	private static class Entry {
+		private final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> valueIndex = new HashMap<>();
+		private final Map<String, Integer> keys = new LinkedHashMap<>();
+
+		private int add(String p_value) {
+			Integer l_index = valueIndex.get(p_value);
+			if (l_index == null) {
+				l_index = values.size();
+				values.add(p_value);
+				valueIndex.put(p_value, l_index);
+			}
+			return l_index;
+		}
+	}
+
+	private Weka2JPANominalDictionaryStore(File p_file) {
+		file = p_file;
+	}
+
+	/**
+	 * Lê os dicionários gravados no arquivo informado, que é criado na
+	 * primeira gravação caso ainda não exista.
+	 * 
+	 * @param p_file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Weka2JPANominalDictionaryStore load(File p_file) throws IOException {
+		Weka2JPANominalDictionaryStore l_store = new Weka2JPANominalDictionaryStore(p_file);
+		if (!p_file.exists())
+			return l_store;
+
+		try (BufferedReader l_reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(p_file), StandardCharsets.UTF_8))) {
+			String l_line;
+			while ((l_line = l_reader.readLine()) != null) {
+				int l_separator = l_line.indexOf(SEPARATOR);
+				if (l_separator < 0) {
+					log.warn("Linha ignorada em " + p_file + ": " + l_line);
+					continue;
+				}
+				String l_value = l_line.substring(l_separator + 1);
+				String l_key = null;
+				int l_keySeparator = l_value.indexOf(SEPARATOR);
+				if (l_keySeparator >= 0) {
+					l_key = unescape(l_value.substring(l_keySeparator + 1));
+					l_value = l_value.substring(0, l_keySeparator);
+				}
+
+				Entry l_entry = l_store.getEntry(l_line.substring(0, l_separator));
+				int l_index = l_entry.add(unescape(l_value));
+				if (l_key != null)
+					l_entry.keys.put(l_key, l_index);
+			}
+		}
+
+		log.info("Dicionários nominais lidos de " + p_file + ": " + l_store.dictionaries.keySet());
+		return l_store;
+	}
+
+	/**
+	 * Cria o dicionário estável do atributo informado: os valores já
+	 * armazenados mantêm seus índices e os valores do dicionário informado
+	 * que ainda não existem são acrescentados, ao dicionário e ao arquivo.
+	 * 
+	 * @see #stabilize(String, String, Weka2JPANominalDictionary, Class)
+	 * @param p_entityName
+	 * @param p_attributeName
+	 * @param p_dictionary
+	 *            dicionário obtido da camada de persistência
+	 * @return
+	 * @throws UncheckedIOException
+	 *             quando os novos valores não puderem ser gravados
+	 */
+	public Weka2JPANominalDictionary stabilize(String p_entityName, String p_attributeName,
+			Weka2JPANominalDictionary p_dictionary) {
+		return stabilize(p_entityName, p_attributeName, p_dictionary, null);
+	}
+
+	/**
+	 * Cria o dicionário estável do atributo informado, como
+	 * {@link #stabilize(String, String, Weka2JPANominalDictionary)}, também
+	 * armazenando as chaves do dicionário informado.
+	 * 
+	 * O dicionário criado associa aos índices tanto as chaves do dicionário
+	 * informado como as chaves já armazenadas, portanto o dicionário informado
+	 * pode conter apenas as entidades ainda não armazenadas, veja
+	 * {@link #hasKeys(String, String)}.
+	 * 
+	 * @param p_entityName
+	 * @param p_attributeName
+	 * @param p_dictionary
+	 *            dicionário obtido da camada de persistência
+	 * @param p_keyType
+	 *            tipo da chave primária da entidade referenciada, ou null
+	 *            para não armazenar as chaves
+	 * @return
+	 * @throws UncheckedIOException
+	 *             quando os novos valores não puderem ser gravados
+	 */
+	public synchronized Weka2JPANominalDictionary stabilize(String p_entityName, String p_attributeName,
+			Weka2JPANominalDictionary p_dictionary, Class<?> p_keyType) {
+
+		String l_name = p_entityName + "." + p_attributeName;
+		Entry l_entry = getEntry(l_name);
+		int l_storedValues = l_entry.values.size();
+		boolean l_keys = p_keyType != null && isKeyType(p_keyType);
+
+		Weka2JPANominalDictionary l_dictionary = p_dictionary.extendFrom(l_entry.values);
+		if (l_keys) {
+			for (Map.Entry<String, Integer> l_key : l_entry.keys.entrySet()) {
+				l_dictionary.add(parseKey(l_key.getKey(), p_keyType), l_entry.values.get(l_key.getValue()));
+			}
+		}
+
+		// linhas novas, pares de valor e chave
+		List<String[]> l_lines = new ArrayList<>();
+		for (int i = l_storedValues; i < l_dictionary.size(); i++) {
+			Object l_key = l_keys ? l_dictionary.keyOf(i) : null;
+			String l_keyText = l_key == null ? null : l_key.toString();
+			l_entry.add(l_dictionary.getValues().get(i));
+			if (l_keyText != null)
+				l_entry.keys.put(l_keyText, i);
+			l_lines.add(new String[] { l_dictionary.getValues().get(i), l_keyText });
+		}
+		if (l_keys) {
+			for (Object l_key : p_dictionary.getKeys()) {
+				String l_keyText = l_key.toString();
+				if (l_entry.keys.containsKey(l_keyText))
+					continue;
+				int l_index = l_dictionary.indexOfKey(l_key);
+				l_entry.keys.put(l_keyText, l_index);
+				l_lines.add(new String[] { l_dictionary.getValues().get(l_index), l_keyText });
+			}
+		}
+		if (l_lines.isEmpty())
+			return l_dictionary;
+
+		try {
+			append(l_name, l_lines);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Dicionário de " + l_name + " não pode ser gravado em " + file, e);
+		}
+
+		log.info((l_dictionary.size() - l_storedValues) + " valores e " + l_lines.size()
+				+ " linhas acrescentados ao dicionário de " + l_name);
+		return l_dictionary;
+	}
+
+	/**
+	 * Indica se o atributo possui chaves armazenadas, caso em que basta
+	 * informar a
+	 * {@link #stabilize(String, String, Weka2JPANominalDictionary, Class)} as
+	 * entidades cujas chaves ainda não foram armazenadas.
+	 * 
+	 * @param p_entityName
+	 * @param p_attributeName
+	 * @return
+	 */
+	public synchronized boolean hasKeys(String p_entityName, String p_attributeName) {
+		Entry l_entry = dictionaries.get(p_entityName + "." + p_attributeName);
+		return l_entry != null && !l_entry.keys.isEmpty();
+	}
+
+	/**
+	 * Verifica se as chaves do tipo informado podem ser armazenadas, textos,
+	 * números inteiros e decimais e {@link UUID}.
+	 * 
+	 * @param p_type
+	 * @return
+	 */
+	public static boolean isKeyType(Class<?> p_type) {
+		return p_type == String.class || p_type == Long.class || p_type == long.class || p_type == Integer.class
+				|| p_type == int.class || p_type == Short.class || p_type == short.class || p_type == Byte.class
+				|| p_type == byte.class || p_type == BigInteger.class || p_type == BigDecimal.class
+				|| p_type == UUID.class;
+	}
+
+	/**
+	 * Converte a chave armazenada em texto para o tipo informado, veja
+	 * {@link #isKeyType(Class)}.
+	 * 
+	 * @param p_text
+	 * @param p_type
+	 * @return
+	 */
+	private static Object parseKey(String p_text, Class<?> p_type) {
+		if (p_type == Long.class || p_type == long.class)
+			return Long.valueOf(p_text);
+		if (p_type == Integer.class || p_type == int.class)
+			return Integer.valueOf(p_text);
+		if (p_type == Short.class || p_type == short.class)
+			return Short.valueOf(p_text);
+		if (p_type == Byte.class || p_type == byte.class)
+			return Byte.valueOf(p_text);
+		if (p_type == BigInteger.class)
+			return new BigInteger(p_text);
+		if (p_type == BigDecimal.class)
+			return new BigDecimal(p_text);
+		if (p_type == UUID.class)
+			return UUID.fromString(p_text);
+		return p_text;
+	}
+
+	/**
+	 * Valores armazenados do atributo informado, na ordem de seus índices.
+	 * 
+	 * @param p_entityName
+	 * @param p_attributeName
+	 * @return lista imutável, vazia quando o atributo não foi armazenado
+	 */
+	public synchronized List<String> getValues(String p_entityName, String p_attributeName) {
+		Entry l_entry = dictionaries.get(p_entityName + "." + p_attributeName);
+		if (l_entry == null)
+			return Collections.emptyList();
+		return Collections.unmodifiableList(new ArrayList<>(l_entry.values));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	private Entry getEntry(String p_name) {
+		return dictionaries.computeIfAbsent(p_name, k -> new Entry());
+	}
+
+	/**
+	 * @param p_name
+	 * @param p_lines
+	 *            pares de valor e chave, a chave pode ser null
+	 * @throws IOException
+	 */
+	private void append(String p_name, List<String[]> p_lines) throws IOException {
+		try (Writer l_writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+			StringBuilder l_line = new StringBuilder();
+			for (String[] l_pair : p_lines) {
+				l_line.setLength(0);
+				l_line.append(p_name).append(SEPARATOR);
+				escape(l_pair[0], l_line);
+				if (l_pair[1] != null) {
+					l_line.append(SEPARATOR);
+					escape(l_pair[1], l_line);
+				}
+				l_writer.append(l_line).append('\n');
+			}
+		}
+	}
+
+	private static void escape(String p_value, StringBuilder p_out) {
+		for (int i = 0; i < p_value.length(); i++) {
+			char l_char = p_value.charAt(i);
+			switch (l_char) {
+			case '\\':
+				p_out.append("\\\\");
+				break;
+			case '\n':
+				p_out.append("\\n");
+				break;
+			case '\r':
+				p_out.append("\\r");
+				break;
+			case '\t':
+				p_out.append("\\t");
+				break;
+			default:
+				p_out.append(l_char);
+			}
+		}
+	}
+
+	private static String unescape(String p_value) {
+		if (p_value.indexOf('\\') < 0)
+			return p_value;
+
+		StringBuilder l_out = new StringBuilder(p_value.length());
+		for (int i = 0; i < p_value.length(); i++) {
+			char l_char = p_value.charAt(i);
+			if (l_char == '\\' && i + 1 < p_value.length()) {
+				switch (p_value.charAt(++i)) {
+				case 'n':
+					l_char = '\n';
+					break;
+				case 'r':
+					l_char = '\r';
+					break;
+				case 't':
+					l_char = '\t';
+					break;
+				default:
+					l_char = p_value.charAt(i);
+				}
+			}
+			l_out.append(l_char);
+		}
+		return l_out.toString();
+	}
+}
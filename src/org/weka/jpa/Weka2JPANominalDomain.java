@@ -0,0 +1,38 @@
+package org.weka.jpa;
+
+/**
+ * Define como são obtidos os valores dos atributos nominais criados a partir
+ * de campos ManyToOne.
+ * 
+ * @see Weka2JPAHelper#setNominalDomain(Weka2JPANominalDomain)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPANominalDomain {
+
+	/**
+	 * Todas as entidades da tabela referenciada, mesmo as que não são usadas
+	 * pela entidade base: <code>SELECT E FROM Referenciada E</code>
+	 */
+	FULL_TABLE,
+
+	/**
+	 * Apenas as entidades referenciadas pela entidade base:
+	 * <code>SELECT DISTINCT R FROM Base E JOIN E.campo R</code>
+	 */
+	REFERENCED_ONLY,
+
+	/**
+	 * Apenas a chave e o campo de exibição das entidades referenciadas pela
+	 * entidade base, sem carregar as entidades:
+	 * <code>SELECT DISTINCT R.id, R.exibicao FROM Base E JOIN E.campo R</code>
+	 * 
+	 * O campo de exibição é informado por
+	 * {@link Weka2JPAHelper#setManyToOneDisplayField(String, String)}, campos
+	 * sem campo de exibição, ou cuja entidade referenciada não possua uma chave
+	 * primária simples, usam {@link #REFERENCED_ONLY}.
+	 */
+	PROJECTION;
+}
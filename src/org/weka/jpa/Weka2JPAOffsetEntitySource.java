@@ -0,0 +1,174 @@
+package org.weka.jpa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Obtem as entidades em páginas usando
+ * {@link TypedQuery#setFirstResult(int)} e
+ * {@link TypedQuery#setMaxResults(int)}.
+ * 
+ * Usada apenas quando a entidade não possui uma chave primária simples, pois
+ * o custo das páginas cresce conforme se avança na tabela, prefira
+ * {@link Weka2JPAKeysetEntitySource}.
+ * 
+ * As páginas são ordenadas pelos campos da chave primária composta, veja
+ * {@link #createIdOrder(EntityManager, Class)}, pois sem uma ordem estável o
+ * banco pode repetir ou omitir linhas entre as páginas.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public class Weka2JPAOffsetEntitySource<E> implements Weka2JPAEntitySource<E> {
+
+	private Weka2JPAExportSession session;
+	private Class<E> entityClass;
+	private int pageSize;
+	private String qlString;
+	private Map<String, ?> parameters;
+	private int first;
+	private List<E> lastPage = Collections.emptyList();
+	private boolean finished;
+
+	public Weka2JPAOffsetEntitySource(EntityManager p_em, Class<E> p_entityClass, int p_pageSize) {
+		this(Weka2JPAExportSession.wrap(p_em), p_entityClass, p_pageSize);
+	}
+
+	/**
+	 * Obtem as entidades pela sessão informada, usando suas dicas de consulta.
+	 * 
+	 * @param p_session
+	 * @param p_entityClass
+	 * @param p_pageSize
+	 */
+	public Weka2JPAOffsetEntitySource(Weka2JPAExportSession p_session, Class<E> p_entityClass, int p_pageSize) {
+		this(p_session, p_entityClass, p_pageSize, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Obtem pela sessão informada apenas as entidades que atendem à condição
+	 * JPQL informada, escrita sobre o alias <code>E</code> da entidade base,
+	 * por exemplo <code>E.alteracao &gt; :desde</code>.
+	 * 
+	 * @param p_session
+	 * @param p_entityClass
+	 * @param p_pageSize
+	 * @param p_condition
+	 *            condição ou null para todas as entidades
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 */
+	public Weka2JPAOffsetEntitySource(Weka2JPAExportSession p_session, Class<E> p_entityClass, int p_pageSize,
+			String p_condition, Map<String, ?> p_parameters) {
+		session = p_session;
+		entityClass = p_entityClass;
+		pageSize = p_pageSize;
+		parameters = p_parameters;
+		String l_order = createIdOrder(p_session.getEntityManager(), p_entityClass);
+		if (l_order == null)
+			throw new IllegalArgumentException("Entidade sem chave primária para ordenar as páginas: "
+					+ p_entityClass.getSimpleName());
+
+		qlString = "SELECT E FROM " + p_session.getEntityManager().getMetamodel().entity(p_entityClass).getName()
+				+ " E ";
+		if (p_condition != null)
+			qlString += "WHERE (" + p_condition + ")";
+		qlString += l_order;
+	}
+
+	/**
+	 * Cria a cláusula ORDER BY pelos campos da chave primária da entidade,
+	 * sobre o alias <code>E</code>: a chave simples, os campos da
+	 * {@link javax.persistence.IdClass} ou os campos da
+	 * {@link javax.persistence.EmbeddedId}, na ordem de seus nomes.
+	 * 
+	 * @param p_em
+	 * @param p_entityClass
+	 * @return a cláusula, ou null quando a chave não pode ser determinada
+	 */
+	static String createIdOrder(EntityManager p_em, Class<?> p_entityClass) {
+		Metamodel l_metamodel = p_em.getMetamodel();
+		EntityType<?> l_type;
+		try {
+			l_type = l_metamodel.entity(p_entityClass);
+		} catch (IllegalArgumentException e) {
+			// não é uma entidade gerenciada
+			return null;
+		}
+
+		List<String> l_paths = new ArrayList<>();
+		try {
+			if (l_type.hasSingleIdAttribute())
+				addIdPaths(l_metamodel, "E", l_type.getId(l_type.getIdType().getJavaType()), l_paths);
+			else
+				for (SingularAttribute<?, ?> l_id : sortByName(l_type.getIdClassAttributes()))
+					addIdPaths(l_metamodel, "E", l_id, l_paths);
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			return null;
+		}
+
+		if (l_paths.isEmpty())
+			return null;
+		return " ORDER BY " + String.join(", ", l_paths);
+	}
+
+	/**
+	 * Acrescenta o caminho do campo, ou dos campos do embutido, às colunas da
+	 * ordenação.
+	 */
+	private static void addIdPaths(Metamodel p_metamodel, String p_path, SingularAttribute<?, ?> p_attribute,
+			List<String> p_paths) {
+		String l_path = p_path + "." + p_attribute.getName();
+		if (p_attribute.getPersistentAttributeType() != PersistentAttributeType.EMBEDDED) {
+			p_paths.add(l_path);
+			return;
+		}
+
+		ManagedType<?> l_embeddable = p_metamodel.embeddable(p_attribute.getJavaType());
+		for (SingularAttribute<?, ?> l_part : sortByName(l_embeddable.getSingularAttributes()))
+			addIdPaths(p_metamodel, l_path, l_part, p_paths);
+	}
+
+	private static <T> List<SingularAttribute<? super T, ?>> sortByName(Set<SingularAttribute<? super T, ?>> p_attributes) {
+		List<SingularAttribute<? super T, ?>> l_sorted = new ArrayList<>(p_attributes);
+		l_sorted.sort(Comparator.comparing(SingularAttribute::getName));
+		return l_sorted;
+	}
+
+	@Override
+	public List<E> nextPage() {
+		if (finished)
+			return Collections.emptyList();
+
+		session.release(lastPage);
+		lastPage = Collections.emptyList();
+
+		TypedQuery<E> l_query = session.createQuery(qlString, entityClass);
+		parameters.forEach(l_query::setParameter);
+		l_query.setFirstResult(first);
+		l_query.setMaxResults(pageSize);
+
+		List<E> l_page = l_query.getResultList();
+		lastPage = l_page;
+		if (l_page.size() < pageSize)
+			finished = true;
+		first += l_page.size();
+
+		return l_page;
+	}
+}
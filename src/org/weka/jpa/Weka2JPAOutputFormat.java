@@ -0,0 +1,53 @@
+package org.weka.jpa;
+
+import java.io.File;
+
+import weka.core.converters.SerializedInstancesSaver;
+
+/**
+ * Formato dos arquivos gravados por {@link Weka2JPAHelper}.
+ * 
+ * @see Weka2JPAHelper#setOutputFormat(Weka2JPAOutputFormat)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public enum Weka2JPAOutputFormat {
+
+	/**
+	 * Arquivo ARFF texto.
+	 */
+	ARFF,
+
+	/**
+	 * Arquivo ARFF compactado com gzip (.arff.gz), lido diretamente pelo Weka.
+	 * A compactação é feita enquanto as instancias são gravadas, o arquivo
+	 * sem compactação nunca é criado.
+	 */
+	ARFF_GZIP,
+
+	/**
+	 * Instancias serializadas do Weka (.bsi), veja
+	 * {@link SerializedInstancesSaver}. Exige que todas as instancias sejam
+	 * construídas em memória antes da gravação.
+	 */
+	SERIALIZED;
+
+	/**
+	 * Identifica o formato pela extensão do arquivo: <code>.gz</code> para
+	 * {@link #ARFF_GZIP}, <code>.bsi</code> para {@link #SERIALIZED} e
+	 * {@link #ARFF} para as demais.
+	 * 
+	 * @param p_file
+	 * @return
+	 */
+	public static Weka2JPAOutputFormat of(File p_file) {
+		String l_name = p_file.getName().toLowerCase();
+		if (l_name.endsWith(".gz"))
+			return ARFF_GZIP;
+		if (l_name.endsWith(".bsi"))
+			return SERIALIZED;
+		return ARFF;
+	}
+}
@@ -0,0 +1,125 @@
+package org.weka.jpa;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * Obtem em páginas as linhas da consulta de projeção criada por
+ * {@link Weka2JPAAttributeProcessor#createProjectionQuery()}, cada linha é um
+ * vetor com as colunas usadas pelos atributos, sem carregar entidades.
+ * 
+ * Quando a primeira coluna é a chave da entidade base as páginas são obtidas
+ * pela última chave lida, da mesma forma que
+ * {@link Weka2JPAKeysetEntitySource}, caso contrário por deslocamento,
+ * ordenadas pelos campos da chave composta como em
+ * {@link Weka2JPAOffsetEntitySource}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAProjectionSource implements Weka2JPAEntitySource<Object[]> {
+
+	private Weka2JPAExportSession session;
+	private int pageSize;
+	private String firstPageQlString;
+	private String nextPageQlString;
+	private Map<String, ?> parameters;
+	private boolean keyset;
+	private Object lastId;
+	private int first;
+	private boolean finished;
+
+	public Weka2JPAProjectionSource(EntityManager p_em, Weka2JPAAttributeProcessor<?> p_processor, int p_pageSize) {
+		this(Weka2JPAExportSession.wrap(p_em), p_processor, p_pageSize);
+	}
+
+	/**
+	 * Obtem as linhas pela sessão informada, usando suas dicas de consulta.
+	 * 
+	 * @param p_session
+	 * @param p_processor
+	 * @param p_pageSize
+	 */
+	public Weka2JPAProjectionSource(Weka2JPAExportSession p_session, Weka2JPAAttributeProcessor<?> p_processor,
+			int p_pageSize) {
+		this(p_session, p_processor, p_pageSize, null, Collections.emptyMap());
+	}
+
+	/**
+	 * Obtem pela sessão informada apenas as linhas que atendem à condição JPQL
+	 * informada, escrita sobre o alias <code>E</code> da entidade base.
+	 * 
+	 * @see Weka2JPAKeysetEntitySource#Weka2JPAKeysetEntitySource(Weka2JPAExportSession,
+	 *      Class, int, String, Map)
+	 * @param p_session
+	 * @param p_processor
+	 * @param p_pageSize
+	 * @param p_condition
+	 *            condição ou null para todas as linhas
+	 * @param p_parameters
+	 *            valores dos parâmetros da condição
+	 */
+	public Weka2JPAProjectionSource(Weka2JPAExportSession p_session, Weka2JPAAttributeProcessor<?> p_processor,
+			int p_pageSize, String p_condition, Map<String, ?> p_parameters) {
+		session = p_session;
+		pageSize = p_pageSize;
+		parameters = p_parameters;
+
+		String l_qlString = p_processor.createProjectionQuery();
+		String l_where = " WHERE ";
+		if (p_condition != null) {
+			l_qlString += " WHERE (" + p_condition + ")";
+			l_where = " AND ";
+		}
+
+		String l_idName = p_processor.getProjectionIdName();
+		keyset = l_idName != null;
+		if (keyset) {
+			firstPageQlString = l_qlString + " ORDER BY E." + l_idName;
+			nextPageQlString = l_qlString + l_where + "E." + l_idName + " > :last ORDER BY E." + l_idName;
+		} else {
+			String l_order = Weka2JPAOffsetEntitySource.createIdOrder(p_session.getEntityManager(),
+					p_processor.getEntityClass());
+			if (l_order == null)
+				throw new IllegalArgumentException("Entidade sem chave primária para ordenar as páginas: "
+						+ p_processor.getRelationBaseName());
+			firstPageQlString = l_qlString + l_order;
+		}
+	}
+
+	@Override
+	public List<Object[]> nextPage() {
+		if (finished)
+			return Collections.emptyList();
+
+		// as linhas contêm apenas valores, nenhuma entidade é carregada
+		session.release(Collections.emptyList());
+
+		TypedQuery<Object[]> l_query;
+		if (keyset && lastId != null) {
+			l_query = session.createQuery(nextPageQlString, Object[].class);
+			l_query.setParameter("last", lastId);
+		} else {
+			l_query = session.createQuery(firstPageQlString, Object[].class);
+			if (!keyset)
+				l_query.setFirstResult(first);
+		}
+		parameters.forEach(l_query::setParameter);
+		l_query.setMaxResults(pageSize);
+
+		List<Object[]> l_page = l_query.getResultList();
+
+		if (l_page.size() < pageSize)
+			finished = true;
+		first += l_page.size();
+		if (keyset && !l_page.isEmpty())
+			lastId = l_page.get(l_page.size() - 1)[0];
+
+		return l_page;
+	}
+}
@@ -0,0 +1,392 @@
+package org.weka.jpa;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Classifica as entidades de uma classe com um {@link Classifier} já
+ * treinado e grava a previsão em campos da própria entidade, em uma única
+ * passagem pela tabela.
+ * 
+ * As entidades são obtidas em páginas como na exportação, convertidas em
+ * instancias e classificadas. As previsões de cada página são agrupadas por
+ * valor e gravadas por consultas JPQL de alteração em lote, uma para cada
+ * valor distinto:
+ * 
+ * <code>UPDATE Entidade E SET E.previsao = :valor WHERE E.id IN :ids</code>
+ * 
+ * Portanto cada página custa poucas consultas quando a classe é nominal, e a
+ * entidade deve possuir uma chave primária simples. Estas alterações em lote
+ * não passam pelas entidades: não incrementam o campo
+ * {@link javax.persistence.Version} nem executam callbacks como
+ * {@link javax.persistence.PreUpdate}, assim a exportação das alterações
+ * pela marca d'água não encontra as entidades classificadas, veja
+ * {@link Weka2JPAHelper#saveChanges(java.io.File, Class, String)}.
+ * 
+ * Quando o campo de probabilidade é definido quase toda entidade tem um valor
+ * distinto, e os grupos teriam uma entidade cada. Neste caso as entidades de
+ * cada página são carregadas por uma única consulta, alteradas e gravadas
+ * por um único flush, que incrementa a versão. Para que as alterações sejam
+ * enviadas em lotes JDBC configure a unidade de persistência, por exemplo
+ * <code>hibernate.jdbc.batch_size</code> e
+ * <code>hibernate.order_updates</code>.
+ * 
+ * Quando não há uma transação ativa, e o {@link EntityManager} não é
+ * gerenciado pelo container, cada página é gravada em sua própria transação.
+ * 
+ * O classificador deve ter sido treinado com instancias exportadas da mesma
+ * classe, informe o cabeçalho usado no treino por
+ * {@link #setTrainingHeader(Instances)} para que os atributos nominais
+ * mantenham os mesmos índices.
+ * 
+ * @see Weka2JPAHelper#createScorer(Class, Classifier, String)
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <E>
+ *            Tipo da entidade base
+ */
+public class Weka2JPAScorer<E> {
+
+	/**
+	 * Quantidade máxima de chaves em cada cláusula IN, limite de alguns
+	 * bancos de dados.
+	 */
+	private static final int MAX_IN_SIZE = 1000;
+
+	private Logger log = LoggerFactory.getLogger(this.getClass());
+	private Weka2JPAHelper<E> helper;
+	private Class<E> entityClass;
+	private Classifier classifier;
+	private String classAttributeName;
+	private Instances trainingHeader;
+	private Field targetField;
+	private Field probabilityField;
+
+	/**
+	 * @param p_helper
+	 *            helper cuja configuração define o mapeamento e a leitura
+	 * @param p_entityClass
+	 * @param p_classifier
+	 *            classificador já treinado
+	 * @param p_classAttribute
+	 *            nome do atributo classe, como definido no treino
+	 */
+	public Weka2JPAScorer(Weka2JPAHelper<E> p_helper, Class<E> p_entityClass, Classifier p_classifier,
+			String p_classAttribute) {
+		helper = p_helper;
+		entityClass = p_entityClass;
+		classifier = p_classifier;
+		classAttributeName = p_classAttribute;
+	}
+
+	/**
+	 * Define o campo da entidade que recebe a classe prevista: o texto do
+	 * valor previsto quando o campo é String, ou o valor da classe, o índice
+	 * no caso de classes nominais, quando o campo é númerico.
+	 * 
+	 * @param p_fieldName
+	 */
+	public void setTargetField(String p_fieldName) {
+		targetField = findField(p_fieldName);
+		if (targetField.getType() != String.class && !Weka2JPAEntityMetadata.isNumeric(targetField.getType()))
+			throw new IllegalArgumentException("Campo deve ser String ou númerico: " + p_fieldName);
+		targetField.setAccessible(true);
+	}
+
+	/**
+	 * Define o campo númerico da entidade que recebe a probabilidade da
+	 * classe prevista, apenas para classes nominais.
+	 * 
+	 * Com este campo as previsões são gravadas pelas próprias entidades, uma
+	 * consulta e um flush por página, em vez das alterações em lote.
+	 * 
+	 * @param p_fieldName
+	 */
+	public void setProbabilityField(String p_fieldName) {
+		probabilityField = findField(p_fieldName);
+		if (!Weka2JPAEntityMetadata.isNumeric(probabilityField.getType()))
+			throw new IllegalArgumentException("Campo deve ser númerico: " + p_fieldName);
+		probabilityField.setAccessible(true);
+	}
+
+	/**
+	 * Define o cabeçalho das instancias usadas no treino do classificador.
+	 * 
+	 * Os atributos nominais mantêm os valores deste cabeçalho, como na
+	 * exportação incremental, e a classificação é recusada caso os atributos
+	 * atuais da entidade sejam diferentes.
+	 * 
+	 * @see Weka2JPAAttributeProcessor#setExistingHeader(Instances)
+	 * @param p_header
+	 */
+	public void setTrainingHeader(Instances p_header) {
+		trainingHeader = p_header;
+	}
+
+	private Field findField(String p_fieldName) {
+		try {
+			return entityClass.getDeclaredField(p_fieldName);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalArgumentException("Campo inexistente em " + entityClass.getSimpleName() + ": "
+					+ p_fieldName, e);
+		}
+	}
+
+	/**
+	 * Classifica todas as entidades e grava as previsões.
+	 * 
+	 * Entidades cuja classificação resulte em incógnito não são alteradas,
+	 * assim como as descartadas por {@link Weka2JPAErrorPolicy#SKIP_ROW}. Cada
+	 * linha é convertida individualmente, de modo que a previsão é sempre
+	 * gravada na entidade da qual a instancia foi criada.
+	 * 
+	 * @return quantidade de entidades alteradas
+	 * @throws Exception
+	 *             falhas do classificador
+	 */
+	public long score() throws Exception {
+		if (targetField == null && probabilityField == null)
+			throw new IllegalStateException("Nenhum campo definido para gravar a previsão");
+
+		EntityManager l_em = helper.em;
+		String l_idName = getIdName(l_em);
+		String l_entityName = l_em.getMetamodel().entity(entityClass).getName();
+
+		long l_count = 0;
+		long l_missing = 0;
+		long l_skipped = 0;
+		try (Weka2JPAExportSession l_session = helper.openExportSession()) {
+			Weka2JPAAttributeProcessor<E> l_processor = helper.createProcessor(entityClass, true, l_session);
+			if (trainingHeader != null)
+				l_processor.setExistingHeader(trainingHeader);
+
+			Instances l_header = new Instances(l_processor.getRelationBaseName(), l_processor.createAttributes(), 0);
+			if (trainingHeader != null && !Weka2JPAHelper.sameAttributes(trainingHeader, l_header))
+				throw new IllegalArgumentException("Atributos do treino diferentes dos atributos atuais da entidade "
+						+ l_header.relationName());
+
+			Attribute l_classAtt = l_header.attribute(classAttributeName);
+			if (l_classAtt == null)
+				throw new IllegalArgumentException("Atributo classe inexistente: " + classAttributeName);
+			l_header.setClass(l_classAtt);
+
+			boolean l_projection = l_processor.isProjection();
+			PersistenceUnitUtil l_util = l_em.getEntityManagerFactory().getPersistenceUnitUtil();
+			String l_update = createUpdateQuery(l_entityName, l_idName);
+			String l_select = "SELECT E FROM " + l_entityName + " E WHERE E." + l_idName + " IN :ids";
+
+			Weka2JPAEntitySource<?> l_source = helper.createExportSource(l_processor, l_session);
+			List<?> l_page;
+			while (!(l_page = l_source.nextPage()).isEmpty()) {
+				Map<List<Object>, List<Object>> l_groups = new LinkedHashMap<>();
+				for (Object l_row : l_page) {
+					Instance l_instance = l_processor.createInstanceFromRow(l_header, l_row);
+					if (l_instance == null) {
+						l_skipped++;
+						continue;
+					}
+					List<Object> l_values = predict(l_instance, l_classAtt);
+					if (l_values == null) {
+						l_missing++;
+						continue;
+					}
+					Object l_id = l_projection ? ((Object[]) l_row)[0] : l_util.getIdentifier(l_row);
+					l_groups.computeIfAbsent(l_values, k -> new ArrayList<>()).add(l_id);
+				}
+				l_processor.resetStringValues(l_header);
+
+				if (probabilityField != null)
+					l_count += write(l_em, l_select, l_util, l_groups);
+				else
+					l_count += update(l_em, l_update, l_groups);
+				if (log.isDebugEnabled())
+					log.debug(l_count + " entidades classificadas");
+			}
+		}
+
+		if (l_missing > 0)
+			log.warn(l_missing + " entidades sem classificação não foram alteradas");
+		if (l_skipped > 0)
+			log.warn(l_skipped + " entidades descartadas na conversão não foram alteradas");
+		return l_count;
+	}
+
+	/**
+	 * Classifica a instancia.
+	 * 
+	 * @param p_instance
+	 * @param p_classAtt
+	 * @return os valores dos campos definidos, alvo e probabilidade, ou null
+	 *         quando a previsão é incógnita
+	 * @throws Exception
+	 */
+	private List<Object> predict(Instance p_instance, Attribute p_classAtt) throws Exception {
+		double l_prediction;
+		double l_probability = Double.NaN;
+
+		if (probabilityField != null && p_classAtt.isNominal()) {
+			double[] l_distribution = classifier.distributionForInstance(p_instance);
+			l_prediction = Utils.maxIndex(l_distribution);
+			l_probability = l_distribution[(int) l_prediction];
+			if (l_probability <= 0)
+				return null;
+		} else {
+			l_prediction = classifier.classifyInstance(p_instance);
+			if (Utils.isMissingValue(l_prediction))
+				return null;
+		}
+
+		Object l_target = null;
+		if (targetField != null) {
+			if (targetField.getType() == String.class)
+				l_target = p_classAtt.isNominal() ? p_classAtt.value((int) l_prediction) : Double
+						.toString(l_prediction);
+			else
+				l_target = Weka2JPAImporter.toNumber(targetField.getType(), l_prediction);
+		}
+
+		Object l_probabilityValue = null;
+		if (probabilityField != null && !Double.isNaN(l_probability))
+			l_probabilityValue = Weka2JPAImporter.toNumber(probabilityField.getType(), l_probability);
+
+		return Arrays.asList(l_target, l_probabilityValue);
+	}
+
+	/**
+	 * Cria a consulta de alteração dos campos definidos, com os parâmetros
+	 * <code>target</code>, <code>probability</code> e <code>ids</code>.
+	 * 
+	 * @param p_entityName
+	 *            nome JPQL da entidade
+	 * @param p_idName
+	 * @return
+	 */
+	private String createUpdateQuery(String p_entityName, String p_idName) {
+		StringBuilder l_update = new StringBuilder("UPDATE ").append(p_entityName).append(" E SET ");
+		if (targetField != null)
+			l_update.append("E.").append(targetField.getName()).append(" = :target");
+		if (probabilityField != null) {
+			if (targetField != null)
+				l_update.append(", ");
+			l_update.append("E.").append(probabilityField.getName()).append(" = :probability");
+		}
+		return l_update.append(" WHERE E.").append(p_idName).append(" IN :ids").toString();
+	}
+
+	/**
+	 * Grava as previsões de uma página, uma consulta para cada grupo de
+	 * valores e no máximo {@link #MAX_IN_SIZE} chaves.
+	 * 
+	 * @param p_em
+	 * @param p_update
+	 * @param p_groups
+	 * @return quantidade de entidades alteradas
+	 */
+	private int update(EntityManager p_em, String p_update, Map<List<Object>, List<Object>> p_groups) {
+		EntityTransaction l_transaction = Weka2JPAImporter.getOwnTransaction(p_em);
+		int l_count = 0;
+		try {
+			if (l_transaction != null)
+				l_transaction.begin();
+
+			for (Map.Entry<List<Object>, List<Object>> l_group : p_groups.entrySet()) {
+				List<Object> l_ids = l_group.getValue();
+				for (int l_from = 0; l_from < l_ids.size(); l_from += MAX_IN_SIZE) {
+					Query l_query = p_em.createQuery(p_update);
+					if (targetField != null)
+						l_query.setParameter("target", l_group.getKey().get(0));
+					if (probabilityField != null)
+						l_query.setParameter("probability", l_group.getKey().get(1));
+					l_query.setParameter("ids", l_ids.subList(l_from, Math.min(l_from + MAX_IN_SIZE, l_ids.size())));
+					l_count += l_query.executeUpdate();
+				}
+			}
+
+			if (l_transaction != null)
+				l_transaction.commit();
+		} finally {
+			if (l_transaction != null && l_transaction.isActive())
+				l_transaction.rollback();
+		}
+		return l_count;
+	}
+
+	/**
+	 * Grava as previsões de uma página pelas entidades: carrega as entidades
+	 * da página, no máximo {@link #MAX_IN_SIZE} chaves por consulta, altera
+	 * seus campos e grava todas por um único flush.
+	 * 
+	 * @param p_em
+	 * @param p_select
+	 * @param p_util
+	 * @param p_groups
+	 * @return quantidade de entidades alteradas
+	 */
+	private int write(EntityManager p_em, String p_select, PersistenceUnitUtil p_util,
+			Map<List<Object>, List<Object>> p_groups) {
+		Map<Object, List<Object>> l_values = new HashMap<>();
+		for (Map.Entry<List<Object>, List<Object>> l_group : p_groups.entrySet()) {
+			for (Object l_id : l_group.getValue())
+				l_values.put(l_id, l_group.getKey());
+		}
+		List<Object> l_ids = new ArrayList<>(l_values.keySet());
+
+		EntityTransaction l_transaction = Weka2JPAImporter.getOwnTransaction(p_em);
+		int l_count = 0;
+		try {
+			if (l_transaction != null)
+				l_transaction.begin();
+
+			for (int l_from = 0; l_from < l_ids.size(); l_from += MAX_IN_SIZE) {
+				TypedQuery<E> l_query = p_em.createQuery(p_select, entityClass);
+				l_query.setParameter("ids", l_ids.subList(l_from, Math.min(l_from + MAX_IN_SIZE, l_ids.size())));
+				for (E l_entity : l_query.getResultList()) {
+					List<Object> l_entityValues = l_values.get(p_util.getIdentifier(l_entity));
+					if (targetField != null)
+						Weka2JPAImporter.setField(l_entity, targetField, l_entityValues.get(0));
+					Weka2JPAImporter.setField(l_entity, probabilityField, l_entityValues.get(1));
+					l_count++;
+				}
+			}
+			p_em.flush();
+			p_em.clear();
+
+			if (l_transaction != null)
+				l_transaction.commit();
+		} finally {
+			if (l_transaction != null && l_transaction.isActive())
+				l_transaction.rollback();
+		}
+		return l_count;
+	}
+
+	private String getIdName(EntityManager p_em) {
+		if (!Weka2JPAKeysetEntitySource.supports(p_em, entityClass))
+			throw new IllegalArgumentException("Entidade sem chave primária simples: " + entityClass.getSimpleName());
+		EntityType<E> l_type = p_em.getMetamodel().entity(entityClass);
+		return l_type.getId(l_type.getIdType().getJavaType()).getName();
+	}
+}
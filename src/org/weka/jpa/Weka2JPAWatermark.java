@@ -0,0 +1,180 @@
+package org.weka.jpa;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Properties;
+
+/**
+ * Marca d'água de uma exportação incremental: o maior valor do campo de
+ * controle, por exemplo a data da última alteração ou a chave primária, já
+ * exportado para um arquivo.
+ * 
+ * A marca é gravada ao lado do arquivo exportado, com o mesmo nome acrescido
+ * de {@link #FILE_EXTENSION}, e a próxima exportação incremental obtem apenas
+ * as entidades cujo campo de controle seja maior que a marca, veja
+ * {@link Weka2JPAHelper#saveChanges(File, Class, String)}.
+ * 
+ * O valor é gravado como texto junto do nome da sua classe, e recriado pelo
+ * método estático <code>valueOf(String)</code> ou
+ * <code>parse(CharSequence)</code> da classe, ou pelo seu construtor com um
+ * único String, o que atende os números, {@link java.sql.Timestamp},
+ * {@link java.sql.Date} e as classes de java.time. {@link Date} e
+ * {@link Calendar} são gravados em milissegundos.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class Weka2JPAWatermark {
+
+	/**
+	 * Extensão acrescentada ao nome do arquivo exportado para formar o nome
+	 * do arquivo da marca d'água.
+	 */
+	public static final String FILE_EXTENSION = ".watermark";
+
+	private static final String FIELD_PROPERTY = "field";
+	private static final String TYPE_PROPERTY = "type";
+	private static final String VALUE_PROPERTY = "value";
+
+	private String fieldName;
+	private Object value;
+
+	/**
+	 * @param p_fieldName
+	 *            nome do campo de controle da entidade base
+	 * @param p_value
+	 *            maior valor do campo já exportado
+	 */
+	public Weka2JPAWatermark(String p_fieldName, Object p_value) {
+		fieldName = p_fieldName;
+		value = p_value;
+	}
+
+	/**
+	 * Arquivo da marca d'água do arquivo exportado informado.
+	 * 
+	 * @param p_file
+	 * @return
+	 */
+	public static File fileOf(File p_file) {
+		return new File(p_file.getPath() + FILE_EXTENSION);
+	}
+
+	/**
+	 * Lê a marca d'água gravada por {@link #store(File)}.
+	 * 
+	 * @param p_file
+	 * @return
+	 * @throws IOException
+	 *             quando o arquivo não puder ser lido ou o valor não puder ser
+	 *             recriado
+	 */
+	public static Weka2JPAWatermark load(File p_file) throws IOException {
+		Properties l_properties = new Properties();
+		try (InputStream l_in = new FileInputStream(p_file)) {
+			l_properties.load(l_in);
+		}
+
+		String l_fieldName = l_properties.getProperty(FIELD_PROPERTY);
+		String l_type = l_properties.getProperty(TYPE_PROPERTY);
+		String l_value = l_properties.getProperty(VALUE_PROPERTY);
+		if (l_fieldName == null || l_type == null || l_value == null)
+			throw new IOException("Marca d'água incompleta: " + p_file);
+
+		try {
+			return new Weka2JPAWatermark(l_fieldName, decode(Class.forName(l_type), l_value));
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Valor da marca d'água não pode ser recriado: " + l_type + " " + l_value, e);
+		}
+	}
+
+	/**
+	 * Grava a marca d'água no arquivo informado, substituindo a anterior.
+	 * 
+	 * A marca é gravada primeiro em um arquivo temporário, renomeado ao fim,
+	 * assim uma falha durante a gravação mantém a marca anterior.
+	 * 
+	 * @param p_file
+	 * @throws IOException
+	 */
+	public void store(File p_file) throws IOException {
+		Properties l_properties = new Properties();
+		l_properties.setProperty(FIELD_PROPERTY, fieldName);
+		l_properties.setProperty(TYPE_PROPERTY, value.getClass().getName());
+		l_properties.setProperty(VALUE_PROPERTY, encode(value));
+
+		File l_temp = new File(p_file.getPath() + ".tmp");
+		try (OutputStream l_out = new FileOutputStream(l_temp)) {
+			l_properties.store(l_out, "Weka2JPA");
+		}
+		if (p_file.exists() && !p_file.delete())
+			throw new IOException("Marca d'água anterior não pode ser substituída: " + p_file);
+		if (!l_temp.renameTo(p_file))
+			throw new IOException("Marca d'água não pode ser gravada: " + p_file);
+	}
+
+	private static String encode(Object p_value) {
+		if (p_value instanceof Calendar)
+			return Long.toString(((Calendar) p_value).getTimeInMillis());
+		if (p_value.getClass() == Date.class)
+			return Long.toString(((Date) p_value).getTime());
+		return p_value.toString();
+	}
+
+	private static Object decode(Class<?> p_type, String p_value) throws ReflectiveOperationException {
+		if (Calendar.class.isAssignableFrom(p_type)) {
+			Calendar l_calendar = new GregorianCalendar();
+			l_calendar.setTimeInMillis(Long.parseLong(p_value));
+			return l_calendar;
+		}
+		if (p_type == Date.class)
+			return new Date(Long.parseLong(p_value));
+
+		Method l_factory = findFactory(p_type, "valueOf", String.class);
+		if (l_factory == null)
+			l_factory = findFactory(p_type, "parse", CharSequence.class);
+
+		try {
+			if (l_factory != null)
+				return l_factory.invoke(null, p_value);
+			return p_type.getConstructor(String.class).newInstance(p_value);
+		} catch (InvocationTargetException e) {
+			throw new ReflectiveOperationException(e.getCause());
+		}
+	}
+
+	private static Method findFactory(Class<?> p_type, String p_name, Class<?> p_parameterType) {
+		try {
+			Method l_method = p_type.getMethod(p_name, p_parameterType);
+			if (Modifier.isStatic(l_method.getModifiers()) && p_type.isAssignableFrom(l_method.getReturnType()))
+				return l_method;
+		} catch (NoSuchMethodException e) {
+			// a classe não possui o método
+		}
+		return null;
+	}
+
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return fieldName + " = " + encode(value);
+	}
+}
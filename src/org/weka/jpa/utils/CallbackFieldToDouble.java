@@ -0,0 +1,38 @@
+package org.weka.jpa.utils;
+
+/**
+ * A interface {@link CallbackFieldToDouble} define o formato do callback
+ * (lambda) de campos númericos que retornam diretamente um double, sem criar
+ * um {@link Double} para cada valor convertido.
+ * 
+ * Deve ser preferida a {@link CallbackFieldToNumber} para campos extras
+ * calculados em grandes volumes, o valor {@link Double#NaN} é exportado como
+ * incógnito (missing).
+ * 
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@FunctionalInterface
+public interface CallbackFieldToDouble extends CallbackFieldToNumber<Double> {
+
+	/**
+	 * Converte o valor do campo, veja {@link CallbackField#call(Object, String, Object)}.
+	 * 
+	 * @param p_entity
+	 *            Entidade a qual pertence o campo e o valor obtido no campo.
+	 * @param p_fieldName
+	 *            Nome do campo que está fornecendo o valor
+	 * @param p_fieldValue
+	 *            Valor do campo a ser manipulado
+	 * 
+	 * @return o valor, ou {@link Double#NaN} para incógnito
+	 */
+	public double callDouble(Object p_entity, String p_fieldName, Object p_fieldValue);
+
+	@Override
+	default Double call(Object p_entity, String p_fieldName, Object p_fieldValue) {
+		return callDouble(p_entity, p_fieldName, p_fieldValue);
+	}
+}
@@ -0,0 +1,39 @@
+package org.weka.jpa.utils;
+
+/**
+ * A interface {@link CallbackFieldToIndex} define o formato do callback
+ * (lambda) de campos nominais que retornam diretamente o índice do valor
+ * entre os valores declarados do atributo, sem criar a String do valor nem
+ * procurá-la entre os valores do atributo.
+ * 
+ * Os valores do atributo são informados ao registrar o campo extra, veja
+ * {@link org.weka.jpa.Weka2JPAHelper#addExtraFieldNominal(String, java.util.List, Object, CallbackFieldToIndex)}
+ * .
+ * 
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+@FunctionalInterface
+public interface CallbackFieldToIndex extends CallbackField<Integer> {
+
+	/**
+	 * Converte o valor do campo, veja {@link CallbackField#call(Object, String, Object)}.
+	 * 
+	 * @param p_entity
+	 *            Entidade a qual pertence o campo e o valor obtido no campo.
+	 * @param p_fieldName
+	 *            Nome do campo que está fornecendo o valor
+	 * @param p_fieldValue
+	 *            Valor do campo a ser manipulado
+	 * 
+	 * @return o índice do valor nominal, ou um valor negativo para incógnito
+	 */
+	public int callIndex(Object p_entity, String p_fieldName, Object p_fieldValue);
+
+	@Override
+	default Integer call(Object p_entity, String p_fieldName, Object p_fieldValue) {
+		return callIndex(p_entity, p_fieldName, p_fieldValue);
+	}
+}
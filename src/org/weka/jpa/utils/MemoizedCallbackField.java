@@ -0,0 +1,203 @@
+package org.weka.jpa.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Memoriza os resultados de um {@link CallbackField}, evitando chamá-lo
+ * novamente para um valor já convertido, por exemplo a mesma entidade
+ * referenciada (ManyToOne) por milhares de entidades base.
+ * 
+ * Cada resultado é identificado pelo nome do campo e pelo valor do campo:
+ * pela identidade do objeto ou pela chave obtida da função informada, como a
+ * chave primária da entidade referenciada. Portanto o callback deve depender
+ * apenas do nome e do valor do campo, e não da entidade base, o que exclui os
+ * callbacks de campos extras, cujo valor é sempre o valor padrão.
+ * 
+ * São mantidos no máximo o tamanho informado de resultados, descartando os
+ * usados há mais tempo. Os resultados não expiram, use {@link #clear()}
+ * quando as entidades referenciadas forem alteradas.
+ * 
+ * Pode ser chamado por várias threads, como na conversão paralela.
+ * 
+ * @see MemoizedCallbackFieldToString
+ * @see MemoizedCallbackFieldToNumber
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <R>
+ *            Tipo do retorno, obrigatório Number ou String
+ */
+public class MemoizedCallbackField<R> implements CallbackField<R> {
+
+	/**
+	 * Representa os resultados null no cache.
+	 */
+	private static final Object NULL = new Object();
+
+	/**
+	 * Chave de um resultado, o nome do campo e o valor ou a chave do valor.
+	 */
+	private static final class Key {
+
+		private final String fieldName;
+		private final Object value;
+		private final boolean identity;
+
+		private Key(String p_fieldName, Object p_value, boolean p_identity) {
+			fieldName = p_fieldName;
+			value = p_value;
+			identity = p_identity;
+		}
+
+		@Override
+		public int hashCode() {
+			int l_hash = identity ? System.identityHashCode(value) : value.hashCode();
+			return 31 * l_hash + (fieldName == null ? 0 : fieldName.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object p_other) {
+			if (!(p_other instanceof Key))
+				return false;
+			Key l_other = (Key) p_other;
+			if (fieldName == null ? l_other.fieldName != null : !fieldName.equals(l_other.fieldName))
+				return false;
+			return identity ? value == l_other.value : value.equals(l_other.value);
+		}
+	}
+
+	private final CallbackField<R> callback;
+	private final Function<Object, Object> keyFunction;
+	private final int maxSize;
+	private final Map<Key, Object> results;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Memoriza pela identidade do valor.
+	 * 
+	 * @param p_callback
+	 * @param p_maxSize
+	 *            quantidade máxima de resultados mantidos
+	 */
+	public MemoizedCallbackField(CallbackField<R> p_callback, int p_maxSize) {
+		this(p_callback, p_maxSize, null);
+	}
+
+	/**
+	 * @param p_callback
+	 * @param p_maxSize
+	 *            quantidade máxima de resultados mantidos
+	 * @param p_keyFunction
+	 *            obtem a chave do valor, como
+	 *            {@link javax.persistence.PersistenceUnitUtil#getIdentifier(Object)},
+	 *            ou null para usar a identidade do valor
+	 */
+	public MemoizedCallbackField(CallbackField<R> p_callback, int p_maxSize, Function<Object, Object> p_keyFunction) {
+		if (p_callback == null)
+			throw new IllegalArgumentException("callback: null");
+		if (p_maxSize < 1)
+			throw new IllegalArgumentException("maxSize: " + p_maxSize);
+		callback = p_callback;
+		maxSize = p_maxSize;
+		keyFunction = p_keyFunction;
+		results = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Object> p_eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public R call(Object p_entity, String p_fieldName, Object p_fieldValue) {
+		Key l_key = createKey(p_fieldName, p_fieldValue);
+		if (l_key == null)
+			return callback.call(p_entity, p_fieldName, p_fieldValue);
+
+		Object l_result;
+		synchronized (results) {
+			l_result = results.get(l_key);
+		}
+		if (l_result != null) {
+			hits.increment();
+			return l_result == NULL ? null : (R) l_result;
+		}
+
+		misses.increment();
+		R l_value = callback.call(p_entity, p_fieldName, p_fieldValue);
+		synchronized (results) {
+			results.put(l_key, l_value == null ? NULL : l_value);
+		}
+		return l_value;
+	}
+
+	/**
+	 * @return a chave do resultado, ou null quando o valor não pode ser
+	 *         memorizado
+	 */
+	private Key createKey(String p_fieldName, Object p_fieldValue) {
+		if (p_fieldValue == null)
+			return null;
+		if (keyFunction == null)
+			return new Key(p_fieldName, p_fieldValue, true);
+
+		Object l_id = keyFunction.apply(p_fieldValue);
+		return l_id == null ? null : new Key(p_fieldName, l_id, false);
+	}
+
+	/**
+	 * Descarta todos os resultados memorizados.
+	 */
+	public void clear() {
+		synchronized (results) {
+			results.clear();
+		}
+	}
+
+	/**
+	 * Callback memorizado.
+	 * 
+	 * @return
+	 */
+	public CallbackField<R> getCallback() {
+		return callback;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int size() {
+		synchronized (results) {
+			return results.size();
+		}
+	}
+
+	/**
+	 * Quantidade de chamadas atendidas pelo cache.
+	 * 
+	 * @return
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Quantidade de chamadas repassadas ao callback por valores ainda não
+	 * memorizados, os valores null e sem chave não são contados.
+	 * 
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+}
@@ -0,0 +1,26 @@
+package org.weka.jpa.utils;
+
+import java.util.function.Function;
+
+/**
+ * Memoriza os resultados de um {@link CallbackFieldToNumber}, veja
+ * {@link MemoizedCallbackField}.
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ * @param <R>
+ *            Tipo do retorno, obrigatório Number
+ */
+public class MemoizedCallbackFieldToNumber<R extends Number> extends MemoizedCallbackField<R> implements
+		CallbackFieldToNumber<R> {
+
+	public MemoizedCallbackFieldToNumber(CallbackFieldToNumber<R> p_callback, int p_maxSize) {
+		super(p_callback, p_maxSize);
+	}
+
+	public MemoizedCallbackFieldToNumber(CallbackFieldToNumber<R> p_callback, int p_maxSize,
+			Function<Object, Object> p_keyFunction) {
+		super(p_callback, p_maxSize, p_keyFunction);
+	}
+}
@@ -0,0 +1,31 @@
+package org.weka.jpa.utils;
+
+import java.util.function.Function;
+
+/**
+ * Memoriza os resultados de um {@link CallbackFieldToString}, veja
+ * {@link MemoizedCallbackField}.
+ * 
+ * Exemplo, memorizando a formatação das categorias pela chave primária:
+ * 
+ * <pre>
+ * PersistenceUnitUtil l_util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+ * helper.setClassCallBackToString(Categoria.class,
+ * 		new MemoizedCallbackFieldToString(callback, 10000, l_util::getIdentifier));
+ * </pre>
+ * 
+ * @author Carlos Delfino {consultoria@carlosdelfino.eti.br, Aminadabe B. Souza
+ *         {aminadabebs@gmail.com} e Carlos Barros {carlos.barros22@gmail.com}
+ * 
+ */
+public class MemoizedCallbackFieldToString extends MemoizedCallbackField<String> implements CallbackFieldToString {
+
+	public MemoizedCallbackFieldToString(CallbackFieldToString p_callback, int p_maxSize) {
+		super(p_callback, p_maxSize);
+	}
+
+	public MemoizedCallbackFieldToString(CallbackFieldToString p_callback, int p_maxSize,
+			Function<Object, Object> p_keyFunction) {
+		super(p_callback, p_maxSize, p_keyFunction);
+	}
+}